@@ -0,0 +1,33 @@
+package nl.concipit.sudoku.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so every result reports
+ * the allocation rate next to the throughput. <br/>
+ * <br/>
+ * Accepts the regular JMH command line, e.g.
+ * <code>java -jar target/benchmarks.jar SolverBenchmark -p corpus=HARD</code>
+ *
+ * @author dcoppens
+ *
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * Hide constructor for utility class
+     */
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,79 @@
+package nl.concipit.sudoku.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.solver.DancingLinksSolver;
+import nl.concipit.sudoku.symmetry.Canonicalizer;
+import nl.concipit.sudoku.symmetry.Fingerprint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Canonicalizer} on puzzles and on their solutions. One
+ * operation fingerprints one grid; consecutive operations cycle through the
+ * corpus.
+ *
+ * @author dcoppens
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CanonicalizerBenchmark {
+
+    @Param({ "EASY", "HARD", "PATHOLOGICAL", "SIXTEEN" })
+    private Corpus corpus;
+
+    private final Canonicalizer canonicalizer = new Canonicalizer(
+            Long.MAX_VALUE);
+    private SudokuGrid[] puzzles;
+    private SudokuGrid[] solutions;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<SudokuGrid> grids = corpus.grids();
+        puzzles = grids.toArray(new SudokuGrid[grids.size()]);
+        solutions = new SudokuGrid[puzzles.length];
+        for (int i = 0; i < puzzles.length; i++) {
+            solutions[i] = new SudokuGrid(puzzles[i]);
+            if (!new DancingLinksSolver().solve(solutions[i])) {
+                throw new IllegalStateException("Unsolvable puzzle " + i
+                        + " in " + corpus);
+            }
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % puzzles.length;
+        return index;
+    }
+
+    @Benchmark
+    public Fingerprint puzzle() {
+        return canonicalizer.canonicalize(puzzles[nextIndex()])
+                .getFingerprint();
+    }
+
+    @Benchmark
+    public Fingerprint solution() {
+        return canonicalizer.canonicalize(solutions[nextIndex()])
+                .getFingerprint();
+    }
+}
@@ -0,0 +1,89 @@
+package nl.concipit.sudoku.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Puzzle sets bundled with the benchmarks. <br/>
+ * <br/>
+ * Every set is a resource holding grids in the format read by
+ * {@link SudokuGridBuilder}, separated by an empty line.
+ *
+ * @author dcoppens
+ *
+ */
+public enum Corpus {
+    /** 9x9 puzzles solved by naked and hidden singles alone */
+    EASY("easy.txt"),
+    /** 9x9 puzzles that need a lot of guessing */
+    HARD("hard.txt"),
+    /** 9x9 puzzles crafted against backtracking in value order */
+    PATHOLOGICAL("pathological.txt"),
+    /** 16x16 puzzles */
+    SIXTEEN("sixteen.txt");
+
+    private final String resource;
+
+    private Corpus(String resource) {
+        this.resource = resource;
+    }
+
+    /**
+     * Returns the puzzles of this set as they appear in the resource
+     *
+     * @return Input of every puzzle
+     * @throws IOException
+     *             thrown if the resource cannot be read
+     */
+    public List<byte[]> inputs() throws IOException {
+        InputStream stream = Corpus.class.getResourceAsStream("/corpus/"
+                + resource);
+        if (stream == null) {
+            throw new IOException("Missing corpus " + resource);
+        }
+
+        String content;
+        try {
+            content = IOUtils.toString(stream, StandardCharsets.UTF_8);
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+
+        List<byte[]> inputs = new ArrayList<byte[]>();
+        for (String puzzle : content.split("\\r?\\n\\s*\\r?\\n")) {
+            if (!puzzle.trim().isEmpty()) {
+                inputs.add(puzzle.trim().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * Returns the parsed puzzles of this set
+     *
+     * @return Grid of every puzzle
+     * @throws IOException
+     *             thrown if the resource cannot be read
+     * @throws IllegalGridInputException
+     *             thrown if a puzzle is invalid
+     */
+    public List<SudokuGrid> grids() throws IOException,
+            IllegalGridInputException {
+        List<SudokuGrid> grids = new ArrayList<SudokuGrid>();
+        for (byte[] input : inputs()) {
+            grids.add(SudokuGridBuilder.buildGrid(new ByteArrayInputStream(
+                    input)));
+        }
+        return grids;
+    }
+}
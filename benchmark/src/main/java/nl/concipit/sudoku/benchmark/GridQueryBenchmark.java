@@ -0,0 +1,117 @@
+package nl.concipit.sudoku.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.solver.DancingLinksSolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the validation queries of {@link SudokuGrid}. One operation queries
+ * every row, column or segment of one grid; consecutive operations cycle
+ * through the corpus.
+ *
+ * @author dcoppens
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridQueryBenchmark {
+
+    @Param({ "EASY", "HARD", "PATHOLOGICAL", "SIXTEEN" })
+    private Corpus corpus;
+
+    private SudokuGrid[] puzzles;
+    private SudokuGrid[] solutions;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<SudokuGrid> grids = corpus.grids();
+        puzzles = grids.toArray(new SudokuGrid[grids.size()]);
+        solutions = new SudokuGrid[puzzles.length];
+        for (int i = 0; i < puzzles.length; i++) {
+            solutions[i] = new SudokuGrid(puzzles[i]);
+            if (!new DancingLinksSolver().solve(solutions[i])) {
+                throw new IllegalStateException("Unsolvable puzzle " + i
+                        + " in " + corpus);
+            }
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % puzzles.length;
+        return index;
+    }
+
+    @Benchmark
+    public boolean isCompletePuzzle() {
+        return puzzles[nextIndex()].isComplete();
+    }
+
+    @Benchmark
+    public boolean isCompleteSolution() {
+        return solutions[nextIndex()].isComplete();
+    }
+
+    @Benchmark
+    public void missingInRows(Blackhole blackhole) {
+        SudokuGrid grid = puzzles[nextIndex()];
+        for (int row = 0; row < grid.getGridSize(); row++) {
+            blackhole.consume(grid.getMissingInRow(row));
+        }
+    }
+
+    @Benchmark
+    public void missingInColumns(Blackhole blackhole) {
+        SudokuGrid grid = puzzles[nextIndex()];
+        for (int column = 0; column < grid.getGridSize(); column++) {
+            blackhole.consume(grid.getMissingInColumn(column));
+        }
+    }
+
+    @Benchmark
+    public void missingInSegments(Blackhole blackhole) {
+        SudokuGrid grid = puzzles[nextIndex()];
+        int segmentSize = grid.getSegmentSize();
+        for (int row = 0; row < grid.getGridSize(); row += segmentSize) {
+            for (int column = 0; column < grid.getGridSize(); column += segmentSize) {
+                blackhole.consume(grid.getMissingInSegment(column, row));
+            }
+        }
+    }
+
+    @Benchmark
+    public void valuesInRows(Blackhole blackhole) {
+        SudokuGrid grid = puzzles[nextIndex()];
+        for (int row = 0; row < grid.getGridSize(); row++) {
+            blackhole.consume(grid.getValuesInRow(row));
+        }
+    }
+
+    @Benchmark
+    public void valuesInColumns(Blackhole blackhole) {
+        SudokuGrid grid = puzzles[nextIndex()];
+        for (int column = 0; column < grid.getGridSize(); column++) {
+            blackhole.consume(grid.getValuesInColumn(column));
+        }
+    }
+}
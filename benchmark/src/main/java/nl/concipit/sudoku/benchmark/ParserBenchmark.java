@@ -0,0 +1,90 @@
+package nl.concipit.sudoku.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.io.GridCodec;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing of puzzles with {@link SudokuGridBuilder}, from a stream
+ * and from a byte buffer, and decoding of their binary form with
+ * {@link GridCodec}. One operation parses one puzzle; consecutive operations
+ * cycle through the corpus.
+ *
+ * @author dcoppens
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({ "EASY", "HARD", "PATHOLOGICAL", "SIXTEEN" })
+    private Corpus corpus;
+
+    private byte[][] inputs;
+    private ByteBuffer[] buffers;
+    private ByteBuffer[] encoded;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<byte[]> list = corpus.inputs();
+        inputs = list.toArray(new byte[list.size()][]);
+        buffers = new ByteBuffer[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            buffers[i] = ByteBuffer.wrap(inputs[i]);
+        }
+        encoded = new ByteBuffer[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            SudokuGrid grid = SudokuGridBuilder.parseGrid(buffers[i]);
+            byte[] bytes = GridCodec.toBytes(grid);
+            encoded[i] = ByteBuffer.allocateDirect(bytes.length);
+            encoded[i].put(bytes).flip();
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % inputs.length;
+        return index;
+    }
+
+    @Benchmark
+    public SudokuGrid buildGrid() throws IllegalGridInputException {
+        return SudokuGridBuilder.buildGrid(new ByteArrayInputStream(
+                inputs[nextIndex()]));
+    }
+
+    @Benchmark
+    public SudokuGrid parseGrid() throws IllegalGridInputException {
+        return SudokuGridBuilder.parseGrid(buffers[nextIndex()]);
+    }
+
+    @Benchmark
+    public SudokuGrid decodeGrid() throws IllegalGridInputException {
+        ByteBuffer buffer = encoded[nextIndex()];
+        buffer.rewind();
+        return GridCodec.read(buffer);
+    }
+}
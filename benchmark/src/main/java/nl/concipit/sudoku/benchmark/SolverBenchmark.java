@@ -0,0 +1,82 @@
+package nl.concipit.sudoku.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.solver.BitboardSolver;
+import nl.concipit.sudoku.solver.DancingLinksSolver;
+import nl.concipit.sudoku.solver.ForkJoinSolver;
+import nl.concipit.sudoku.solver.PropagationSolver;
+import nl.concipit.sudoku.solver.SimpleSolver;
+import nl.concipit.sudoku.solver.Solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures every {@link Solver} implementation. One operation copies one
+ * puzzle and solves the copy with a new solver; consecutive operations cycle
+ * through the corpus.
+ *
+ * @author dcoppens
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({ "simple", "dancingLinks", "propagation", "forkJoin",
+            "bitboard" })
+    private String solver;
+
+    @Param({ "EASY", "HARD", "PATHOLOGICAL", "SIXTEEN" })
+    private Corpus corpus;
+
+    private SudokuGrid[] puzzles;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<SudokuGrid> grids = corpus.grids();
+        puzzles = grids.toArray(new SudokuGrid[grids.size()]);
+        createSolver();
+    }
+
+    @Benchmark
+    public boolean solve() {
+        SudokuGrid grid = new SudokuGrid(puzzles[next]);
+        next = (next + 1) % puzzles.length;
+        return createSolver().solve(grid);
+    }
+
+    private Solver createSolver() {
+        switch (solver) {
+        case "simple":
+            return new SimpleSolver();
+        case "dancingLinks":
+            return new DancingLinksSolver();
+        case "propagation":
+            return new PropagationSolver();
+        case "forkJoin":
+            return new ForkJoinSolver();
+        case "bitboard":
+            return new BitboardSolver();
+        default:
+            throw new IllegalArgumentException("Unknown solver " + solver);
+        }
+    }
+}
@@ -2,26 +2,24 @@ package nl.concipit.sudoku;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 
 import nl.concipit.sudoku.exception.IllegalGridInputException;
-import nl.concipit.sudoku.model.SudokuCell;
 import nl.concipit.sudoku.model.SudokuGrid;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
 
 /**
  * Builder for sudoku grids based on input.
- * 
+ *
  * @author dcoppens
  *
  */
 public class SudokuGridBuilder {
 
-    private static final String CELL_DELIMITER = ";";
-    private static final String SEGMENT_DELIMITER = "\\|";
+    private static final char CELL_DELIMITER = ';';
+    private static final char SEGMENT_DELIMITER = '|';
 
     /**
      * Private constructor
@@ -36,7 +34,7 @@ public class SudokuGridBuilder {
      * format an exception is thrown. <br/>
      * Format example for 6 x 2 grid with four segments: <br/>
      * cell;cell;cell|cell;cell;cell\n cell;cell;cell|cell;cell;cell\n
-     * 
+     *
      * @param inputStream
      *            Input
      * @throws IllegalGridInputException
@@ -44,157 +42,344 @@ public class SudokuGridBuilder {
      */
     public static SudokuGrid buildGrid(InputStream inputStream)
             throws IllegalGridInputException {
+        if (inputStream == null) {
+            throw new IllegalGridInputException();
+        }
         try {
-            SudokuGrid grid = null;
-            if (inputStream == null) {
-                throw new IllegalGridInputException();
-            }
-            List<String> lines = IOUtils.readLines(inputStream);
-
-            // prepare the grid definition
-            prepareGridDefinition(lines);
-
-            int row = 0;
-            for (String line : lines) {
-                if (grid == null) {
-                    grid = initializeGrid(lines.size(), line);
-                }
-
-                // process the line
-                processLine(grid, lines.size(), row, line);
-                row++;
-            }
-
-            return grid;
-
+            return parseGrid(IOUtils.toString(inputStream));
         } catch (IOException e) {
             throw new IllegalGridInputException(e);
         }
+    }
 
+    /**
+     * Constructs a SudokuGrid from the characters of the input, in the format
+     * of {@link #buildGrid(InputStream)}. <br/>
+     * The input is scanned once without creating intermediate strings.
+     *
+     * @param input
+     *            Input
+     * @throws IllegalGridInputException
+     *             thrown if the input is not in the expected format
+     */
+    public static SudokuGrid parseGrid(CharSequence input)
+            throws IllegalGridInputException {
+        if (input == null) {
+            throw new IllegalGridInputException();
+        }
+        return new GridParser(input).parse();
     }
 
     /**
-     * Creates an empty grid with the specified grid height and grid width
-     * determined by the supplied line
-     * 
-     * @param gridSize
-     *            Height of the grid
-     * @param line
-     *            One line of the grid to be created
-     * @return Grid with specified height and width as determined based on the
-     *         line
+     * Constructs a SudokuGrid from the characters of the input, in the format
+     * of {@link #buildGrid(InputStream)}.
+     *
+     * @param input
+     *            Input
+     * @throws IllegalGridInputException
+     *             thrown if the input is not in the expected format
      */
-    private static SudokuGrid initializeGrid(int gridSize, String line) {
-        SudokuGrid grid;
-        // init the grid
-        String[] segments = line.split(SEGMENT_DELIMITER, -1);  
-        String[] cells = segments[0].split(CELL_DELIMITER, -1);
-
-        grid = new SudokuGrid(cells.length * segments.length,
-                cells.length);
-        return grid;
+    public static SudokuGrid parseGrid(char[] input)
+            throws IllegalGridInputException {
+        if (input == null) {
+            throw new IllegalGridInputException();
+        }
+        return parseGrid(CharBuffer.wrap(input));
     }
 
     /**
-     * Process one line of a grid definition
-     * 
-     * @param grid
-     *            Sudoku grid to which to add the processed line; if this is the
-     *            first line, the grid is null
-     * @param gridHeight
-     *            Height of the sudoku grid
-     * @param row
-     *            row of the sudoku grid to which this line corresponds
-     * @param line
-     *            the line to process
+     * Constructs a SudokuGrid from the bytes between the position and the
+     * limit of the buffer, in the format of {@link #buildGrid(InputStream)}.
+     * Every byte is read as one ISO-8859-1 character; the position of the
+     * buffer is not changed.
+     *
+     * @param input
+     *            Input
      * @throws IllegalGridInputException
-     *             thrown if the line leads to an invalid sudoku grid
+     *             thrown if the input is not in the expected format
      */
-    private static void processLine(SudokuGrid grid, int gridHeight, int row,
-            String line) throws IllegalGridInputException {
+    public static SudokuGrid parseGrid(ByteBuffer input)
+            throws IllegalGridInputException {
+        if (input == null) {
+            throw new IllegalGridInputException();
+        }
+        return parseGrid(new ByteSequence(input, input.position(),
+                input.remaining()));
+    }
 
-        String[] segments = line.split(SEGMENT_DELIMITER);
-        int column = 0;
-        for (String segment : segments) {
+    /**
+     * Single pass parser for one grid definition. <br/>
+     * <br/>
+     * Empty lines are ignored; the first line determines the size of the
+     * grid. Trailing empty segments of a line are ignored. Cell values are
+     * trimmed and parsed like {@link Integer#parseInt(String)}, so a cell
+     * that is not a number results in a {@link NumberFormatException}. A value
+     * below the grid size may occur only once per row and column; this is
+     * checked against bitmasks of the values seen so far.
+     */
+    private static final class GridParser {
+        private final CharSequence input;
+
+        private SudokuGrid grid;
+        private int gridSize;
+        private int segmentSize;
+        private int maxValue;
 
-            String[] cells = segment.split(CELL_DELIMITER, -1);
+        /** Values seen per row and per column, maskWords longs per line */
+        private long[] rowMasks;
+        private long[] columnMasks;
+        private int maskWords;
 
-            if (cells.length * grid.getNumberOfSegments() != grid.getGridSize()) {
+        GridParser(CharSequence input) {
+            this.input = input;
+        }
+
+        /**
+         * Parses the input
+         *
+         * @return Grid, or null if the input only contains empty lines
+         * @throws IllegalGridInputException
+         *             thrown if the input is not in the expected format
+         */
+        SudokuGrid parse() throws IllegalGridInputException {
+            int length = input.length();
+            if (length == 0) {
                 throw new IllegalGridInputException();
             }
-            if (cells.length != grid.getSegmentSize()) {
+
+            int row = 0;
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                while (end < length && !isLineBreak(input.charAt(end))) {
+                    end++;
+                }
+                if (end > start) {
+                    if (grid == null) {
+                        initializeGrid(start, end);
+                    }
+                    parseLine(row, start, end);
+                    row++;
+                }
+
+                // \r\n is a single line break
+                if (end + 1 < length && input.charAt(end) == '\r'
+                        && input.charAt(end + 1) == '\n') {
+                    end++;
+                }
+                start = end + 1;
+            }
+            return grid;
+        }
+
+        /**
+         * Creates an empty grid whose width is determined by the line
+         */
+        private void initializeGrid(int start, int end) {
+            // trailing segment delimiters are ignored, as by parseLine
+            while (end > start && input.charAt(end - 1) == SEGMENT_DELIMITER) {
+                end--;
+            }
+            int segments = 1;
+            int cells = 1;
+            for (int i = start; i < end; i++) {
+                char c = input.charAt(i);
+                if (c == SEGMENT_DELIMITER) {
+                    segments++;
+                } else if (c == CELL_DELIMITER && segments == 1) {
+                    cells++;
+                }
+            }
+
+            grid = new SudokuGrid(cells * segments, cells);
+            gridSize = grid.getGridSize();
+            segmentSize = grid.getSegmentSize();
+            maxValue = segmentSize * segmentSize;
+            maskWords = (gridSize + 63) >>> 6;
+            rowMasks = new long[gridSize * maskWords];
+            columnMasks = new long[gridSize * maskWords];
+        }
+
+        /**
+         * Parses one line of the grid definition
+         *
+         * @param row
+         *            row of the grid to which the line corresponds
+         * @param start
+         *            index of the first character of the line
+         * @param end
+         *            index after the last character of the line
+         * @throws IllegalGridInputException
+         *             thrown if the line leads to an invalid grid, or lies
+         *             outside of the grid
+         */
+        private void parseLine(int row, int start, int end)
+                throws IllegalGridInputException {
+            if (row >= gridSize) {
                 throw new IllegalGridInputException();
             }
+            while (end > start && input.charAt(end - 1) == SEGMENT_DELIMITER) {
+                end--;
+            }
 
-            for (String cell : cells) {
-                processCell(cell, column, row, grid);
-                column++;
+            int column = 0;
+            int segmentStart = start;
+            while (segmentStart < end) {
+                int segmentEnd = segmentStart;
+                int cells = 1;
+                while (segmentEnd < end
+                        && input.charAt(segmentEnd) != SEGMENT_DELIMITER) {
+                    if (input.charAt(segmentEnd) == CELL_DELIMITER) {
+                        cells++;
+                    }
+                    segmentEnd++;
+                }
+                if (cells != segmentSize || column + cells > gridSize) {
+                    throw new IllegalGridInputException();
+                }
+
+                int cellStart = segmentStart;
+                for (int cell = 0; cell < cells; cell++) {
+                    int cellEnd = cellStart;
+                    while (cellEnd < segmentEnd
+                            && input.charAt(cellEnd) != CELL_DELIMITER) {
+                        cellEnd++;
+                    }
+                    parseCell(column, row, cellStart, cellEnd);
+                    column++;
+                    cellStart = cellEnd + 1;
+                }
+                segmentStart = segmentEnd + 1;
             }
         }
-    }
 
-    /**
-     * Process cell definition
-     * 
-     * @param cell
-     *            String representation of a cell
-     * @param column
-     *            Column to which to add cell
-     * @param row
-     *            Row to which to add cell
-     * @param grid
-     *            Grid to which to add cell
-     * @throws IllegalGridInputException
-     *             Thrown if the cell definition is illegal
-     */
-    private static void processCell(String cell, int column, int row,
-            SudokuGrid grid) throws IllegalGridInputException {
-        String trimmedCell = cell.trim();
-        if (StringUtils.isEmpty(trimmedCell)) {
-            grid.setCell(column, row, new SudokuCell(column, row));
-        } else {
+        /**
+         * Parses one cell and adds its value to the grid
+         *
+         * @param column
+         *            Column of the cell
+         * @param row
+         *            Row of the cell
+         * @param start
+         *            index of the first character of the cell
+         * @param end
+         *            index after the last character of the cell
+         * @throws IllegalGridInputException
+         *             Thrown if the cell definition is illegal
+         */
+        private void parseCell(int column, int row, int start, int end)
+                throws IllegalGridInputException {
+            while (start < end && input.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && input.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start == end) {
+                return;
+            }
 
-            Integer cellValue = Integer.parseInt(trimmedCell);
+            int value = parseInt(start, end);
 
             // check whether this is a possible value
-            if (cellValue <= 0 || cellValue > (grid.getSegmentSize() * grid.getSegmentSize())) {
+            if (value <= 0 || value > maxValue) {
                 throw new IllegalGridInputException();
             }
 
-            // check whether this value is already in the row
-            if ((cellValue < grid.getGridSize() && !grid.getMissingInRow(row).contains(cellValue))
-                    || (cellValue < grid.getGridSize()) && !grid.getMissingInColumn(column).contains(cellValue)) {
-                throw new IllegalGridInputException();
+            // check whether this value is already in the row or column
+            if (value < gridSize) {
+                int word = value >>> 6;
+                long bit = 1L << value;
+                int rowWord = row * maskWords + word;
+                int columnWord = column * maskWords + word;
+                if ((rowMasks[rowWord] & bit) != 0
+                        || (columnMasks[columnWord] & bit) != 0) {
+                    throw new IllegalGridInputException();
+                }
+                rowMasks[rowWord] |= bit;
+                columnMasks[columnWord] |= bit;
+            }
+            grid.setValue(column, row, value);
+        }
+
+        /**
+         * Parses the characters as a signed decimal integer, accepting the
+         * same input as {@link Integer#parseInt(String)}
+         */
+        private int parseInt(int start, int end) {
+            int i = start;
+            boolean negative = false;
+            char first = input.charAt(i);
+            if (first == '-' || first == '+') {
+                negative = first == '-';
+                i++;
+                if (i == end) {
+                    throw numberFormatException(start, end);
+                }
             }
-            grid.setCell(column, row, new SudokuCell(column, row, cellValue));
+
+            long limit = negative ? -(long) Integer.MIN_VALUE
+                    : Integer.MAX_VALUE;
+            long result = 0;
+            for (; i < end; i++) {
+                int digit = Character.digit(input.charAt(i), 10);
+                if (digit < 0) {
+                    throw numberFormatException(start, end);
+                }
+                result = result * 10 + digit;
+                if (result > limit) {
+                    throw numberFormatException(start, end);
+                }
+            }
+            return (int) (negative ? -result : result);
+        }
+
+        private NumberFormatException numberFormatException(int start, int end) {
+            return new NumberFormatException("For input string: \""
+                    + input.subSequence(start, end) + "\"");
         }
 
+        private static boolean isLineBreak(char c) {
+            return c == '\n' || c == '\r';
+        }
     }
 
     /**
-     * Prepares the list of lines representing a sudoku grid for further
-     * processing;
-     * 
-     * empty lines will be removed;
-     * 
-     * @param lines
-     *            Lines to be processed; empty lines will be removed
-     * @throws IllegalGridInputException
-     *             Thrown if input list is empty
+     * Characters of a byte buffer, one ISO-8859-1 character per byte
      */
-    private static void prepareGridDefinition(List<String> lines)
-            throws IllegalGridInputException {
-        if (lines.isEmpty()) {
-            throw new IllegalGridInputException();
+    private static final class ByteSequence implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        ByteSequence(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteSequence(buffer, offset + start, end - start);
         }
 
-        // first, let's remove any empty lines, since they are ignored
-        Iterator<String> it = lines.iterator();
-        while (it.hasNext()) {
-            String line = it.next();
-            if (StringUtils.isEmpty(line)) {
-                it.remove();
+        @Override
+        public String toString() {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = charAt(i);
             }
+            return new String(chars);
         }
     }
 }
@@ -0,0 +1,34 @@
+package nl.concipit.sudoku.generator;
+
+/**
+ * Difficulty of a generated puzzle, expressed as the share of the cells that
+ * is given as a clue. Fewer clues generally require more search to solve.
+ *
+ * @author dcoppens
+ *
+ */
+public enum Difficulty {
+    /** About half of the cells are given */
+    EASY(0.5),
+    /** About 40% of the cells are given */
+    MEDIUM(0.4),
+    /** About 30% of the cells are given, close to a minimal puzzle */
+    HARD(0.3);
+
+    private final double clueShare;
+
+    private Difficulty(double clueShare) {
+        this.clueShare = clueShare;
+    }
+
+    /**
+     * Returns the target number of clues for a grid of the specified size
+     *
+     * @param gridSize
+     *            Size of the grid
+     * @return Number of clues
+     */
+    public int getClues(int gridSize) {
+        return (int) Math.ceil(clueShare * gridSize * gridSize);
+    }
+}
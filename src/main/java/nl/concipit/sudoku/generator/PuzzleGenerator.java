@@ -0,0 +1,200 @@
+package nl.concipit.sudoku.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.solver.DancingLinksSolver;
+
+/**
+ * Generates random puzzles that have exactly one solution. <br/>
+ * <br/>
+ * A random complete grid is created first: a random first row is completed
+ * by {@link DancingLinksSolver}, after which rows and columns are shuffled
+ * within their bands and the bands themselves are shuffled. Clues are then
+ * removed in random order; a removal is undone if the puzzle would no longer
+ * have a unique solution. Removal stops at the target number of clues, or
+ * earlier when no clue can be removed anymore.
+ *
+ * @author dcoppens
+ *
+ */
+public class PuzzleGenerator {
+    private final int gridSize;
+    private final int segmentSize;
+    private final int clues;
+
+    /**
+     * Constructor
+     *
+     * @param gridSize
+     *            Size of the generated grids
+     * @param segmentSize
+     *            Size of the segments of the generated grids
+     * @param clues
+     *            Target number of clues
+     */
+    public PuzzleGenerator(int gridSize, int segmentSize, int clues) {
+        if (segmentSize < 1 || gridSize % segmentSize != 0
+                || gridSize > segmentSize * segmentSize) {
+            // no complete grid exists
+            throw new IllegalArgumentException();
+        }
+        if (clues < 0 || clues > gridSize * gridSize) {
+            throw new IllegalArgumentException();
+        }
+        this.gridSize = gridSize;
+        this.segmentSize = segmentSize;
+        this.clues = clues;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param gridSize
+     *            Size of the generated grids
+     * @param segmentSize
+     *            Size of the segments of the generated grids
+     * @param difficulty
+     *            Difficulty determining the target number of clues
+     */
+    public PuzzleGenerator(int gridSize, int segmentSize,
+            Difficulty difficulty) {
+        this(gridSize, segmentSize, difficulty.getClues(gridSize));
+    }
+
+    /**
+     * Generates one puzzle
+     *
+     * @param random
+     *            Source of randomness; the same sequence yields the same
+     *            puzzle
+     * @return Puzzle with a unique solution
+     */
+    public SudokuGrid generate(Random random) {
+        SudokuGrid grid = generateSolution(random);
+        DancingLinksSolver counter = new DancingLinksSolver();
+
+        int[] cells = shuffled(gridSize * gridSize, random);
+        for (int i = 0; i < cells.length
+                && grid.getNumberOfFilledCells() > clues; i++) {
+            int column = cells[i] % gridSize;
+            int row = cells[i] / gridSize;
+            int value = grid.getValue(column, row);
+            grid.setValue(column, row, 0);
+            if (!counter.hasUniqueSolution(grid)) {
+                grid.setValue(column, row, value);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Generates puzzles in parallel. <br/>
+     * Every puzzle has its own random generator, seeded from the specified
+     * seed, so the result does not depend on the executor.
+     *
+     * @param count
+     *            Number of puzzles
+     * @param seed
+     *            Seed
+     * @param executor
+     *            Executor generating the puzzles
+     * @return Puzzles, each with a unique solution
+     */
+    public List<SudokuGrid> generate(int count, long seed,
+            ExecutorService executor) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<Future<SudokuGrid>> futures = new ArrayList<Future<SudokuGrid>>(
+                count);
+        for (int i = 0; i < count; i++) {
+            final long puzzleSeed = seeds.nextLong();
+            futures.add(executor.submit(() -> generate(new Random(puzzleSeed))));
+        }
+
+        List<SudokuGrid> puzzles = new ArrayList<SudokuGrid>(count);
+        try {
+            for (Future<SudokuGrid> future : futures) {
+                puzzles.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<SudokuGrid> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return puzzles;
+    }
+
+    /**
+     * Generates a random complete grid
+     *
+     * @param random
+     *            Source of randomness
+     * @return Complete grid
+     */
+    SudokuGrid generateSolution(Random random) {
+        SudokuGrid seeded = new SudokuGrid(gridSize, segmentSize);
+        int[] values = shuffled(segmentSize * segmentSize, random);
+        for (int column = 0; column < gridSize; column++) {
+            seeded.setValue(column, 0, values[column] + 1);
+        }
+        if (!new DancingLinksSolver().solve(seeded)) {
+            throw new IllegalStateException();
+        }
+
+        int[] rows = shuffledLines(random);
+        int[] columns = shuffledLines(random);
+        SudokuGrid grid = new SudokuGrid(gridSize, segmentSize);
+        for (int row = 0; row < gridSize; row++) {
+            for (int column = 0; column < gridSize; column++) {
+                grid.setValue(column, row,
+                        seeded.getValue(columns[column], rows[row]));
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Returns a permutation of the rows (or columns) that keeps the lines of
+     * every band together
+     */
+    private int[] shuffledLines(Random random) {
+        int[] bands = shuffled(gridSize / segmentSize, random);
+        int[] lines = new int[gridSize];
+        for (int band = 0; band < bands.length; band++) {
+            int[] offsets = shuffled(segmentSize, random);
+            for (int i = 0; i < segmentSize; i++) {
+                lines[band * segmentSize + i] = bands[band] * segmentSize
+                        + offsets[i];
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Returns a random permutation of 0 up to but not including the size
+     */
+    private static int[] shuffled(int size, Random random) {
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        return permutation;
+    }
+}
@@ -0,0 +1,27 @@
+package nl.concipit.sudoku.io;
+
+/**
+ * Constants of the grid archive format written by {@link GridArchiveWriter}.
+ *
+ * @author dcoppens
+ *
+ */
+final class GridArchive {
+    /** First bytes of every archive, "SDKA" */
+    static final int MAGIC = 0x53444b41;
+
+    /** Version of the format */
+    static final byte VERSION = 1;
+
+    /** Magic, version and three reserved bytes */
+    static final int FILE_HEADER_SIZE = 8;
+
+    /**
+     * Grid size, segment size, two reserved bytes, number of grids, number
+     * of payload bytes and CRC-32 of the payload
+     */
+    static final int BLOCK_HEADER_SIZE = 16;
+
+    private GridArchive() {
+    }
+}
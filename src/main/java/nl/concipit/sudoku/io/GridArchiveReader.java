@@ -0,0 +1,156 @@
+package nl.concipit.sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Reads the grids of an archive written by {@link GridArchiveWriter} one by
+ * one. <br/>
+ * <br/>
+ * Blocks are read whole into a direct buffer and checked against their
+ * CRC-32 before any of their grids is decoded, so a damaged archive fails
+ * with an {@link IOException} instead of producing wrong grids.
+ *
+ * @author dcoppens
+ *
+ */
+public class GridArchiveReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer
+            .allocateDirect(GridArchive.BLOCK_HEADER_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    /** Payload of the current block */
+    private ByteBuffer block;
+    private GridCodec codec;
+
+    /** Number of grids of the current block that were not read yet */
+    private int remaining;
+
+    /**
+     * Constructor
+     *
+     * @param file
+     *            Archive file
+     * @throws IOException
+     *             thrown if the file cannot be opened or is not an archive
+     */
+    public GridArchiveReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer fileHeader = ByteBuffer
+                .allocate(GridArchive.FILE_HEADER_SIZE);
+        if (!read(fileHeader) || fileHeader.getInt(0) != GridArchive.MAGIC
+                || fileHeader.get(4) != GridArchive.VERSION) {
+            channel.close();
+            throw new IOException(file + " is not a grid archive");
+        }
+    }
+
+    /**
+     * Reads the next grid
+     *
+     * @return Grid, or null if the end of the archive was reached
+     * @throws IOException
+     *             thrown if the file cannot be read or a block is damaged
+     * @throws IllegalGridInputException
+     *             thrown if the next grid holds a value above the highest
+     *             value of its geometry; the grid is skipped
+     */
+    public SudokuGrid read() throws IOException, IllegalGridInputException {
+        while (remaining == 0) {
+            if (!nextBlock()) {
+                return null;
+            }
+        }
+        remaining--;
+        int next = block.position() + codec.getEncodedSize();
+        try {
+            return codec.decode(block);
+        } finally {
+            block.position(next);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        block = null;
+        channel.close();
+    }
+
+    /**
+     * Reads and checks the next block
+     *
+     * @return false if the end of the archive was reached
+     */
+    private boolean nextBlock() throws IOException {
+        long offset = channel.position();
+        header.clear();
+        if (!read(header)) {
+            if (header.position() == 0) {
+                return false;
+            }
+            throw new IOException("Truncated block at offset " + offset);
+        }
+
+        GridCodec blockCodec;
+        try {
+            blockCodec = new GridCodec(header.get(0) & 0xff,
+                    header.get(1) & 0xff);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid geometry in block at offset "
+                    + offset, e);
+        }
+        int count = header.getInt(4);
+        int length = header.getInt(8);
+        if (count < 0
+                || length != (long) count * blockCodec.getEncodedSize()) {
+            throw new IOException("Invalid length of block at offset "
+                    + offset);
+        }
+
+        if (block == null || block.capacity() < length) {
+            block = ByteBuffer.allocateDirect(length);
+        }
+        block.clear();
+        block.limit(length);
+        if (!read(block)) {
+            throw new IOException("Truncated block at offset " + offset);
+        }
+        block.flip();
+        crc.reset();
+        crc.update(block.duplicate());
+        if ((int) crc.getValue() != header.getInt(12)) {
+            throw new IOException("Checksum mismatch in block at offset "
+                    + offset);
+        }
+
+        codec = blockCodec;
+        remaining = count;
+        return true;
+    }
+
+    /**
+     * Fills the buffer from the file
+     *
+     * @return false if the end of the file was reached first
+     */
+    private boolean read(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,166 @@
+package nl.concipit.sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Writes grids to a binary archive, to be read by {@link GridArchiveReader}.
+ * <br/>
+ * <br/>
+ * An archive starts with the magic bytes "SDKA", a version byte and three
+ * reserved bytes, followed by blocks. Every block has a header of 16 bytes:
+ * <ul>
+ * <li>the grid size and the segment size, one unsigned byte each, followed
+ * by two reserved bytes</li>
+ * <li>the number of grids in the block</li>
+ * <li>the number of payload bytes</li>
+ * <li>the CRC-32 of the payload</li>
+ * </ul>
+ * The integers are big-endian. The payload holds the grids of the block
+ * encoded by the {@link GridCodec} of its geometry, without header. A block
+ * is written when it is full or when the geometry changes, so mixed
+ * geometries are allowed.
+ *
+ * @author dcoppens
+ *
+ */
+public class GridArchiveWriter implements Closeable {
+
+    /** Default number of payload bytes per block */
+    private static final int DEFAULT_BLOCK_SIZE = 64 << 10;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final CRC32 crc = new CRC32();
+
+    /** Block being filled, header included */
+    private ByteBuffer block;
+    private GridCodec codec;
+    private int count;
+
+    /**
+     * Constructor; an existing file is overwritten
+     *
+     * @param file
+     *            Archive file
+     * @throws IOException
+     *             thrown if the file cannot be created
+     */
+    public GridArchiveWriter(Path file) throws IOException {
+        this(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructor; an existing file is overwritten
+     *
+     * @param file
+     *            Archive file
+     * @param blockSize
+     *            Number of payload bytes per block; a block holds at least
+     *            one grid
+     * @throws IOException
+     *             thrown if the file cannot be created
+     */
+    GridArchiveWriter(Path file, int blockSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.blockSize = blockSize;
+
+        ByteBuffer header = ByteBuffer.allocate(GridArchive.FILE_HEADER_SIZE);
+        header.putInt(GridArchive.MAGIC).put(GridArchive.VERSION);
+        header.clear();
+        try {
+            write(header);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a grid to the archive
+     *
+     * @param grid
+     *            Grid of at most {@link GridCodec#MAX_SIZE} rows
+     * @throws IOException
+     *             thrown if the file cannot be written
+     */
+    public void write(SudokuGrid grid) throws IOException {
+        if (codec == null || codec.getGridSize() != grid.getGridSize()
+                || codec.getSegmentSize() != grid.getSegmentSize()) {
+            flush();
+            codec = new GridCodec(grid.getGridSize(), grid.getSegmentSize());
+            int grids = Math.max(1, blockSize / codec.getEncodedSize());
+            int capacity = GridArchive.BLOCK_HEADER_SIZE + grids
+                    * codec.getEncodedSize();
+            if (block == null || block.capacity() < capacity) {
+                block = ByteBuffer.allocateDirect(capacity);
+            }
+            block.limit(capacity);
+            block.position(GridArchive.BLOCK_HEADER_SIZE);
+        }
+        codec.encode(grid, block);
+        count++;
+        if (!block.hasRemaining()) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the grids appended since the last block as a block
+     *
+     * @throws IOException
+     *             thrown if the file cannot be written
+     */
+    public void flush() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        int capacity = block.limit();
+        int end = block.position();
+        ByteBuffer payload = block.duplicate();
+        payload.position(GridArchive.BLOCK_HEADER_SIZE);
+        payload.limit(end);
+        crc.reset();
+        crc.update(payload);
+
+        block.put(0, (byte) codec.getGridSize());
+        block.put(1, (byte) codec.getSegmentSize());
+        block.putShort(2, (short) 0);
+        block.putInt(4, count);
+        block.putInt(8, end - GridArchive.BLOCK_HEADER_SIZE);
+        block.putInt(12, (int) crc.getValue());
+        block.position(0);
+        block.limit(end);
+        write(block);
+
+        block.limit(capacity);
+        block.position(GridArchive.BLOCK_HEADER_SIZE);
+        count = 0;
+    }
+
+    /**
+     * Writes the last block and closes the file
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
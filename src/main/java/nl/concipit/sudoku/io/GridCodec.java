@@ -0,0 +1,229 @@
+package nl.concipit.sudoku.io;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Compact binary encoding of the grids of one geometry. <br/>
+ * <br/>
+ * Cells are packed in row-major order into the fewest bits that hold the
+ * highest value, most significant bit first, 0 for an empty cell: a 9x9 grid
+ * takes 4 bits per cell, 41 bytes in total, and a 16x16 or 25x25 grid 5 bits
+ * per cell. The last byte is padded with zero bits. <br/>
+ * The static methods prefix the cells with a header of two bytes holding the
+ * size of the grid and of its segments, so a single grid can be decoded
+ * without knowing its geometry.
+ *
+ * @author dcoppens
+ *
+ */
+public final class GridCodec {
+    /** Number of bytes of the geometry header */
+    public static final int HEADER_SIZE = 2;
+
+    /** Largest size of a grid or a segment that fits in the header */
+    public static final int MAX_SIZE = 255;
+
+    private final int gridSize;
+    private final int segmentSize;
+    private final int maxValue;
+    private final int bitsPerCell;
+    private final int encodedSize;
+
+    /**
+     * Constructor
+     *
+     * @param gridSize
+     *            Size of the grid
+     * @param segmentSize
+     *            Size of the segments
+     */
+    public GridCodec(int gridSize, int segmentSize) {
+        if (gridSize < 1 || gridSize > MAX_SIZE || segmentSize < 1
+                || segmentSize > gridSize || gridSize % segmentSize != 0) {
+            throw new IllegalArgumentException();
+        }
+        this.gridSize = gridSize;
+        this.segmentSize = segmentSize;
+        this.maxValue = Math.max(gridSize, segmentSize * segmentSize);
+        this.bitsPerCell = 32 - Integer.numberOfLeadingZeros(maxValue);
+        this.encodedSize = (gridSize * gridSize * bitsPerCell + 7) / 8;
+    }
+
+    /**
+     * Returns the size of the grids
+     *
+     * @return Grid size
+     */
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * Returns the size of the segments
+     *
+     * @return Segment size
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Returns the number of bits per cell
+     *
+     * @return Bits per cell
+     */
+    public int getBitsPerCell() {
+        return bitsPerCell;
+    }
+
+    /**
+     * Returns the number of bytes of an encoded grid, without header
+     *
+     * @return Encoded size
+     */
+    public int getEncodedSize() {
+        return encodedSize;
+    }
+
+    /**
+     * Encodes the cells of a grid at the position of the buffer, advancing the
+     * position by {@link #getEncodedSize()}
+     *
+     * @param grid
+     *            Grid of the geometry of this codec
+     * @param buffer
+     *            Buffer
+     */
+    public void encode(SudokuGrid grid, ByteBuffer buffer) {
+        if (grid.getGridSize() != gridSize
+                || grid.getSegmentSize() != segmentSize) {
+            throw new IllegalArgumentException();
+        }
+        long bits = 0;
+        int count = 0;
+        for (int row = 0; row < gridSize; row++) {
+            for (int column = 0; column < gridSize; column++) {
+                bits = (bits << bitsPerCell) | grid.getValue(column, row);
+                count += bitsPerCell;
+                while (count >= 8) {
+                    count -= 8;
+                    buffer.put((byte) (bits >>> count));
+                }
+            }
+        }
+        if (count > 0) {
+            buffer.put((byte) (bits << (8 - count)));
+        }
+    }
+
+    /**
+     * Decodes a grid at the position of the buffer, advancing the position by
+     * {@link #getEncodedSize()}
+     *
+     * @param buffer
+     *            Buffer
+     * @return Grid
+     * @throws IllegalGridInputException
+     *             thrown if a cell holds a value above the highest value, or
+     *             the buffer holds fewer bytes than an encoded grid
+     */
+    public SudokuGrid decode(ByteBuffer buffer)
+            throws IllegalGridInputException {
+        if (buffer.remaining() < encodedSize) {
+            throw new IllegalGridInputException();
+        }
+        SudokuGrid grid = new SudokuGrid(gridSize, segmentSize);
+        int mask = (1 << bitsPerCell) - 1;
+        long bits = 0;
+        int count = 0;
+        for (int row = 0; row < gridSize; row++) {
+            for (int column = 0; column < gridSize; column++) {
+                while (count < bitsPerCell) {
+                    bits = (bits << 8) | (buffer.get() & 0xff);
+                    count += 8;
+                }
+                count -= bitsPerCell;
+                int value = (int) (bits >>> count) & mask;
+                if (value > maxValue) {
+                    throw new IllegalGridInputException();
+                }
+                if (value != 0) {
+                    grid.setValue(column, row, value);
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Encodes a grid with its geometry header at the position of the buffer
+     *
+     * @param grid
+     *            Grid of at most {@link #MAX_SIZE} rows
+     * @param buffer
+     *            Buffer
+     */
+    public static void write(SudokuGrid grid, ByteBuffer buffer) {
+        GridCodec codec = new GridCodec(grid.getGridSize(),
+                grid.getSegmentSize());
+        buffer.put((byte) codec.gridSize);
+        buffer.put((byte) codec.segmentSize);
+        codec.encode(grid, buffer);
+    }
+
+    /**
+     * Decodes a grid with its geometry header at the position of the buffer
+     *
+     * @param buffer
+     *            Buffer
+     * @return Grid
+     * @throws IllegalGridInputException
+     *             thrown if the header or the cells are not valid
+     */
+    public static SudokuGrid read(ByteBuffer buffer)
+            throws IllegalGridInputException {
+        GridCodec codec;
+        try {
+            codec = new GridCodec(buffer.get() & 0xff, buffer.get() & 0xff);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalGridInputException(e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalGridInputException(e);
+        }
+        return codec.decode(buffer);
+    }
+
+    /**
+     * Encodes a grid with its geometry header
+     *
+     * @param grid
+     *            Grid of at most {@link #MAX_SIZE} rows
+     * @return Bytes
+     */
+    public static byte[] toBytes(SudokuGrid grid) {
+        GridCodec codec = new GridCodec(grid.getGridSize(),
+                grid.getSegmentSize());
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE
+                + codec.encodedSize);
+        write(grid, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a grid with its geometry header
+     *
+     * @param bytes
+     *            Bytes
+     * @return Grid
+     * @throws IllegalGridInputException
+     *             thrown if the bytes are not a valid grid
+     */
+    public static SudokuGrid fromBytes(byte[] bytes)
+            throws IllegalGridInputException {
+        return read(ByteBuffer.wrap(bytes));
+    }
+}
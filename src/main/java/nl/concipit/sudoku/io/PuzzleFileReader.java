@@ -0,0 +1,392 @@
+package nl.concipit.sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Reads the puzzles of a large puzzle file one by one. <br/>
+ * <br/>
+ * The file is memory-mapped in windows, so it never has to fit in the heap;
+ * grids are decoded straight from the mapped bytes. Two record formats are
+ * recognised and may be mixed in one file:
+ * <ul>
+ * <li>one puzzle per line, one character per cell, e.g. the common 81
+ * character format; '.' and '0' denote an empty cell</li>
+ * <li>the format read by {@link nl.concipit.sudoku.SudokuGridBuilder}
+ * (cell;cell;cell|cell;cell;cell), one grid row per line; consecutive grids
+ * are separated by an empty line</li>
+ * </ul>
+ * A record that is not a valid puzzle is skipped after its
+ * {@link IllegalGridInputException} has been thrown, so reading can continue
+ * with the next record.
+ *
+ * @author dcoppens
+ *
+ */
+public class PuzzleFileReader implements Closeable {
+
+    /** Default number of bytes mapped at once */
+    private static final long DEFAULT_WINDOW_SIZE = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /** File offset of the first byte that was not read yet */
+    private long position;
+
+    /**
+     * Constructor
+     *
+     * @param file
+     *            Puzzle file
+     * @throws IOException
+     *             thrown if the file cannot be opened
+     */
+    public PuzzleFileReader(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file
+     *            Puzzle file
+     * @param windowSize
+     *            Number of bytes mapped at once; records larger than the
+     *            window are mapped as a whole
+     * @throws IOException
+     *             thrown if the file cannot be opened
+     */
+    PuzzleFileReader(Path file, long windowSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Reads the next puzzle
+     *
+     * @return Grid of the puzzle, or null if the end of the file was reached
+     * @throws IOException
+     *             thrown if the file cannot be read
+     * @throws IllegalGridInputException
+     *             thrown if the next record is not a valid puzzle; the record
+     *             is skipped
+     */
+    public SudokuGrid read() throws IOException, IllegalGridInputException {
+        // skip the empty lines before the record
+        long start = position;
+        long end = lineEnd(start);
+        while (start < size && isBlank(start, end)) {
+            start = end + 1;
+            end = lineEnd(start);
+        }
+        if (start >= size) {
+            position = size;
+            return null;
+        }
+
+        boolean delimited = contains(start, end);
+        if (delimited) {
+            // the grid ends at the next empty line
+            long next = end + 1;
+            while (next < size) {
+                long nextEnd = lineEnd(next);
+                if (isBlank(next, nextEnd)) {
+                    break;
+                }
+                end = nextEnd;
+                next = nextEnd + 1;
+            }
+        }
+        position = end + 1;
+
+        map(start, end);
+        int from = (int) (start - windowStart);
+        int to = (int) (end - windowStart);
+        return delimited ? parseDelimited(from, to) : parseLine(from, to);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Parses a puzzle with one character per cell
+     *
+     * @param from
+     *            Window index of the first character
+     * @param to
+     *            Window index after the last character
+     * @return Grid
+     * @throws IllegalGridInputException
+     *             thrown if the line is not a valid puzzle
+     */
+    private SudokuGrid parseLine(int from, int to)
+            throws IllegalGridInputException {
+        to = trimEnd(from, to);
+        int length = to - from;
+        int gridSize = (int) Math.round(Math.sqrt(length));
+        int segmentSize = (int) Math.round(Math.sqrt(gridSize));
+        if (gridSize * gridSize != length
+                || segmentSize * segmentSize != gridSize || gridSize > 9) {
+            throw new IllegalGridInputException();
+        }
+
+        SudokuGrid grid = new SudokuGrid(gridSize, segmentSize);
+        for (int i = 0; i < length; i++) {
+            byte b = window.get(from + i);
+            if (b != '.' && b != '0') {
+                int value = b - '0';
+                if (value < 1 || value > gridSize) {
+                    throw new IllegalGridInputException();
+                }
+                place(grid, i % gridSize, i / gridSize, value);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Parses a grid in the cell;cell|cell;cell format; the layout of the
+     * first line determines the size of the grid
+     *
+     * @param from
+     *            Window index of the first character
+     * @param to
+     *            Window index after the last character
+     * @return Grid
+     * @throws IllegalGridInputException
+     *             thrown if the lines are not a valid grid
+     */
+    private SudokuGrid parseDelimited(int from, int to)
+            throws IllegalGridInputException {
+        int firstEnd = from;
+        while (firstEnd < to && window.get(firstEnd) != '\n') {
+            firstEnd++;
+        }
+        firstEnd = trimDelimited(from, firstEnd);
+        int segments = 1;
+        int segmentSize = 1;
+        for (int i = from; i < firstEnd; i++) {
+            byte b = window.get(i);
+            if (b == '|') {
+                segments++;
+            } else if (b == ';' && segments == 1) {
+                segmentSize++;
+            }
+        }
+        int gridSize = segments * segmentSize;
+        SudokuGrid grid = new SudokuGrid(gridSize, segmentSize);
+
+        int row = 0;
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && window.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (row >= gridSize) {
+                throw new IllegalGridInputException();
+            }
+            parseRow(grid, row++, lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+        }
+        if (row != gridSize) {
+            throw new IllegalGridInputException();
+        }
+        return grid;
+    }
+
+    /**
+     * Parses one row of a grid in the cell;cell|cell;cell format
+     *
+     * @param grid
+     *            Grid
+     * @param row
+     *            Row
+     * @param from
+     *            Window index of the first character
+     * @param to
+     *            Window index after the last character
+     * @throws IllegalGridInputException
+     *             thrown if the row does not match the layout of the grid
+     */
+    private void parseRow(SudokuGrid grid, int row, int from, int to)
+            throws IllegalGridInputException {
+        to = trimDelimited(from, to);
+        int maxValue = grid.getSegmentSize() * grid.getSegmentSize();
+        int column = 0;
+        int cellsInSegment = 0;
+        int value = 0;
+        boolean digits = false;
+        boolean trailingSpace = false;
+        for (int i = from; i <= to; i++) {
+            byte b = i < to ? window.get(i) : (byte) '|';
+            if (b == ';' || b == '|') {
+                if (column >= grid.getGridSize()) {
+                    throw new IllegalGridInputException();
+                }
+                if (digits) {
+                    if (value < 1 || value > maxValue) {
+                        throw new IllegalGridInputException();
+                    }
+                    place(grid, column, row, value);
+                }
+                column++;
+                cellsInSegment++;
+                if (b == '|') {
+                    if (cellsInSegment != grid.getSegmentSize()) {
+                        throw new IllegalGridInputException();
+                    }
+                    cellsInSegment = 0;
+                }
+                value = 0;
+                digits = false;
+                trailingSpace = false;
+            } else if (b >= '0' && b <= '9' && !trailingSpace) {
+                value = value * 10 + b - '0';
+                digits = true;
+                if (value > maxValue) {
+                    throw new IllegalGridInputException();
+                }
+            } else if (isWhitespace(b)) {
+                trailingSpace = digits;
+            } else {
+                throw new IllegalGridInputException();
+            }
+        }
+        if (column != grid.getGridSize()) {
+            throw new IllegalGridInputException();
+        }
+    }
+
+    /**
+     * Returns the end of a line of the cell;cell|cell;cell format without
+     * trailing whitespace and segment delimiters, which are ignored as by
+     * SudokuGridBuilder
+     *
+     * @param from
+     *            Window index of the first character
+     * @param to
+     *            Window index after the last character
+     * @return Window index after the last character that is kept
+     */
+    private int trimDelimited(int from, int to) {
+        int end = trimEnd(from, to);
+        while (end > from && window.get(end - 1) == '|') {
+            end = trimEnd(from, end - 1);
+        }
+        return end;
+    }
+
+    /**
+     * Places a clue after checking that it does not occur yet in its row,
+     * column or segment
+     */
+    private static void place(SudokuGrid grid, int column, int row, int value)
+            throws IllegalGridInputException {
+        if (!grid.isPossibleValue(column, row, value)) {
+            throw new IllegalGridInputException();
+        }
+        grid.setValue(column, row, value);
+    }
+
+    /**
+     * Returns the file offset of the line feed ending the line that starts at
+     * the offset, or the size of the file for the last line
+     */
+    private long lineEnd(long offset) throws IOException {
+        long i = offset;
+        while (i < size) {
+            map(i, i + 1);
+            int index = (int) (i - windowStart);
+            int limit = window.limit();
+            while (index < limit && window.get(index) != '\n') {
+                index++;
+            }
+            i = windowStart + index;
+            if (index < limit) {
+                return i;
+            }
+        }
+        return size;
+    }
+
+    private boolean isBlank(long start, long end) throws IOException {
+        if (start >= end) {
+            return true;
+        }
+        map(start, end);
+        int from = (int) (start - windowStart);
+        return trimEnd(from, from + (int) (end - start)) == from;
+    }
+
+    /**
+     * Checks whether the line contains a cell or segment delimiter
+     */
+    private boolean contains(long start, long end) throws IOException {
+        map(start, end);
+        int from = (int) (start - windowStart);
+        int to = from + (int) (end - start);
+        for (int i = from; i < to; i++) {
+            byte b = window.get(i);
+            if (b == ';' || b == '|') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int trimEnd(int from, int to) {
+        while (to > from && isWhitespace(window.get(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Makes sure the bytes from start up to end are mapped
+     *
+     * @param start
+     *            File offset of the first byte
+     * @param end
+     *            File offset after the last byte
+     * @throws IOException
+     *             thrown if the file cannot be mapped
+     */
+    private void map(long start, long end) throws IOException {
+        if (window != null && start >= windowStart
+                && end <= windowStart + window.limit()) {
+            return;
+        }
+        long length = Math.max(Math.min(windowSize, size - start), end
+                - start);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Record at offset " + start
+                    + " is too large");
+        }
+        window = channel.map(MapMode.READ_ONLY, start, length);
+        windowStart = start;
+    }
+}
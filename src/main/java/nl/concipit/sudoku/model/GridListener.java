@@ -0,0 +1,29 @@
+package nl.concipit.sudoku.model;
+
+/**
+ * Observer of the values of a {@link SudokuGrid}. <br/>
+ * <br/>
+ * Listeners are called on the thread that changes the grid, after the change,
+ * once per cell whose value actually changed; setting a cell to the value it
+ * already holds is not reported. Changes made through the {@link SudokuCell}
+ * views of the grid, and undone through its trail, are reported as well.
+ *
+ * @author dcoppens
+ *
+ */
+public interface GridListener {
+
+    /**
+     * Called after the value of a cell changed
+     *
+     * @param column
+     *            Column of the cell
+     * @param row
+     *            Row of the cell
+     * @param oldValue
+     *            Previous value, 0 if the cell was empty
+     * @param newValue
+     *            New value, 0 if the cell was emptied
+     */
+    void valueChanged(int column, int row, int oldValue, int newValue);
+}
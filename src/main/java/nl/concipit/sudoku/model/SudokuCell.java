@@ -1,7 +1,10 @@
 package nl.concipit.sudoku.model;
 
 /**
- * Representation of one Sudoku Cell
+ * Representation of one Sudoku Cell <br/>
+ * <br/>
+ * A cell placed in a {@link SudokuGrid} is a view on the value stored in the
+ * grid; a stand-alone cell holds its own value.
  * 
  * @author dcoppens
  *
@@ -11,6 +14,9 @@ public class SudokuCell {
     private int column;
     private int row;
 
+    /** Grid holding the value of this cell, or null for a stand-alone cell */
+    private SudokuGrid grid;
+
     /**
      * Constructor for a cell with value
      * 
@@ -39,6 +45,21 @@ public class SudokuCell {
         this(column, row, null);
     }
 
+    /**
+     * Constructor for a view on the cell of a grid
+     * 
+     * @param grid
+     *            Grid holding the value
+     * @param column
+     *            Column in the grid
+     * @param row
+     *            row in the grid
+     */
+    SudokuCell(SudokuGrid grid, int column, int row) {
+        this(column, row, null);
+        this.grid = grid;
+    }
+
     /**
      * Returns the value of the cell. <br/>
      * <br/>
@@ -47,6 +68,10 @@ public class SudokuCell {
      * @return Value of the cell, or null if undefined
      */
     public Integer getValue() {
+        if (grid != null) {
+            int gridValue = grid.getValue(column, row);
+            return gridValue == 0 ? null : Integer.valueOf(gridValue);
+        }
         return value;
     }
 
@@ -57,7 +82,11 @@ public class SudokuCell {
      *            The value
      */
     public void setValue(Integer value) {
-        this.value = value;
+        if (grid != null) {
+            grid.setValue(column, row, value == null ? 0 : value);
+        } else {
+            this.value = value;
+        }
     }
 
     public int getColumn() {
@@ -68,11 +97,38 @@ public class SudokuCell {
         return row;
     }
 
+    /**
+     * Turns this cell into a view on the cell of the grid at the specified
+     * index
+     * 
+     * @param grid
+     *            Grid holding the value
+     * @param column
+     *            Column in the grid
+     * @param row
+     *            row in the grid
+     */
+    void attach(SudokuGrid grid, int column, int row) {
+        this.grid = grid;
+        this.column = column;
+        this.row = row;
+        this.value = null;
+    }
+
+    /**
+     * Turns this cell into a stand-alone cell holding its current value
+     */
+    void detach() {
+        this.value = getValue();
+        this.grid = null;
+    }
+
     @Override
     public String toString() {
         String val = " ";
-        if (value != null) {
-            val = value.toString();
+        Integer cellValue = getValue();
+        if (cellValue != null) {
+            val = cellValue.toString();
         }
         return String.format("[%s]", val);
     }
@@ -0,0 +1,364 @@
+package nl.concipit.sudoku.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable unit and peer tables of one grid geometry, computed once and
+ * shared by all grids and solvers of that geometry. <br/>
+ * <br/>
+ * Cells are indexed in row-major order. Units are indexed rows first, then
+ * columns, then segments in row-major order; the cells of all units are
+ * stored in one flat table, as are the peers of all cells, so lookups need
+ * neither division nor allocation.
+ *
+ * @author dcoppens
+ *
+ */
+public final class SudokuGeometry {
+    private static final ConcurrentMap<Long, SudokuGeometry> CACHE =
+            new ConcurrentHashMap<Long, SudokuGeometry>();
+
+    private final int gridSize;
+    private final int segmentSize;
+    private final int segments;
+    private final int cells;
+
+    /** Cells of unit u are unitCells[unitStart[u]] up to unitStart[u + 1] */
+    private final int[] unitStart;
+    private final int[] unitCells;
+
+    /** Whether a unit must hold every value, or every value at most once */
+    private final boolean[] holdsAllValues;
+
+    /** Row, column and segment unit of every cell, three entries per cell */
+    private final int[] cellUnits;
+
+    /** Position of every cell among the cells of its segment */
+    private final int[] segmentPositions;
+
+    /** Peers of cell i are peers[peerStart[i]] up to peers[peerStart[i + 1]] */
+    private final int[] peerStart;
+    private final int[] peers;
+
+    /** Row or column indices of the segments holding each row or column */
+    private final List<List<Integer>> bands;
+
+    /**
+     * Returns the geometry of grids of the specified size
+     *
+     * @param gridSize
+     *            Size of the grid
+     * @param segmentSize
+     *            Size of the segments
+     * @return Shared geometry
+     */
+    public static SudokuGeometry of(int gridSize, int segmentSize) {
+        Long key = ((long) gridSize << 32) | segmentSize;
+        SudokuGeometry geometry = CACHE.get(key);
+        if (geometry == null) {
+            geometry = new SudokuGeometry(gridSize, segmentSize);
+            SudokuGeometry previous = CACHE.putIfAbsent(key, geometry);
+            if (previous != null) {
+                geometry = previous;
+            }
+        }
+        return geometry;
+    }
+
+    private SudokuGeometry(int gridSize, int segmentSize) {
+        if (gridSize < 1 || segmentSize < 1 || gridSize % segmentSize != 0) {
+            throw new IllegalArgumentException();
+        }
+        this.gridSize = gridSize;
+        this.segmentSize = segmentSize;
+        this.segments = gridSize / segmentSize;
+        this.cells = gridSize * gridSize;
+
+        int values = segmentSize * segmentSize;
+        int units = 2 * gridSize + segments * segments;
+        unitStart = new int[units + 1];
+        unitCells = new int[2 * cells + segments * segments * values];
+        holdsAllValues = new boolean[units];
+        int size = 0;
+        for (int unit = 0; unit < units; unit++) {
+            unitStart[unit] = size;
+            if (unit < gridSize) {
+                holdsAllValues[unit] = gridSize == values;
+                for (int column = 0; column < gridSize; column++) {
+                    unitCells[size++] = unit * gridSize + column;
+                }
+            } else if (unit < 2 * gridSize) {
+                holdsAllValues[unit] = gridSize == values;
+                for (int row = 0; row < gridSize; row++) {
+                    unitCells[size++] = row * gridSize + unit - gridSize;
+                }
+            } else {
+                holdsAllValues[unit] = true;
+                int segment = unit - 2 * gridSize;
+                int top = (segment / segments) * segmentSize;
+                int left = (segment % segments) * segmentSize;
+                for (int row = top; row < top + segmentSize; row++) {
+                    for (int column = left; column < left + segmentSize;
+                            column++) {
+                        unitCells[size++] = row * gridSize + column;
+                    }
+                }
+            }
+        }
+        unitStart[units] = size;
+
+        // row, column and segment of every cell, without duplicates
+        cellUnits = new int[3 * cells];
+        segmentPositions = new int[cells];
+        peerStart = new int[cells + 1];
+        int[] buffer = new int[cells * (2 * gridSize + values)];
+        int[] marked = new int[cells];
+        size = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            peerStart[cell] = size;
+            int row = cell / gridSize;
+            int column = cell % gridSize;
+            cellUnits[3 * cell] = row;
+            cellUnits[3 * cell + 1] = gridSize + column;
+            cellUnits[3 * cell + 2] = 2 * gridSize + (row / segmentSize)
+                    * segments + column / segmentSize;
+            segmentPositions[cell] = (row % segmentSize) * segmentSize + column
+                    % segmentSize;
+            marked[cell] = cell + 1;
+            for (int k = 0; k < 3; k++) {
+                int unit = cellUnits[3 * cell + k];
+                for (int i = unitStart[unit]; i < unitStart[unit + 1]; i++) {
+                    int peer = unitCells[i];
+                    if (marked[peer] != cell + 1) {
+                        marked[peer] = cell + 1;
+                        buffer[size++] = peer;
+                    }
+                }
+            }
+        }
+        peerStart[cells] = size;
+        peers = new int[size];
+        System.arraycopy(buffer, 0, peers, 0, size);
+
+        List<List<Integer>> bandList = new ArrayList<List<Integer>>(segments);
+        for (int band = 0; band < segments; band++) {
+            List<Integer> indices = new ArrayList<Integer>(segmentSize);
+            for (int i = 0; i < segmentSize; i++) {
+                indices.add(Integer.valueOf(band * segmentSize + i));
+            }
+            bandList.add(Collections.unmodifiableList(indices));
+        }
+        bands = Collections.unmodifiableList(bandList);
+    }
+
+    /**
+     * Returns the size of the grid
+     *
+     * @return Grid size
+     */
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * Returns the size of the segments
+     *
+     * @return Segment size
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Returns the number of segments per row and column of the grid
+     *
+     * @return Number of segments
+     */
+    public int getNumberOfSegments() {
+        return segments;
+    }
+
+    /**
+     * Returns the number of cells
+     *
+     * @return Number of cells
+     */
+    public int getNumberOfCells() {
+        return cells;
+    }
+
+    /**
+     * Returns the number of units: rows, columns and segments
+     *
+     * @return Number of units
+     */
+    public int getNumberOfUnits() {
+        return holdsAllValues.length;
+    }
+
+    /**
+     * Returns the row of a cell
+     *
+     * @param cell
+     *            Cell
+     * @return Row
+     */
+    public int getRow(int cell) {
+        return cellUnits[3 * cell];
+    }
+
+    /**
+     * Returns the column of a cell
+     *
+     * @param cell
+     *            Cell
+     * @return Column
+     */
+    public int getColumn(int cell) {
+        return cellUnits[3 * cell + 1] - gridSize;
+    }
+
+    /**
+     * Returns the row unit of a cell, which is also its row
+     *
+     * @param cell
+     *            Cell
+     * @return Unit
+     */
+    public int getRowUnit(int cell) {
+        return cellUnits[3 * cell];
+    }
+
+    /**
+     * Returns the column unit of a cell
+     *
+     * @param cell
+     *            Cell
+     * @return Unit
+     */
+    public int getColumnUnit(int cell) {
+        return cellUnits[3 * cell + 1];
+    }
+
+    /**
+     * Returns the segment unit of a cell
+     *
+     * @param cell
+     *            Cell
+     * @return Unit
+     */
+    public int getSegmentUnit(int cell) {
+        return cellUnits[3 * cell + 2];
+    }
+
+    /**
+     * Returns the position of a cell among the cells of its segment unit,
+     * counted from the start of the unit in the unit table; the position of a
+     * cell in its row is its column, and in its column its row
+     *
+     * @param cell
+     *            Cell
+     * @return Position
+     */
+    public int getSegmentPosition(int cell) {
+        return segmentPositions[cell];
+    }
+
+    /**
+     * Returns the start of the cells of a unit in the unit table
+     *
+     * @param unit
+     *            Unit
+     * @return Index of the first cell, see {@link #getUnitCell(int)}
+     */
+    public int getUnitStart(int unit) {
+        return unitStart[unit];
+    }
+
+    /**
+     * Returns the end of the cells of a unit in the unit table
+     *
+     * @param unit
+     *            Unit
+     * @return Index after the last cell, see {@link #getUnitCell(int)}
+     */
+    public int getUnitEnd(int unit) {
+        return unitStart[unit + 1];
+    }
+
+    /**
+     * Returns a cell of the unit table
+     *
+     * @param index
+     *            Index between the start and end of a unit
+     * @return Cell
+     */
+    public int getUnitCell(int index) {
+        return unitCells[index];
+    }
+
+    /**
+     * Checks whether a complete grid holds every value 1 up to and including
+     * segmentSize * segmentSize in the unit, rather than each at most once
+     *
+     * @param unit
+     *            Unit
+     * @return true if the unit holds every value
+     */
+    public boolean holdsAllValues(int unit) {
+        return holdsAllValues[unit];
+    }
+
+    /**
+     * Returns the start of the peers of a cell in the peer table; the peers
+     * of a cell are the other cells of its row, column and segment
+     *
+     * @param cell
+     *            Cell
+     * @return Index of the first peer, see {@link #getPeer(int)}
+     */
+    public int getPeerStart(int cell) {
+        return peerStart[cell];
+    }
+
+    /**
+     * Returns the end of the peers of a cell in the peer table
+     *
+     * @param cell
+     *            Cell
+     * @return Index after the last peer, see {@link #getPeer(int)}
+     */
+    public int getPeerEnd(int cell) {
+        return peerStart[cell + 1];
+    }
+
+    /**
+     * Returns a cell of the peer table
+     *
+     * @param index
+     *            Index between the start and end of the peers of a cell
+     * @return Peer
+     */
+    public int getPeer(int index) {
+        return peers[index];
+    }
+
+    /**
+     * Returns the row (or column) indices of the segments holding the
+     * specified row (or column)
+     *
+     * @param index
+     *            Row or column
+     * @return Unmodifiable list of indices, ordered ascending
+     */
+    public List<Integer> getIndicesInSegment(int index) {
+        if (index < 0 || index >= gridSize) {
+            throw new IllegalArgumentException();
+        }
+        return bands.get(index / segmentSize);
+    }
+}
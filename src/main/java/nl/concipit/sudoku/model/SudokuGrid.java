@@ -1,11 +1,7 @@
 package nl.concipit.sudoku.model;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-
-import nl.concipit.sudoku.util.GridUtils;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -23,11 +19,59 @@ public class SudokuGrid {
     /** Segment size */
     private int segmentSize;
 
-    /** Cells */
-    private SudokuCell[][] cells;
+    /** Unit tables shared by all grids of this geometry */
+    private SudokuGeometry geometry;
+
+    /** Highest value a cell can hold */
+    private int maxValue;
+
+    /**
+     * Cell values in row-major order, 0 for an empty cell; used when all
+     * values fit in a byte
+     */
+    private byte[] byteValues;
+
+    /** Cell values in row-major order, used for larger grids */
+    private short[] shortValues;
 
-    /** Segments */
-    private SudokuSegment[][] segments;
+    /** Cell views handed out by getCell, created on demand */
+    private SudokuCell[] cells;
+
+    /** Segment views handed out by getSegment, created on demand */
+    private SudokuSegment[] segments;
+
+    /** Number of 64 bit words in the occupancy mask of one unit */
+    private int maskWords;
+
+    /**
+     * Occupancy masks of all units (rows, then columns, then segments); bit v
+     * is set if value v is present in the unit
+     */
+    private long[] unitMasks;
+
+    /** Number of cells holding each value per unit, needed for removals */
+    private short[] unitCounts;
+
+    /** Number of distinct values counting towards completeness per unit */
+    private int[] unitDistinct;
+
+    /** Number of segments holding every value */
+    private int completeSegments;
+
+    /** Number of cells holding a value */
+    private int filledCells;
+
+    /**
+     * Undo log of value changes since the first mark: pairs of cell index and
+     * previous value; null if changes are not recorded
+     */
+    private int[] trail;
+
+    /** Number of ints used in the trail */
+    private int trailSize;
+
+    /** Listeners to value changes, null if there are none */
+    private GridListener[] listeners;
 
     /**
      * Constructor
@@ -47,6 +91,31 @@ public class SudokuGrid {
         resetGrid();
     }
 
+    /**
+     * Copy constructor; the copy holds the same values as the specified grid
+     * but shares no state with it, does not record changes and has no
+     * listeners
+     * 
+     * @param grid
+     *            Grid to copy
+     */
+    public SudokuGrid(SudokuGrid grid) {
+        this.gridSize = grid.gridSize;
+        this.segmentSize = grid.segmentSize;
+        this.geometry = grid.geometry;
+        this.maxValue = grid.maxValue;
+        this.maskWords = grid.maskWords;
+        this.byteValues = grid.byteValues == null ? null : grid.byteValues
+                .clone();
+        this.shortValues = grid.shortValues == null ? null : grid.shortValues
+                .clone();
+        this.unitMasks = grid.unitMasks.clone();
+        this.unitCounts = grid.unitCounts.clone();
+        this.unitDistinct = grid.unitDistinct.clone();
+        this.completeSegments = grid.completeSegments;
+        this.filledCells = grid.filledCells;
+    }
+
     /**
      * Get cell at index i,j of the grid
      * 
@@ -59,7 +128,15 @@ public class SudokuGrid {
     public SudokuCell getCell(int i, int j) {
         SudokuCell result = null;
         if (i >= 0 && i < gridSize && j >= 0 && j < gridSize) {
-            result = cells[i][j];
+            if (cells == null) {
+                cells = new SudokuCell[gridSize * gridSize];
+            }
+            int index = j * gridSize + i;
+            result = cells[index];
+            if (result == null) {
+                result = new SudokuCell(this, i, j);
+                cells[index] = result;
+            }
         }
         return result;
     }
@@ -75,9 +152,179 @@ public class SudokuGrid {
      *            cell to set
      */
     public void setCell(int i, int j, SudokuCell cell) {
-        cells[i][j] = cell;
+        if (cells == null) {
+            cells = new SudokuCell[gridSize * gridSize];
+        }
+        int index = index(i, j);
+        SudokuCell previous = cells[index];
+        if (previous != null && previous != cell) {
+            // the previous cell keeps its value, but no longer views the grid
+            previous.detach();
+        }
 
-        getSegment(i, j).setCell(i % segmentSize, j % segmentSize, cell);
+        Integer value = cell == null ? null : cell.getValue();
+        cells[index] = cell;
+        setValue(i, j, value == null ? 0 : value);
+        if (cell != null) {
+            cell.attach(this, i, j);
+        }
+    }
+
+    /**
+     * Returns the value of the cell at index i,j of the grid
+     * 
+     * @param i
+     *            column
+     * @param j
+     *            row
+     * @return Value of the cell, or 0 if the cell is empty
+     * @throws IllegalArgumentException
+     *             thrown if the cell lies outside the grid
+     */
+    public int getValue(int i, int j) {
+        int index = index(i, j);
+        return byteValues != null ? byteValues[index] : shortValues[index];
+    }
+
+    /**
+     * Sets the value of the cell at index i,j of the grid
+     * 
+     * @param i
+     *            column
+     * @param j
+     *            row
+     * @param value
+     *            Value of the cell, or 0 to empty the cell
+     * @throws IllegalArgumentException
+     *             thrown if the cell lies outside the grid or the value is
+     *             not between 0 and segmentSize * segmentSize
+     */
+    public void setValue(int i, int j, int value) {
+        if (value < 0 || value > maxValue) {
+            throw new IllegalArgumentException("Value " + value
+                    + " is not between 0 and " + maxValue);
+        }
+        int index = index(i, j);
+        int oldValue = byteValues != null ? byteValues[index]
+                : shortValues[index];
+        if (oldValue != value) {
+            if (trail != null) {
+                record(index, oldValue);
+            }
+            if (byteValues != null) {
+                byteValues[index] = (byte) value;
+            } else {
+                shortValues[index] = (short) value;
+            }
+            if (oldValue != 0) {
+                removeValue(index, oldValue);
+                filledCells--;
+            }
+            if (value != 0) {
+                addValue(index, value);
+                filledCells++;
+            }
+            if (listeners != null) {
+                for (GridListener listener : listeners) {
+                    listener.valueChanged(i, j, oldValue, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers a listener to the value changes of the cells
+     * 
+     * @param listener
+     *            Listener
+     */
+    public void addListener(GridListener listener) {
+        int count = listeners == null ? 0 : listeners.length;
+        GridListener[] extended = new GridListener[count + 1];
+        if (listeners != null) {
+            System.arraycopy(listeners, 0, extended, 0, count);
+        }
+        extended[count] = listener;
+        listeners = extended;
+    }
+
+    /**
+     * Unregisters a listener; does nothing if it is not registered
+     * 
+     * @param listener
+     *            Listener
+     */
+    public void removeListener(GridListener listener) {
+        if (listeners == null) {
+            return;
+        }
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                GridListener[] reduced = new GridListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, reduced, 0, i);
+                System.arraycopy(listeners, i + 1, reduced, i,
+                        reduced.length - i);
+                listeners = reduced.length == 0 ? null : reduced;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Marks the current state of the grid; from the first mark on, every value
+     * change is recorded until {@link #clearTrail()}
+     * 
+     * @return Mark to pass to {@link #undo(int)}
+     */
+    public int mark() {
+        if (trail == null) {
+            trail = new int[2 * Math.max(16, gridSize * gridSize)];
+        }
+        return trailSize;
+    }
+
+    /**
+     * Restores the values at the mark, undoing the changes made since in
+     * reverse order; takes time proportional to the number of changes
+     * 
+     * @param mark
+     *            Mark returned by {@link #mark()}
+     */
+    public void undo(int mark) {
+        if (trail == null || mark < 0 || mark > trailSize) {
+            throw new IllegalArgumentException("Mark " + mark
+                    + " is not between 0 and " + trailSize);
+        }
+        int[] log = trail;
+        // the undo itself must not be recorded
+        trail = null;
+        try {
+            while (trailSize > mark) {
+                int value = log[--trailSize];
+                int index = log[--trailSize];
+                setValue(index % gridSize, index / gridSize, value);
+            }
+        } finally {
+            trail = log;
+        }
+    }
+
+    /**
+     * Checks whether value changes are recorded
+     * 
+     * @return true if the grid was marked since the trail was last cleared
+     */
+    public boolean isTrailing() {
+        return trail != null;
+    }
+
+    /**
+     * Stops recording value changes and discards the recorded changes; all
+     * marks become invalid
+     */
+    public void clearTrail() {
+        trail = null;
+        trailSize = 0;
     }
 
     /**
@@ -89,6 +336,16 @@ public class SudokuGrid {
         return gridSize;
     }
 
+    /**
+     * Returns the geometry of the grid, shared with all grids of the same size
+     * and segment size
+     * 
+     * @return Geometry
+     */
+    public SudokuGeometry getGeometry() {
+        return geometry;
+    }
+
     /**
      * Returns Sudoku Segment containing the cell indicated by the specified
      * index.
@@ -104,7 +361,16 @@ public class SudokuGrid {
         int segmentX = i / segmentSize;
         int segmentY = j / segmentSize;
 
-        return segments[segmentX][segmentY];
+        if (segments == null) {
+            segments = new SudokuSegment[getNumberOfSegments()
+                    * getNumberOfSegments()];
+        }
+        int index = segmentX * getNumberOfSegments() + segmentY;
+        if (segments[index] == null) {
+            segments[index] = new SudokuSegment(this, segmentX * segmentSize,
+                    segmentY * segmentSize);
+        }
+        return segments[index];
     }
 
     /**
@@ -125,13 +391,7 @@ public class SudokuGrid {
      * @return true if the row is complete, false otherwise
      */
     public boolean isCompleteRow(int row) {
-        Map<Integer, Integer> valueMap = new HashMap<Integer, Integer>();
-        for (int i = 0; i < gridSize; i++) {
-            if (cells[i][row].getValue() != null) {
-                valueMap.put(cells[i][row].getValue(), i);
-            }
-        }
-        return valueMap.size() == gridSize;
+        return unitDistinct[rowUnit(row)] == gridSize;
     }
 
     /**
@@ -144,13 +404,7 @@ public class SudokuGrid {
      * @return true if the column is complete, false otherwise
      */
     public boolean isCompleteColumn(int column) {
-        Map<Integer, Integer> valueMap = new HashMap<Integer, Integer>();
-        for (int i = 0; i < gridSize; i++) {
-            if (cells[column][i].getValue() != null) {
-                valueMap.put(cells[column][i].getValue(), i);
-            }
-        }
-        return valueMap.size() == gridSize;
+        return unitDistinct[columnUnit(column)] == gridSize;
     }
 
     /**
@@ -161,16 +415,7 @@ public class SudokuGrid {
      * @return List of numbers missing in the row (ordered ascending)
      */
     public List<Integer> getMissingInRow(int row) {
-        List<Integer> result = GridUtils.getValueList(gridSize);
-
-        // remove set values
-        for (int i = 0; i < gridSize; i++) {
-            SudokuCell cell = cells[i][row];
-            if (cell != null && cell.getValue() != null) {
-                result.remove(cell.getValue());
-            }
-        }
-        return result;
+        return getValues(rowUnit(row), gridSize, false);
     }
 
     /**
@@ -181,9 +426,7 @@ public class SudokuGrid {
      * @return List of values in the row
      */
     public List<Integer> getValuesInRow(int row) {
-        List<Integer> missing = getMissingInRow(row);
-
-        return invertList(missing);
+        return getValues(rowUnit(row), gridSize, true);
     }
 
     /**
@@ -194,9 +437,7 @@ public class SudokuGrid {
      * @return List of values in the column
      */
     public List<Integer> getValuesInColumn(int column) {
-        List<Integer> missing = getMissingInColumn(column);
-
-        return invertList(missing);
+        return getValues(columnUnit(column), gridSize, true);
     }
 
     /**
@@ -207,16 +448,7 @@ public class SudokuGrid {
      * @return List of numbers missing in the column (ordered ascending)
      */
     public List<Integer> getMissingInColumn(int column) {
-        List<Integer> result = GridUtils.getValueList(gridSize);
-
-        // remove set values
-        for (int i = 0; i < gridSize; i++) {
-            SudokuCell cell = cells[column][i];
-            if (cell != null && cell.getValue() != null) {
-                result.remove(cell.getValue());
-            }
-        }
-        return result;
+        return getValues(columnUnit(column), gridSize, false);
     }
 
     /**
@@ -230,9 +462,53 @@ public class SudokuGrid {
      * @return List of missing numbers ordered ascending
      */
     public List<Integer> getMissingInSegment(int column, int row) {
-        // get the segment
-        SudokuSegment segment = getSegment(column, row);
-        return segment.getMissingValues();
+        return getValues(segmentUnit(column, row), segmentSize * segmentSize,
+                false);
+    }
+
+    /**
+     * Checks whether the value can be placed in the cell with the specified
+     * coordinates, i.e. the value is not yet present in the row and column of
+     * the cell and is missing in its segment.
+     * 
+     * @param column
+     *            column
+     * @param row
+     *            row
+     * @param value
+     *            value to check
+     * @return true if the value is still possible, false otherwise
+     */
+    public boolean isPossibleValue(int column, int row, int value) {
+        return value > 0 && value <= segmentSize * segmentSize
+                && !isPresent(rowUnit(row), value)
+                && !isPresent(columnUnit(column), value)
+                && !isPresent(segmentUnit(column, row), value);
+    }
+
+    /**
+     * Counts the values that can still be placed in the cell with the
+     * specified coordinates (see {@link #isPossibleValue(int, int, int)})
+     * 
+     * @param column
+     *            column
+     * @param row
+     *            row
+     * @return Number of possible values
+     */
+    public int countPossibleValues(int column, int row) {
+        int limit = segmentSize * segmentSize;
+        int rowOffset = rowUnit(row) * maskWords;
+        int columnOffset = columnUnit(column) * maskWords;
+        int segmentOffset = segmentUnit(column, row) * maskWords;
+        int count = 0;
+        for (int word = 0; word <= (limit >>> 6); word++) {
+            long used = unitMasks[rowOffset + word]
+                    | unitMasks[columnOffset + word]
+                    | unitMasks[segmentOffset + word];
+            count += Long.bitCount(~used & valueRange(word, limit));
+        }
+        return count;
     }
 
     /**
@@ -241,7 +517,7 @@ public class SudokuGrid {
      * @return Number of segments
      */
     public int getNumberOfSegments() {
-        return gridSize / segmentSize;
+        return geometry.getNumberOfSegments();
     }
 
     /**
@@ -250,10 +526,11 @@ public class SudokuGrid {
      * 
      * @param row
      *            Row
-     * @return List of row indices
+     * @return Unmodifiable list of row indices, shared by all grids of this
+     *         geometry
      */
     public List<Integer> getRowsInSegment(int row) {
-        return getIndices(row);
+        return geometry.getIndicesInSegment(row);
     }
 
     /**
@@ -262,10 +539,11 @@ public class SudokuGrid {
      *
      * @param column
      *            Column
-     * @return List of column indices
+     * @return Unmodifiable list of column indices, shared by all grids of
+     *         this geometry
      */
     public List<Integer> getColumnsInSegment(int column) {
-        return getIndices(column);
+        return geometry.getIndicesInSegment(column);
     }
 
     /**
@@ -274,13 +552,17 @@ public class SudokuGrid {
      * @return true if grid is complete, false otherwise
      */
     public boolean isComplete() {
-        boolean isComplete = true;
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                isComplete = isComplete && getMissingInSegment(i,j).isEmpty();
-            }
-        }
-        return isComplete;
+        return completeSegments == getNumberOfSegments()
+                * getNumberOfSegments();
+    }
+
+    /**
+     * Returns the number of cells holding a value
+     * 
+     * @return Number of filled cells
+     */
+    public int getNumberOfFilledCells() {
+        return filledCells;
     }
 
     @Override
@@ -336,8 +618,9 @@ public class SudokuGrid {
      * @param column Index of cell
      */
     private void cellToString(StringBuilder builder, int row, int column) {
-        builder.append(cells[column][row].toString()
-                .replaceAll("\\[", " ").replaceAll("\\]", " "));
+        int value = getValue(column, row);
+        builder.append(' ').append(value == 0 ? " " : String.valueOf(value))
+                .append(' ');
 
         // segment or column marker
         int nextCol = column + 1;
@@ -350,74 +633,174 @@ public class SudokuGrid {
     }
 
     /**
-     * Returns a list with the (row or column) indices that are equal to or next
-     * to the specified index, but within the same segment. <br/>
-     * <br/>
-     * Since Sudoku grid is square, this implementation works for both rows as
-     * well as columns.
+     * Registers the value in the masks of the row, column and segment of the
+     * cell
+     * 
+     * @param index
+     *            row-major index of the cell
+     * @param value
+     *            value
+     */
+    private void addValue(int index, int value) {
+        addToUnit(geometry.getRowUnit(index), value);
+        addToUnit(geometry.getColumnUnit(index), value);
+        addToUnit(geometry.getSegmentUnit(index), value);
+    }
+
+    /**
+     * Unregisters the value from the masks of the row, column and segment of
+     * the cell
      * 
      * @param index
-     *            Index
-     * @return List of indices adjacent to the specified index within the same
-     *         segment
-     */
-    private List<Integer> getIndices(int index) {
-        // boundary check
-        if (index < 0 || index >= gridSize) {
-            throw new IllegalArgumentException();
+     *            row-major index of the cell
+     * @param value
+     *            value
+     */
+    private void removeValue(int index, int value) {
+        removeFromUnit(geometry.getRowUnit(index), value);
+        removeFromUnit(geometry.getColumnUnit(index), value);
+        removeFromUnit(geometry.getSegmentUnit(index), value);
+    }
+
+    private void record(int index, int oldValue) {
+        if (trailSize == trail.length) {
+            int[] grown = new int[2 * trail.length];
+            System.arraycopy(trail, 0, grown, 0, trailSize);
+            trail = grown;
         }
+        trail[trailSize++] = index;
+        trail[trailSize++] = oldValue;
+    }
 
-        // create result list for the indices
-        List<Integer> result = new ArrayList<Integer>(segmentSize - 1);
+    private void addToUnit(int unit, int value) {
+        if (unitCounts[unit * (maxValue + 1) + value]++ == 0) {
+            unitMasks[unit * maskWords + (value >>> 6)] |= 1L << value;
+            if (isCounted(unit, value)
+                    && ++unitDistinct[unit] == segmentSize * segmentSize
+                    && unit >= 2 * gridSize) {
+                completeSegments++;
+            }
+        }
+    }
 
-        // fill the result list
-        int startRow = segmentSize * (index / segmentSize);
-        for (int i = startRow; i < startRow + segmentSize; i++) {
-            result.add(new Integer(i));
+    private void removeFromUnit(int unit, int value) {
+        if (--unitCounts[unit * (maxValue + 1) + value] == 0) {
+            unitMasks[unit * maskWords + (value >>> 6)] &= ~(1L << value);
+            if (isCounted(unit, value)
+                    && unitDistinct[unit]-- == segmentSize * segmentSize
+                    && unit >= 2 * gridSize) {
+                completeSegments--;
+            }
         }
-        return result;
     }
 
     /**
-     * Creates and returns a list containing all integers 0 < i <= gridSize that
-     * are NOT contained in the supplied list
+     * Returns the bits of values 1 up to and including limit that fall in the
+     * specified mask word
      * 
-     * @param valueList
-     *            List of values
-     * @return Inverted list of values
+     * @param word
+     *            index of the mask word
+     * @param limit
+     *            highest value
+     * @return mask of the values in the word
      */
-    private List<Integer> invertList(List<Integer> valueList) {
-        List<Integer> result = new ArrayList<Integer>();
+    private static long valueRange(int word, int limit) {
+        int high = limit - word * 64;
+        long range = high >= 63 ? -1L : (1L << (high + 1)) - 1;
+        return word == 0 ? range & ~1L : range;
+    }
+
+    /**
+     * Checks whether the value counts towards the completeness of the unit;
+     * segments are only complete with the values 1 up to and including
+     * segmentSize * segmentSize.
+     * 
+     * @param unit
+     *            unit index
+     * @param value
+     *            value
+     * @return true if the value counts, false otherwise
+     */
+    private boolean isCounted(int unit, int value) {
+        return unit < 2 * gridSize || value <= segmentSize * segmentSize;
+    }
 
-        for (int i = 1; i <= gridSize; i++) {
-            if (!valueList.contains(i)) {
-                result.add(new Integer(i));
+    private boolean isPresent(int unit, int value) {
+        return value <= maxValue
+                && (unitMasks[unit * maskWords + (value >>> 6)] & (1L << value)) != 0;
+    }
+
+    /**
+     * Collects the values 1 up to and including limit that are present (or
+     * missing) in the specified unit
+     * 
+     * @param unit
+     *            unit index
+     * @param limit
+     *            highest value to consider
+     * @param present
+     *            true to collect present values, false to collect missing
+     *            values
+     * @return Ordered list of values
+     */
+    private List<Integer> getValues(int unit, int limit, boolean present) {
+        List<Integer> result = new ArrayList<Integer>(limit);
+        for (int value = 1; value <= limit; value++) {
+            if (isPresent(unit, value) == present) {
+                result.add(Integer.valueOf(value));
             }
         }
-
         return result;
     }
 
     /**
-     * Resets the grid to the specified dimensions filled with empty cells.
+     * Returns the row-major index of the cell at index i,j of the grid
      */
-    private void resetGrid() {
-        // init cells
-        this.cells = new SudokuCell[gridSize][gridSize];
-
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                this.cells[i][j] = new SudokuCell(i,j);
-            }
+    private int index(int i, int j) {
+        if (i < 0 || i >= gridSize || j < 0 || j >= gridSize) {
+            throw new IllegalArgumentException("Cell " + i + "," + j
+                    + " lies outside the " + gridSize + "x" + gridSize
+                    + " grid");
         }
+        return j * gridSize + i;
+    }
 
-        // init segments
-        int noSegments = gridSize / segmentSize;
-        this.segments = new SudokuSegment[noSegments][noSegments];
-        for (int i = 0; i < noSegments; i++) {
-            for (int j = 0; j < noSegments; j++) {
-                this.segments[i][j] = new SudokuSegment(segmentSize);
-            }
+    private int rowUnit(int row) {
+        return row;
+    }
+
+    private int columnUnit(int column) {
+        return gridSize + column;
+    }
+
+    private int segmentUnit(int column, int row) {
+        return geometry.getSegmentUnit(row * gridSize + column);
+    }
+
+    /**
+     * Resets the grid to the specified dimensions filled with empty cells.
+     */
+    private void resetGrid() {
+        // init occupancy masks for rows, columns and segments
+        this.geometry = SudokuGeometry.of(gridSize, segmentSize);
+        int noUnits = geometry.getNumberOfUnits();
+        this.maxValue = Math.max(gridSize, segmentSize * segmentSize);
+        this.maskWords = (maxValue >>> 6) + 1;
+        this.unitMasks = new long[noUnits * maskWords];
+        this.unitCounts = new short[noUnits * (maxValue + 1)];
+        this.unitDistinct = new int[noUnits];
+        this.completeSegments = 0;
+        this.filledCells = 0;
+
+        // init cell values, all empty
+        if (maxValue <= Byte.MAX_VALUE) {
+            this.byteValues = new byte[gridSize * gridSize];
+        } else {
+            this.shortValues = new short[gridSize * gridSize];
         }
+        this.cells = null;
+        this.segments = null;
+        this.trail = null;
+        this.trailSize = 0;
     }
 }
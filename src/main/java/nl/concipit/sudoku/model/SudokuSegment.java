@@ -4,11 +4,29 @@ import java.util.List;
 
 import nl.concipit.sudoku.util.GridUtils;
 
+/**
+ * Representation of one Sudoku Segment <br/>
+ * <br/>
+ * A segment of a {@link SudokuGrid} is a view on the cells stored in the grid;
+ * a stand-alone segment holds its own cells.
+ * 
+ * @author dcoppens
+ *
+ */
 public class SudokuSegment {
 
     private int size;
     private SudokuCell[][] cells;
 
+    /** Grid holding the cells, or null for a stand-alone segment */
+    private SudokuGrid grid;
+
+    /** Column of the top left cell of this segment in the grid */
+    private int column;
+
+    /** Row of the top left cell of this segment in the grid */
+    private int row;
+
     /**
      * Creates a sudoku segment with the specified dimensions:
      * 
@@ -26,6 +44,24 @@ public class SudokuSegment {
         this.cells = new SudokuCell[size][size];
     }
 
+    /**
+     * Creates a view on a segment of the specified grid; cells and missing
+     * values are served by the grid.
+     * 
+     * @param grid
+     *            Grid owning the segment
+     * @param column
+     *            Column of the top left cell of the segment in the grid
+     * @param row
+     *            Row of the top left cell of the segment in the grid
+     */
+    SudokuSegment(SudokuGrid grid, int column, int row) {
+        this.size = grid.getSegmentSize();
+        this.grid = grid;
+        this.column = column;
+        this.row = row;
+    }
+
     /**
      * Return size of the segment
      * 
@@ -41,6 +77,9 @@ public class SudokuSegment {
      * @return List ordered ascending
      */
     public List<Integer> getMissingValues() {
+        if (grid != null) {
+            return grid.getMissingInSegment(column, row);
+        }
         List<Integer> values = GridUtils.getValueList(size * size);
         for (int row = 0; row < size; row++) {
             for (int col = 0; col < size; col++) {
@@ -67,7 +106,11 @@ public class SudokuSegment {
         if (column < 0 || column >= size || row < 0 || row >= size) {
             throw new IllegalArgumentException();
         }
-        cells[column][row] = cell;
+        if (grid != null) {
+            grid.setCell(this.column + column, this.row + row, cell);
+        } else {
+            cells[column][row] = cell;
+        }
     }
 
     /**
@@ -82,7 +125,11 @@ public class SudokuSegment {
     public SudokuCell getCell(int column, int row) {
         SudokuCell result = null;
         if (column >= 0 && column < size && row >= 0 && row < size) {
-            result = cells[column][row];
+            if (grid != null) {
+                result = grid.getCell(this.column + column, this.row + row);
+            } else {
+                result = cells[column][row];
+            }
         }
         return result;
     }
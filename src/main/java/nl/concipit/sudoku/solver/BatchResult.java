@@ -0,0 +1,144 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Outcome of solving one puzzle of a batch.
+ *
+ * @author dcoppens
+ *
+ */
+public class BatchResult {
+    private final long index;
+    private final SudokuGrid grid;
+    private final SolveOutcome outcome;
+    private final Throwable error;
+    private final SolveStatistics statistics;
+
+    /**
+     * Constructor for a puzzle that was parsed and handed to the solver
+     *
+     * @param index
+     *            Position of the puzzle in the input
+     * @param grid
+     *            Grid, solved if the solver succeeded
+     * @param solved
+     *            Whether the solver succeeded
+     */
+    public BatchResult(long index, SudokuGrid grid, boolean solved) {
+        this(index, grid, solved, null);
+    }
+
+    /**
+     * Constructor for a puzzle that was parsed and handed to the solver
+     *
+     * @param index
+     *            Position of the puzzle in the input
+     * @param grid
+     *            Grid, solved if the solver succeeded
+     * @param solved
+     *            Whether the solver succeeded
+     * @param statistics
+     *            Statistics of the solve, null if they were not recorded
+     */
+    public BatchResult(long index, SudokuGrid grid, boolean solved,
+            SolveStatistics statistics) {
+        this(index, grid, solved ? SolveOutcome.SOLVED
+                : SolveOutcome.UNSOLVABLE, statistics);
+    }
+
+    /**
+     * Constructor for a puzzle that was parsed and handed to the solver
+     *
+     * @param index
+     *            Position of the puzzle in the input
+     * @param grid
+     *            Grid, solved if the solver succeeded
+     * @param outcome
+     *            Outcome of the solve
+     * @param statistics
+     *            Statistics of the solve, null if they were not recorded
+     */
+    public BatchResult(long index, SudokuGrid grid, SolveOutcome outcome,
+            SolveStatistics statistics) {
+        this.index = index;
+        this.grid = grid;
+        this.outcome = outcome;
+        this.error = null;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Constructor for a puzzle that could not be parsed or solved
+     *
+     * @param index
+     *            Position of the puzzle in the input
+     * @param error
+     *            Cause of the failure, an exception or a StackOverflowError
+     *            of the solver
+     */
+    public BatchResult(long index, Throwable error) {
+        this.index = index;
+        this.grid = null;
+        this.outcome = null;
+        this.error = error;
+        this.statistics = null;
+    }
+
+    /**
+     * Returns the position of the puzzle in the input, starting at 0
+     *
+     * @return Index
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the grid of the puzzle
+     *
+     * @return Grid, or null if the puzzle could not be parsed
+     */
+    public SudokuGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Returns whether the puzzle was solved
+     *
+     * @return true if solved, false otherwise
+     */
+    public boolean isSolved() {
+        return outcome == SolveOutcome.SOLVED;
+    }
+
+    /**
+     * Returns the outcome of the solve, which tells a puzzle that timed out
+     * apart from one without solution
+     *
+     * @return Outcome, or null if the puzzle could not be parsed or solved
+     */
+    public SolveOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Returns the cause of the failure of this puzzle
+     *
+     * @return Exception or error, or null if the puzzle was handed to the
+     *         solver and the solve returned an outcome
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Returns the statistics of the solve
+     *
+     * @return Statistics, or null if the batch has no listener or the puzzle
+     *         was not handed to the solver
+     */
+    public SolveStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,339 @@
+package nl.concipit.sudoku.solver;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Solves a sequence of puzzles concurrently. <br/>
+ * <br/>
+ * Every puzzle is parsed with {@link SudokuGridBuilder} and solved by a fresh
+ * {@link Solver} on the supplied executor. Inputs are read lazily: no more
+ * than maxInFlight puzzles are parsed, solving or waiting to be consumed at
+ * any time. A puzzle that cannot be parsed or solved yields a
+ * {@link BatchResult} holding the exception, or the StackOverflowError of a
+ * solver recursing too deep; the remaining puzzles are not affected. Other
+ * errors, such as an OutOfMemoryError, are rethrown by the results.
+ * <br/>
+ * With a timeout, every solve gets a {@link Deadline} that starts once its
+ * puzzle is parsed, so an adversarial puzzle holds an executor thread, and
+ * the ordered results after it, no longer than the timeout. <br/>
+ * If a listener is specified, it is attached to every solver and every result
+ * holds the statistics of its solve.
+ *
+ * @author dcoppens
+ *
+ */
+public class BatchSolver {
+    private final Supplier<? extends Solver> solverFactory;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final SolverListener listener;
+
+    /** Timeout of every solve in nanoseconds, 0 for none */
+    private final long timeout;
+
+    /**
+     * Constructor
+     *
+     * @param solverFactory
+     *            Creates a solver for every puzzle
+     * @param executor
+     *            Executor solving the puzzles
+     * @param maxInFlight
+     *            Maximum number of puzzles submitted but not yet consumed
+     */
+    public BatchSolver(Supplier<? extends Solver> solverFactory,
+            ExecutorService executor, int maxInFlight) {
+        this(solverFactory, executor, maxInFlight, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param solverFactory
+     *            Creates a solver for every puzzle
+     * @param executor
+     *            Executor solving the puzzles
+     * @param maxInFlight
+     *            Maximum number of puzzles submitted but not yet consumed
+     * @param listener
+     *            Listener attached to every solver, for instance
+     *            {@link SolverMetrics}; called from the executor threads
+     */
+    public BatchSolver(Supplier<? extends Solver> solverFactory,
+            ExecutorService executor, int maxInFlight,
+            SolverListener listener) {
+        this(solverFactory, executor, maxInFlight, listener, 0,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param solverFactory
+     *            Creates a solver for every puzzle
+     * @param executor
+     *            Executor solving the puzzles
+     * @param maxInFlight
+     *            Maximum number of puzzles submitted but not yet consumed
+     * @param listener
+     *            Listener attached to every solver, may be null; called from
+     *            the executor threads
+     * @param timeout
+     *            Timeout of every solve, 0 for none
+     * @param unit
+     *            Unit of the timeout
+     */
+    public BatchSolver(Supplier<? extends Solver> solverFactory,
+            ExecutorService executor, int maxInFlight,
+            SolverListener listener, long timeout, TimeUnit unit) {
+        if (maxInFlight < 1 || timeout < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.solverFactory = solverFactory;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.listener = listener;
+        this.timeout = unit.toNanos(timeout);
+    }
+
+    /**
+     * Solves the puzzles read from the input streams; each stream is closed
+     * once it has been parsed.
+     *
+     * @param inputs
+     *            Puzzle inputs
+     * @param ordered
+     *            true to return results in input order, false to return them
+     *            as soon as they are available
+     * @return Iterator over the results, one per input
+     */
+    public Iterator<BatchResult> solve(Iterator<? extends InputStream> inputs,
+            boolean ordered) {
+        if (ordered) {
+            return new OrderedResults(inputs);
+        }
+        return new UnorderedResults(inputs);
+    }
+
+    /**
+     * Solves the puzzles read from the input streams; each stream is closed
+     * once it has been parsed.
+     *
+     * @param inputs
+     *            Puzzle inputs
+     * @param ordered
+     *            true to return results in input order, false to return them
+     *            as soon as they are available
+     * @return Sequential stream of the results, one per input
+     */
+    public Stream<BatchResult> solve(Stream<? extends InputStream> inputs,
+            boolean ordered) {
+        Iterator<BatchResult> results = solve(inputs.iterator(), ordered);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                results, ordered ? Spliterator.ORDERED : 0), false).onClose(
+                inputs::close);
+    }
+
+    /**
+     * Creates the task parsing and solving one puzzle
+     *
+     * @param index
+     *            Position of the puzzle in the input
+     * @param input
+     *            Puzzle input
+     * @return Task
+     */
+    private Callable<BatchResult> createTask(final long index,
+            final InputStream input) {
+        return () -> {
+            try {
+                SudokuGrid grid = SudokuGridBuilder.buildGrid(input);
+                Solver solver = solverFactory.get();
+                Deadline deadline = timeout > 0 ? Deadline.after(timeout,
+                        TimeUnit.NANOSECONDS) : Deadline.NONE;
+                if (listener == null) {
+                    return new BatchResult(index, grid, solver.solve(grid,
+                            deadline), null);
+                }
+                StatisticsListener statistics = new StatisticsListener();
+                solver.setListener(statistics);
+                SolveOutcome outcome = solver.solve(grid, deadline);
+                return new BatchResult(index, grid, outcome,
+                        statistics.statistics);
+            } catch (Exception | StackOverflowError e) {
+                // a failure of one puzzle must not abort the whole batch;
+                // other errors, such as OutOfMemoryError, leave the JVM broken
+                return new BatchResult(index, e);
+            } finally {
+                IOUtils.closeQuietly(input);
+            }
+        };
+    }
+
+    /**
+     * Waits for the result of the future
+     *
+     * @param future
+     *            Future
+     * @return Result
+     * @throws Error
+     *             thrown if solving the puzzle failed with an error other
+     *             than a StackOverflowError
+     */
+    private static BatchResult await(Future<BatchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Passes all events on to the listener of the batch and keeps the
+     * statistics of the solve
+     */
+    private final class StatisticsListener implements SolverListener {
+        private SolveStatistics statistics;
+
+        @Override
+        public void solveStarted(SudokuGrid grid) {
+            listener.solveStarted(grid);
+        }
+
+        @Override
+        public void nodeVisited(int depth) {
+            listener.nodeVisited(depth);
+        }
+
+        @Override
+        public void valuePropagated(int depth) {
+            listener.valuePropagated(depth);
+        }
+
+        @Override
+        public void backtracked(int depth) {
+            listener.backtracked(depth);
+        }
+
+        @Override
+        public void valuePlaced(int cell, int value) {
+            listener.valuePlaced(cell, value);
+        }
+
+        @Override
+        public void valueRemoved(int cell) {
+            listener.valueRemoved(cell);
+        }
+
+        @Override
+        public void solveFinished(SolveStatistics statistics) {
+            this.statistics = statistics;
+            listener.solveFinished(statistics);
+        }
+    }
+
+    /**
+     * Results in input order
+     */
+    private final class OrderedResults implements Iterator<BatchResult> {
+        private final Iterator<? extends InputStream> inputs;
+        private final Queue<Future<BatchResult>> pending;
+        private long submitted;
+
+        OrderedResults(Iterator<? extends InputStream> inputs) {
+            this.inputs = inputs;
+            this.pending = new ArrayDeque<Future<BatchResult>>(maxInFlight);
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public BatchResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return await(pending.remove());
+        }
+
+        private void fill() {
+            while (pending.size() < maxInFlight && inputs.hasNext()) {
+                pending.add(executor.submit(createTask(submitted++,
+                        inputs.next())));
+            }
+        }
+    }
+
+    /**
+     * Results in order of completion
+     */
+    private final class UnorderedResults implements Iterator<BatchResult> {
+        private final Iterator<? extends InputStream> inputs;
+        private final CompletionService<BatchResult> completion;
+        private long submitted;
+        private long consumed;
+
+        UnorderedResults(Iterator<? extends InputStream> inputs) {
+            this.inputs = inputs;
+            this.completion = new ExecutorCompletionService<BatchResult>(
+                    executor);
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return consumed < submitted;
+        }
+
+        @Override
+        public BatchResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                Future<BatchResult> future = completion.take();
+                consumed++;
+                return await(future);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void fill() {
+            while (submitted - consumed < maxInFlight && inputs.hasNext()) {
+                completion.submit(createTask(submitted++, inputs.next()));
+            }
+        }
+    }
+}
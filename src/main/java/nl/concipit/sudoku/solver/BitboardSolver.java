@@ -0,0 +1,697 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.Arrays;
+
+import nl.concipit.sudoku.model.SudokuGeometry;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Constraint propagation solver on bitboards, intended for large grids. <br/>
+ * <br/>
+ * The candidates of a cell are a bit set packed in longs: value v is bit v - 1,
+ * so up to 64 values fit in a single long. Peer and unit tables are those of
+ * the shared {@link SudokuGeometry} of the grid. Propagation applies naked
+ * singles and hidden singles. <br/>
+ * If all values fit in a single long, as they do up to 64x64 grids, the
+ * search also keeps a lane per unit and value: a long with a bit per cell of
+ * the unit that can still hold the value. Assigning a value then only visits
+ * the peers whose lane bit is set, and a hidden single shows as a lane with
+ * a single bit as soon as the lane loses its second to last cell. Otherwise,
+ * hidden singles of a unit are found for 64 values at once by counting
+ * candidates bit-parallel, and only units that lost a candidate since they
+ * were last checked are checked again. <br/>
+ * Search branches on the cell with the fewest candidates, or on the two
+ * possible cells of a value in a unit if every cell has more than two
+ * candidates. The state of every search level is saved in buffers that are
+ * allocated once per depth.
+ *
+ * @author dcoppens
+ *
+ */
+public class BitboardSolver implements Solver {
+
+    private SudokuGrid result;
+    private SolverListener listener;
+
+    /**
+     * {@inheritDoc}
+     */
+    public SolveOutcome solve(SudokuGrid grid, Deadline deadline) {
+        int gridSize = grid.getGridSize();
+        int segmentSize = grid.getSegmentSize();
+        SolveRecorder recorder = SolveRecorder.start(listener, grid);
+        DeadlineWatch watch = new DeadlineWatch(deadline);
+        boolean solved = false;
+        if (gridSize <= segmentSize * segmentSize) {
+            // otherwise rows can never be filled with distinct values
+            solved = solve(grid, recorder, watch);
+        }
+        SolveOutcome outcome = watch.outcome(solved);
+        if (recorder != null) {
+            recorder.finish(outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * Searches a solution and copies it into the grid
+     *
+     * @param grid
+     *            Grid whose rows can be filled with distinct values
+     * @param recorder
+     *            Recorder of the solve, null if there is no listener
+     * @param watch
+     *            Watch of the deadline of the solve
+     * @return true if the grid was solved, false otherwise
+     */
+    private boolean solve(SudokuGrid grid, SolveRecorder recorder,
+            DeadlineWatch watch) {
+        int gridSize = grid.getGridSize();
+        Search search = new Search(grid.getGeometry(), recorder, watch);
+        boolean solved = search.init(grid) && search.search(0);
+        if (solved) {
+            for (int cell = 0; cell < search.values.length; cell++) {
+                grid.setValue(cell % gridSize, cell / gridSize,
+                        search.values[cell]);
+            }
+            result = grid;
+        }
+        return solved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SudokuGrid getResult() {
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setListener(SolverListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Search state of one solve
+     */
+    private static final class Search {
+        private final SudokuGeometry geometry;
+        private final int maxValue;
+        private final int cells;
+
+        /** Number of longs per candidate set */
+        private final int words;
+
+        /** Candidate set holding every value */
+        private final long[] allValues;
+
+        /** Assigned value per cell, 0 if unassigned */
+        private final int[] values;
+
+        /** Candidates, words longs per cell */
+        private final long[] candidates;
+
+        /** Saved state per search depth, allocated on first use */
+        private final int[][] savedValues;
+        private final long[][] savedCandidates;
+
+        /** Cells with a single candidate that still have to be assigned */
+        private final int[] queue;
+        private int queueSize;
+
+        /**
+         * Cells per unit and value if all values fit in one word, null
+         * otherwise: bit i of lanes[unit * maxValue + value - 1] is set if the
+         * value is a candidate of the i-th cell of the unit
+         */
+        private final long[] lanes;
+        private final long[][] savedLanes;
+
+        /** Hidden singles found in the lanes that still have to be assigned */
+        private final int[] hiddenCells;
+        private final int[] hiddenValues;
+        private int hiddenSize;
+
+        /** Units that lost a candidate since their last hidden single check */
+        private final boolean[] dirty;
+        private final int[] dirtyUnits;
+        private int dirtyCount;
+
+        /** Value and cells to branch on, see findValueWithTwoCells */
+        private int branchValue;
+        private final int[] branchCells = new int[2];
+
+        /** Recorder of the solve, null if there is no listener */
+        private final SolveRecorder recorder;
+
+        /** Whether value changes are reported; the grid values are not */
+        private boolean reporting;
+
+        /** Watch of the deadline of the solve */
+        private final DeadlineWatch watch;
+
+        Search(SudokuGeometry geometry, SolveRecorder recorder,
+                DeadlineWatch watch) {
+            this.geometry = geometry;
+            this.recorder = recorder;
+            this.watch = watch;
+            this.maxValue = geometry.getSegmentSize()
+                    * geometry.getSegmentSize();
+            this.cells = geometry.getNumberOfCells();
+            this.words = (maxValue + 63) >>> 6;
+            this.allValues = new long[words];
+            for (int value = 1; value <= maxValue; value++) {
+                allValues[(value - 1) >>> 6] |= 1L << (value - 1);
+            }
+            this.values = new int[cells];
+            this.candidates = new long[cells * words];
+            this.savedValues = new int[cells][];
+            this.savedCandidates = new long[cells][];
+            this.queue = new int[cells];
+            this.dirty = new boolean[geometry.getNumberOfUnits()];
+            this.dirtyUnits = new int[geometry.getNumberOfUnits()];
+            if (words == 1) {
+                // every unit holds at most maxValue cells
+                int size = geometry.getNumberOfUnits() * maxValue;
+                this.lanes = new long[size];
+                this.savedLanes = new long[cells][];
+                this.hiddenCells = new int[size];
+                this.hiddenValues = new int[size];
+            } else {
+                this.lanes = null;
+                this.savedLanes = null;
+                this.hiddenCells = null;
+                this.hiddenValues = null;
+            }
+        }
+
+        /**
+         * Makes every value a candidate of every cell and assigns the values
+         * present in the grid
+         *
+         * @param grid
+         *            Grid
+         * @return false if the values of the grid contradict each other
+         */
+        boolean init(SudokuGrid grid) {
+            for (int cell = 0; cell < cells; cell++) {
+                System.arraycopy(allValues, 0, candidates, cell * words, words);
+            }
+            if (lanes != null) {
+                for (int unit = 0; unit < geometry.getNumberOfUnits(); unit++) {
+                    int size = geometry.getUnitEnd(unit)
+                            - geometry.getUnitStart(unit);
+                    Arrays.fill(lanes, unit * maxValue, (unit + 1) * maxValue,
+                            -1L >>> (64 - size));
+                }
+            }
+            for (int cell = 0; cell < cells; cell++) {
+                int value = grid.getValue(geometry.getColumn(cell),
+                        geometry.getRow(cell));
+                if (value != 0
+                        && (value > maxValue
+                                || !isCandidate(cell, value) || !assign(cell,
+                                    value))) {
+                    return false;
+                }
+            }
+            reporting = recorder != null;
+            return true;
+        }
+
+        /**
+         * Propagates and branches on the cell with the fewest candidates
+         *
+         * @param depth
+         *            Search depth
+         * @return true if the grid was solved, false if there is no solution
+         *         or the deadline expired
+         */
+        boolean search(int depth) {
+            if (recorder != null) {
+                recorder.node(depth);
+            }
+            if (watch.expired() || !propagate()) {
+                return false;
+            }
+
+            int best = -1;
+            int bestCount = Integer.MAX_VALUE;
+            for (int cell = 0; cell < cells && bestCount > 2; cell++) {
+                if (values[cell] == 0) {
+                    int count = countCandidates(cell);
+                    if (count < bestCount) {
+                        best = cell;
+                        bestCount = count;
+                    }
+                }
+            }
+            if (best < 0) {
+                return true;
+            }
+            if (bestCount > 2 && findValueWithTwoCells()) {
+                return branchOnValue(depth);
+            }
+
+            save(depth);
+            int[] valuesBackup = savedValues[depth];
+            long[] candidatesBackup = savedCandidates[depth];
+
+            int offset = best * words;
+            for (int word = 0; word < words; word++) {
+                long trials = candidatesBackup[offset + word];
+                while (trials != 0) {
+                    int value = word * 64 + Long.numberOfTrailingZeros(trials)
+                            + 1;
+                    trials &= trials - 1;
+                    if (assign(best, value) && search(depth + 1)) {
+                        return true;
+                    }
+                    restore(depth);
+                    if (recorder != null) {
+                        recorder.backtracked(depth);
+                    }
+                    if (watch.hasExpired()) {
+                        return false;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Branches on the cells of the value found by
+         * {@link #findValueWithTwoCells()}
+         *
+         * @param depth
+         *            Search depth
+         * @return true if the grid was solved, false if there is no solution
+         */
+        private boolean branchOnValue(int depth) {
+            int value = branchValue;
+            int first = branchCells[0];
+            int second = branchCells[1];
+            save(depth);
+            if (assign(first, value) && search(depth + 1)) {
+                return true;
+            }
+            restore(depth);
+            if (recorder != null) {
+                recorder.backtracked(depth);
+            }
+            if (watch.hasExpired()) {
+                return false;
+            }
+            if (assign(second, value) && search(depth + 1)) {
+                return true;
+            }
+            restore(depth);
+            if (recorder != null) {
+                recorder.backtracked(depth);
+            }
+            return false;
+        }
+
+        /**
+         * Looks for a value that fits in exactly two cells of a unit; per
+         * word, thrice holds the values seen in at least three cells
+         *
+         * @return true if such a value was found; it is stored in branchValue
+         *         and its cells in branchCells
+         */
+        private boolean findValueWithTwoCells() {
+            if (lanes != null) {
+                return findValueWithTwoCellsInLanes();
+            }
+            for (int unit = 0; unit < geometry.getNumberOfUnits(); unit++) {
+                if (!geometry.holdsAllValues(unit)) {
+                    continue;
+                }
+                int start = geometry.getUnitStart(unit);
+                int end = geometry.getUnitEnd(unit);
+                for (int word = 0; word < words; word++) {
+                    long once = 0L;
+                    long twice = 0L;
+                    long thrice = 0L;
+                    for (int i = start; i < end; i++) {
+                        long mask = candidates[geometry.getUnitCell(i) * words
+                                + word];
+                        thrice |= twice & mask;
+                        twice |= once & mask;
+                        once |= mask;
+                    }
+                    long pairs = twice & ~thrice;
+                    if (pairs != 0) {
+                        long bit = pairs & -pairs;
+                        int found = 0;
+                        for (int i = start; i < end && found < 2; i++) {
+                            int cell = geometry.getUnitCell(i);
+                            if ((candidates[cell * words + word] & bit) != 0) {
+                                branchCells[found++] = cell;
+                            }
+                        }
+                        branchValue = word * 64
+                                + Long.numberOfTrailingZeros(bit) + 1;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Looks for a value with exactly two cells in the lane of a unit
+         *
+         * @return true if such a value was found; it is stored in branchValue
+         *         and its cells in branchCells
+         */
+        private boolean findValueWithTwoCellsInLanes() {
+            for (int unit = 0; unit < geometry.getNumberOfUnits(); unit++) {
+                if (!geometry.holdsAllValues(unit)) {
+                    continue;
+                }
+                int start = geometry.getUnitStart(unit);
+                for (int value = 1; value <= maxValue; value++) {
+                    long lane = lanes[unit * maxValue + value - 1];
+                    if (Long.bitCount(lane) == 2) {
+                        branchCells[0] = geometry.getUnitCell(start
+                                + Long.numberOfTrailingZeros(lane));
+                        branchCells[1] = geometry.getUnitCell(start + 63
+                                - Long.numberOfLeadingZeros(lane));
+                        branchValue = value;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void save(int depth) {
+            if (savedValues[depth] == null) {
+                savedValues[depth] = new int[values.length];
+                savedCandidates[depth] = new long[candidates.length];
+                if (lanes != null) {
+                    savedLanes[depth] = new long[lanes.length];
+                }
+            }
+            System.arraycopy(values, 0, savedValues[depth], 0, values.length);
+            System.arraycopy(candidates, 0, savedCandidates[depth], 0,
+                    candidates.length);
+            if (lanes != null) {
+                System.arraycopy(lanes, 0, savedLanes[depth], 0, lanes.length);
+            }
+        }
+
+        private void restore(int depth) {
+            queueSize = 0;
+            hiddenSize = 0;
+            while (dirtyCount > 0) {
+                dirty[dirtyUnits[--dirtyCount]] = false;
+            }
+            if (reporting) {
+                int[] saved = savedValues[depth];
+                for (int cell = 0; cell < values.length; cell++) {
+                    if (values[cell] != saved[cell]) {
+                        recorder.removed(cell);
+                    }
+                }
+            }
+            System.arraycopy(savedValues[depth], 0, values, 0, values.length);
+            System.arraycopy(savedCandidates[depth], 0, candidates, 0,
+                    candidates.length);
+            if (lanes != null) {
+                System.arraycopy(savedLanes[depth], 0, lanes, 0, lanes.length);
+            }
+        }
+
+        /**
+         * Applies naked singles, and hidden singles in the units that changed,
+         * until no more values can be deduced
+         *
+         * @return false if a contradiction was found
+         */
+        private boolean propagate() {
+            while (queueSize > 0 || hiddenSize > 0 || dirtyCount > 0) {
+                if (queueSize > 0) {
+                    int cell = queue[--queueSize];
+                    if (values[cell] == 0) {
+                        if (recorder != null) {
+                            recorder.propagated();
+                        }
+                        if (!assign(cell, firstCandidate(cell))) {
+                            return false;
+                        }
+                    }
+                } else if (hiddenSize > 0) {
+                    int cell = hiddenCells[--hiddenSize];
+                    if (values[cell] == 0) {
+                        if (recorder != null) {
+                            recorder.propagated();
+                        }
+                        if (!assign(cell, hiddenValues[hiddenSize])) {
+                            return false;
+                        }
+                    }
+                } else {
+                    int unit = dirtyUnits[--dirtyCount];
+                    dirty[unit] = false;
+                    if (!assignHiddenSingles(unit)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Marks the units of the cell for a hidden single check
+         *
+         * @param cell
+         *            Cell that lost a candidate
+         */
+        private void markDirty(int cell) {
+            markDirtyUnit(geometry.getRowUnit(cell));
+            markDirtyUnit(geometry.getColumnUnit(cell));
+            markDirtyUnit(geometry.getSegmentUnit(cell));
+        }
+
+        private void markDirtyUnit(int unit) {
+            if (!dirty[unit] && geometry.holdsAllValues(unit)) {
+                dirty[unit] = true;
+                dirtyUnits[dirtyCount++] = unit;
+            }
+        }
+
+        /**
+         * Assigns every value that fits in only one cell of the unit. Per word,
+         * once holds the values seen in at least one cell, twice the values
+         * seen in at least two cells and placed the values already assigned.
+         *
+         * @param unit
+         *            Unit
+         * @return false if a value fits nowhere
+         */
+        private boolean assignHiddenSingles(int unit) {
+            int start = geometry.getUnitStart(unit);
+            int end = geometry.getUnitEnd(unit);
+            for (int word = 0; word < words; word++) {
+                long once = 0L;
+                long twice = 0L;
+                long placed = 0L;
+                for (int i = start; i < end; i++) {
+                    int cell = geometry.getUnitCell(i);
+                    long mask = candidates[cell * words + word];
+                    twice |= once & mask;
+                    once |= mask;
+                    if (values[cell] != 0) {
+                        placed |= mask;
+                    }
+                }
+                if (once != allValues[word]) {
+                    return false;
+                }
+
+                long singles = once & ~twice & ~placed;
+                while (singles != 0) {
+                    long bit = singles & -singles;
+                    singles &= singles - 1;
+                    for (int i = start; i < end; i++) {
+                        int cell = geometry.getUnitCell(i);
+                        if ((candidates[cell * words + word] & bit) != 0) {
+                            if (values[cell] == 0) {
+                                int value = word * 64
+                                        + Long.numberOfTrailingZeros(bit) + 1;
+                                if (recorder != null) {
+                                    recorder.propagated();
+                                }
+                                if (!assign(cell, value)) {
+                                    return false;
+                                }
+                            }
+                            break;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Assigns the value to the cell and eliminates it from all peers
+         *
+         * @param cell
+         *            Cell
+         * @param value
+         *            Value
+         * @return false if a peer is left without candidates
+         */
+        private boolean assign(int cell, int value) {
+            values[cell] = value;
+            if (reporting) {
+                recorder.placed(cell, value);
+            }
+            if (lanes != null) {
+                return eliminateInLanes(cell, value);
+            }
+            int word = (value - 1) >>> 6;
+            long bit = 1L << (value - 1);
+            for (int i = 0; i < words; i++) {
+                candidates[cell * words + i] = 0L;
+            }
+            candidates[cell * words + word] = bit;
+            markDirty(cell);
+
+            int end = geometry.getPeerEnd(cell);
+            for (int i = geometry.getPeerStart(cell); i < end; i++) {
+                int peer = geometry.getPeer(i);
+                int index = peer * words + word;
+                if ((candidates[index] & bit) != 0) {
+                    candidates[index] &= ~bit;
+                    markDirty(peer);
+                    int remaining = countCandidates(peer);
+                    if (remaining == 0) {
+                        return false;
+                    }
+                    if (remaining == 1 && values[peer] == 0) {
+                        queue[queueSize++] = peer;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Removes the other candidates of an assigned cell, and the value
+         * from the peers that still have it; the peers are found in the lanes
+         * of the value in the units of the cell
+         *
+         * @param cell
+         *            Cell
+         * @param value
+         *            Value assigned to the cell
+         * @return false if a contradiction was found
+         */
+        private boolean eliminateInLanes(int cell, int value) {
+            long bit = 1L << (value - 1);
+            long others = candidates[cell] & ~bit;
+            candidates[cell] = bit;
+            while (others != 0) {
+                int other = Long.numberOfTrailingZeros(others) + 1;
+                others &= others - 1;
+                if (!removeFromLanes(cell, other)) {
+                    return false;
+                }
+            }
+            return eliminateInLane(geometry.getRowUnit(cell),
+                    geometry.getColumn(cell), value)
+                    && eliminateInLane(geometry.getColumnUnit(cell),
+                            geometry.getRow(cell), value)
+                    && eliminateInLane(geometry.getSegmentUnit(cell),
+                            geometry.getSegmentPosition(cell), value);
+        }
+
+        private boolean eliminateInLane(int unit, int position, int value) {
+            long bit = 1L << (value - 1);
+            int start = geometry.getUnitStart(unit);
+            long peers = lanes[unit * maxValue + value - 1]
+                    & ~(1L << position);
+            while (peers != 0) {
+                int peer = geometry.getUnitCell(start
+                        + Long.numberOfTrailingZeros(peers));
+                peers &= peers - 1;
+                long mask = candidates[peer] & ~bit;
+                candidates[peer] = mask;
+                if (mask == 0 || !removeFromLanes(peer, value)) {
+                    return false;
+                }
+                if ((mask & (mask - 1)) == 0 && values[peer] == 0) {
+                    queue[queueSize++] = peer;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Removes a cell from the lanes of a value it lost as a candidate
+         *
+         * @param cell
+         *            Cell
+         * @param value
+         *            Value
+         * @return false if the value fits nowhere in a unit of the cell
+         */
+        private boolean removeFromLanes(int cell, int value) {
+            return removeFromLane(geometry.getRowUnit(cell),
+                    geometry.getColumn(cell), value)
+                    && removeFromLane(geometry.getColumnUnit(cell),
+                            geometry.getRow(cell), value)
+                    && removeFromLane(geometry.getSegmentUnit(cell),
+                            geometry.getSegmentPosition(cell), value);
+        }
+
+        private boolean removeFromLane(int unit, int position, int value) {
+            int index = unit * maxValue + value - 1;
+            long lane = lanes[index] & ~(1L << position);
+            lanes[index] = lane;
+            if ((lane & (lane - 1)) == 0 && geometry.holdsAllValues(unit)) {
+                if (lane == 0) {
+                    return false;
+                }
+                int cell = geometry.getUnitCell(geometry.getUnitStart(unit)
+                        + Long.numberOfTrailingZeros(lane));
+                if (values[cell] == 0) {
+                    hiddenCells[hiddenSize] = cell;
+                    hiddenValues[hiddenSize++] = value;
+                }
+            }
+            return true;
+        }
+
+        private boolean isCandidate(int cell, int value) {
+            return (candidates[cell * words + ((value - 1) >>> 6)] & (1L << (value - 1))) != 0;
+        }
+
+        private int countCandidates(int cell) {
+            if (words == 1) {
+                return Long.bitCount(candidates[cell]);
+            }
+            int count = 0;
+            for (int word = 0; word < words; word++) {
+                count += Long.bitCount(candidates[cell * words + word]);
+            }
+            return count;
+        }
+
+        private int firstCandidate(int cell) {
+            for (int word = 0; word < words; word++) {
+                long mask = candidates[cell * words + word];
+                if (mask != 0) {
+                    return word * 64 + Long.numberOfTrailingZeros(mask) + 1;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.symmetry.CanonicalForm;
+import nl.concipit.sudoku.symmetry.Canonicalizer;
+
+/**
+ * Solver that looks up the canonical form of every puzzle in a
+ * {@link SolutionCache} before handing it to another solver. <br/>
+ * <br/>
+ * Puzzles that are equal up to transposition, permutation of bands, stacks,
+ * rows within a band, columns within a stack and relabeling of the values
+ * share one cache entry. On a hit the cached solution is mapped back through
+ * the inverse transform; on a miss the delegate solves the puzzle and its
+ * solution, or the absence of one, is cached. Solves that time out are not
+ * cached, and puzzles whose canonical form cannot be computed within the
+ * limits of the {@link Canonicalizer} or the deadline go straight to the
+ * delegate. The canonicalizer nearly always gives up on grids larger than
+ * {@value #MAX_GRID_SIZE} by {@value #MAX_GRID_SIZE}, so those are not
+ * canonicalized at all.
+ *
+ * @author dcoppens
+ *
+ */
+public class CachingSolver implements Solver {
+    /** Size of the largest grids that are looked up in the cache */
+    public static final int MAX_GRID_SIZE = 16;
+
+    private final Solver delegate;
+    private final SolutionCache cache;
+    private final Canonicalizer canonicalizer;
+
+    private SudokuGrid result;
+    private SolverListener listener;
+
+    /**
+     * Constructor
+     *
+     * @param delegate
+     *            Solver for puzzles that are not cached
+     * @param cache
+     *            Cache, may be shared with other caching solvers
+     */
+    public CachingSolver(Solver delegate, SolutionCache cache) {
+        this(delegate, cache, new Canonicalizer());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param delegate
+     *            Solver for puzzles that are not cached
+     * @param cache
+     *            Cache, may be shared with other caching solvers
+     * @param canonicalizer
+     *            Computes the cache keys
+     */
+    public CachingSolver(Solver delegate, SolutionCache cache,
+            Canonicalizer canonicalizer) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.canonicalizer = canonicalizer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SolveOutcome solve(SudokuGrid grid, Deadline deadline) {
+        if (grid.getGridSize() > MAX_GRID_SIZE) {
+            return solveUncached(grid, deadline);
+        }
+        CanonicalForm key = canonicalizer.canonicalize(grid, deadline);
+        if (key == null) {
+            return solveUncached(grid, deadline);
+        }
+
+        int[] cached = cache.get(key);
+        if (cached != null) {
+            SolveRecorder recorder = SolveRecorder.start(listener, grid);
+            SolveOutcome outcome = SolveOutcome.UNSOLVABLE;
+            if (cached != SolutionCache.NO_SOLUTION) {
+                copy(key.getTransform().inverse()
+                        .apply(toGrid(grid, cached)), grid);
+                result = grid;
+                outcome = SolveOutcome.SOLVED;
+            }
+            if (recorder != null) {
+                recorder.finish(outcome);
+            }
+            return outcome;
+        }
+
+        SolveOutcome outcome = solveUncached(grid, deadline);
+        if (outcome == SolveOutcome.SOLVED) {
+            cache.put(key, toValues(key.getTransform().apply(grid)));
+        } else if (outcome == SolveOutcome.UNSOLVABLE) {
+            cache.put(key, SolutionCache.NO_SOLUTION);
+        }
+        return outcome;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SudokuGrid getResult() {
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setListener(SolverListener listener) {
+        this.listener = listener;
+        delegate.setListener(listener);
+    }
+
+    private SolveOutcome solveUncached(SudokuGrid grid, Deadline deadline) {
+        SolveOutcome outcome = delegate.solve(grid, deadline);
+        if (outcome == SolveOutcome.SOLVED) {
+            result = grid;
+        }
+        return outcome;
+    }
+
+    /**
+     * Creates a grid of the geometry of the puzzle holding the values
+     */
+    private static SudokuGrid toGrid(SudokuGrid puzzle, int[] values) {
+        int gridSize = puzzle.getGridSize();
+        SudokuGrid grid = new SudokuGrid(gridSize, puzzle.getSegmentSize());
+        for (int cell = 0; cell < values.length; cell++) {
+            grid.setValue(cell % gridSize, cell / gridSize, values[cell]);
+        }
+        return grid;
+    }
+
+    private static int[] toValues(SudokuGrid grid) {
+        int gridSize = grid.getGridSize();
+        int[] values = new int[gridSize * gridSize];
+        for (int cell = 0; cell < values.length; cell++) {
+            values[cell] = grid.getValue(cell % gridSize, cell / gridSize);
+        }
+        return values;
+    }
+
+    private static void copy(SudokuGrid source, SudokuGrid target) {
+        int gridSize = source.getGridSize();
+        for (int row = 0; row < gridSize; row++) {
+            for (int column = 0; column < gridSize; column++) {
+                target.setValue(column, row, source.getValue(column, row));
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.Arrays;
+
+import nl.concipit.sudoku.model.SudokuGeometry;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Selects the empty cell of a grid with the minimum number of remaining
+ * values; ties are broken by degree, i.e. the cell with the most empty peers is
+ * preferred. <br/>
+ * <br/>
+ * Empty cells are kept in buckets keyed by (remaining values, degree). The
+ * solver reports every value it places or removes, after which only the
+ * affected cell and its peers are moved between buckets.
+ *
+ * @author dcoppens
+ *
+ */
+final class CellSelector {
+    private final SudokuGrid grid;
+    private final SudokuGeometry geometry;
+
+    /** Highest possible degree of a cell */
+    private final int maxDegree;
+
+    /** Number of empty peers per cell (row-major index) */
+    private final int[] degree;
+
+    /** Bucket of each cell, or -1 if the cell is not empty */
+    private final int[] key;
+
+    /** Doubly linked bucket lists */
+    private final int[] next;
+    private final int[] previous;
+    private final int[] head;
+
+    /**
+     * Constructor; registers all empty cells of the grid
+     *
+     * @param grid
+     *            Grid
+     */
+    CellSelector(SudokuGrid grid) {
+        this.grid = grid;
+        this.geometry = grid.getGeometry();
+        this.maxDegree = 3 * grid.getGridSize();
+
+        int cells = geometry.getNumberOfCells();
+        int segmentSize = grid.getSegmentSize();
+        degree = new int[cells];
+        key = new int[cells];
+        next = new int[cells];
+        previous = new int[cells];
+        head = new int[(segmentSize * segmentSize + 1) * (maxDegree + 1)];
+        Arrays.fill(key, -1);
+        Arrays.fill(head, -1);
+
+        for (int cell = 0; cell < cells; cell++) {
+            if (isEmpty(cell)) {
+                degree[cell] = countEmptyPeers(cell);
+                insert(cell);
+            }
+        }
+    }
+
+    /**
+     * Returns the empty cell with the fewest remaining values
+     *
+     * @return row-major index of the cell, or -1 if no cell is empty
+     */
+    int select() {
+        for (int bucket = 0; bucket < head.length; bucket++) {
+            if (head[bucket] >= 0) {
+                return head[bucket];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Updates the buckets after a value was placed in the specified cell
+     *
+     * @param cell
+     *            row-major index of the cell
+     */
+    void placed(int cell) {
+        unlink(cell);
+        updatePeers(cell, -1);
+    }
+
+    /**
+     * Updates the buckets after the value of the specified cell was removed
+     *
+     * @param cell
+     *            row-major index of the cell
+     */
+    void removed(int cell) {
+        updatePeers(cell, 1);
+        degree[cell] = countEmptyPeers(cell);
+        insert(cell);
+    }
+
+    /**
+     * Adjusts the degree of all empty peers of the cell and re-evaluates their
+     * remaining values
+     *
+     * @param cell
+     *            row-major index of the cell
+     * @param delta
+     *            change in degree
+     */
+    private void updatePeers(int cell, int delta) {
+        int end = geometry.getPeerEnd(cell);
+        for (int i = geometry.getPeerStart(cell); i < end; i++) {
+            int peer = geometry.getPeer(i);
+            if (key[peer] >= 0) {
+                unlink(peer);
+                degree[peer] += delta;
+                insert(peer);
+            }
+        }
+    }
+
+    private int countEmptyPeers(int cell) {
+        int count = 0;
+        int end = geometry.getPeerEnd(cell);
+        for (int i = geometry.getPeerStart(cell); i < end; i++) {
+            count += isEmpty(geometry.getPeer(i)) ? 1 : 0;
+        }
+        return count;
+    }
+
+    private boolean isEmpty(int cell) {
+        return grid.getValue(geometry.getColumn(cell),
+                geometry.getRow(cell)) == 0;
+    }
+
+    private void insert(int cell) {
+        int remaining = grid.countPossibleValues(geometry.getColumn(cell),
+                geometry.getRow(cell));
+        int bucket = remaining * (maxDegree + 1) + maxDegree - degree[cell];
+        key[cell] = bucket;
+        previous[cell] = -1;
+        next[cell] = head[bucket];
+        if (head[bucket] >= 0) {
+            previous[head[bucket]] = cell;
+        }
+        head[bucket] = cell;
+    }
+
+    private void unlink(int cell) {
+        int bucket = key[cell];
+        if (previous[cell] >= 0) {
+            next[previous[cell]] = next[cell];
+        } else {
+            head[bucket] = next[cell];
+        }
+        if (next[cell] >= 0) {
+            previous[next[cell]] = previous[cell];
+        }
+        key[cell] = -1;
+    }
+}
@@ -0,0 +1,335 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Solver based on Knuth's Algorithm X using Dancing Links. <br/>
+ * <br/>
+ * The Sudoku is encoded as an exact cover problem: every cell holds exactly one
+ * value and every segment holds every value exactly once. Rows and columns hold
+ * every value exactly once if the grid size equals the number of values, and
+ * at most once otherwise. <br/>
+ * Counting solutions runs the same search, backtracking after every cover
+ * found until the limit is reached.
+ *
+ * @author dcoppens
+ *
+ */
+public class DancingLinksSolver implements Solver, SolutionCounter {
+
+    private SudokuGrid result;
+    private SolverListener listener;
+
+    /**
+     * {@inheritDoc}
+     */
+    public SolveOutcome solve(SudokuGrid grid, Deadline deadline) {
+        int gridSize = grid.getGridSize();
+        int maxValue = grid.getSegmentSize() * grid.getSegmentSize();
+        SolveRecorder recorder = SolveRecorder.start(listener, grid);
+        DeadlineWatch watch = new DeadlineWatch(deadline);
+        boolean solved = false;
+        if (gridSize <= maxValue) {
+            // otherwise rows can never be filled with distinct values
+            solved = solve(grid, recorder, watch);
+        }
+        SolveOutcome outcome = watch.outcome(solved);
+        if (recorder != null) {
+            recorder.finish(outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * Searches a solution and copies it into the grid
+     *
+     * @param grid
+     *            Grid whose rows can be filled with distinct values
+     * @param recorder
+     *            Recorder of the solve, null if there is no listener
+     * @param watch
+     *            Watch of the deadline of the solve
+     * @return true if the grid was solved, false otherwise
+     */
+    private boolean solve(SudokuGrid grid, SolveRecorder recorder,
+            DeadlineWatch watch) {
+        int gridSize = grid.getGridSize();
+        int maxValue = grid.getSegmentSize() * grid.getSegmentSize();
+        Links links = new Links(grid);
+        links.recorder = recorder;
+        links.watch = watch;
+        boolean solved = links.search(0, 1) == 1;
+        if (solved) {
+            for (int i = 0; i < gridSize * gridSize; i++) {
+                int choice = links.choiceOf(links.solution[i]);
+                int cell = choice / maxValue;
+                grid.setValue(cell % gridSize, cell / gridSize, choice
+                        % maxValue + 1);
+            }
+            result = grid;
+        }
+        return solved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SudokuGrid getResult() {
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setListener(SolverListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long countSolutions(SudokuGrid grid, long limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException();
+        }
+        if (grid.getGridSize() > grid.getSegmentSize()
+                * grid.getSegmentSize()) {
+            // rows can never be filled with distinct values
+            return 0;
+        }
+        return new Links(grid).search(0, limit);
+    }
+
+    /**
+     * Toroidal doubly linked exact cover matrix, stored in parallel arrays.
+     * Node 0 is the root; nodes 1 up to and including the number of
+     * constraints are the column headers.
+     */
+    private static final class Links {
+        private final int[] left;
+        private final int[] right;
+        private final int[] up;
+        private final int[] down;
+        private final int[] header;
+        private final int[] size;
+
+        /** Choice (cell * maxValue + value - 1) encoded by the row of a node */
+        private final int[] choice;
+
+        /** Node of each row selected so far, indexed by depth */
+        private final int[] solution;
+
+        private int nodes;
+
+        /** Recorder of the solve, null if there is no listener */
+        private SolveRecorder recorder;
+
+        /** Watch of the deadline, null if the search is not bounded */
+        private DeadlineWatch watch;
+
+        /**
+         * Builds the matrix with one row per possible value of every cell of
+         * the grid
+         *
+         * @param grid
+         *            Grid
+         */
+        Links(SudokuGrid grid) {
+            int gridSize = grid.getGridSize();
+            int segmentSize = grid.getSegmentSize();
+            int maxValue = segmentSize * segmentSize;
+            int cells = gridSize * gridSize;
+
+            // cell, segment, row and column constraints
+            int constraints = cells + cells + 2 * gridSize * maxValue;
+            int capacity = 1 + constraints + 4 * cells * maxValue;
+            left = new int[capacity];
+            right = new int[capacity];
+            up = new int[capacity];
+            down = new int[capacity];
+            header = new int[capacity];
+            size = new int[1 + constraints];
+            choice = new int[capacity];
+            solution = new int[cells];
+
+            // row and column constraints are optional unless every row needs
+            // to hold every value
+            int primary = gridSize == maxValue ? constraints : 2 * cells;
+            initHeaders(constraints, primary);
+
+            int segments = grid.getNumberOfSegments();
+            for (int row = 0; row < gridSize; row++) {
+                for (int column = 0; column < gridSize; column++) {
+                    int cell = row * gridSize + column;
+                    int segment = (row / segmentSize) * segments + column
+                            / segmentSize;
+                    int given = grid.getValue(column, row);
+                    for (int value = 1; value <= maxValue; value++) {
+                        if (given == value
+                                || (given == 0 && grid.isPossibleValue(column,
+                                        row, value))) {
+                            int rowChoice = cell * maxValue + value - 1;
+                            int first = nodes;
+                            addNode(first, rowChoice, cell);
+                            addNode(first, rowChoice, cells + segment
+                                    * maxValue + value - 1);
+                            addNode(first, rowChoice, 2 * cells + row
+                                    * maxValue + value - 1);
+                            addNode(first, rowChoice, 2 * cells
+                                    + (gridSize + column) * maxValue + value
+                                    - 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Searches exact covers of the remaining primary constraints. <br/>
+         * Once the limit is reached the search stops without uncovering, so
+         * the solution array holds the rows of the last cover found. Once the
+         * deadline expires the search unwinds, finding nothing more.
+         *
+         * @param depth
+         *            Number of rows selected so far
+         * @param limit
+         *            Maximum number of covers to find
+         * @return Number of covers found, at most the limit
+         */
+        long search(int depth, long limit) {
+            if (recorder != null) {
+                recorder.node(depth);
+            }
+            if (watch != null && watch.expired()) {
+                return 0;
+            }
+            if (right[0] == 0) {
+                return 1;
+            }
+
+            // select the constraint with the fewest remaining rows
+            int column = right[0];
+            for (int c = right[column]; c != 0 && size[column] > 1;
+                    c = right[c]) {
+                if (size[c] < size[column]) {
+                    column = c;
+                }
+            }
+            if (size[column] == 0) {
+                return 0;
+            }
+
+            long found = 0;
+            cover(column);
+            for (int row = down[column]; row != column; row = down[row]) {
+                solution[depth] = row;
+                for (int node = right[row]; node != row; node = right[node]) {
+                    cover(header[node]);
+                }
+                found += search(depth + 1, limit - found);
+                if (found >= limit) {
+                    return found;
+                }
+                for (int node = left[row]; node != row; node = left[node]) {
+                    uncover(header[node]);
+                }
+                if (recorder != null) {
+                    recorder.backtracked(depth);
+                }
+                if (watch != null && watch.hasExpired()) {
+                    break;
+                }
+            }
+            uncover(column);
+            return found;
+        }
+
+        /**
+         * Returns the choice encoded by the row of the specified node
+         *
+         * @param node
+         *            Node
+         * @return Choice (cell * maxValue + value - 1)
+         */
+        int choiceOf(int node) {
+            return choice[node];
+        }
+
+        private void initHeaders(int constraints, int primary) {
+            for (int c = 0; c <= constraints; c++) {
+                up[c] = c;
+                down[c] = c;
+                header[c] = c;
+            }
+            // only primary constraints are linked to the root
+            left[0] = primary;
+            right[0] = primary == 0 ? 0 : 1;
+            for (int c = 1; c <= constraints; c++) {
+                if (c <= primary) {
+                    left[c] = c - 1;
+                    right[c] = c == primary ? 0 : c + 1;
+                } else {
+                    left[c] = c;
+                    right[c] = c;
+                }
+            }
+            nodes = constraints + 1;
+        }
+
+        /**
+         * Appends a node to the row starting at the specified first node
+         *
+         * @param first
+         *            First node of the row
+         * @param rowChoice
+         *            Choice encoded by the row
+         * @param constraint
+         *            Constraint satisfied by the choice
+         */
+        private void addNode(int first, int rowChoice, int constraint) {
+            int column = constraint + 1;
+            int node = nodes++;
+            header[node] = column;
+            choice[node] = rowChoice;
+
+            // append to the bottom of the column
+            up[node] = up[column];
+            down[node] = column;
+            down[up[column]] = node;
+            up[column] = node;
+            size[column]++;
+
+            // append to the end of the row
+            left[node] = node == first ? node : node - 1;
+            right[node] = first;
+            if (node != first) {
+                right[node - 1] = node;
+                left[first] = node;
+            }
+        }
+
+        private void cover(int column) {
+            right[left[column]] = right[column];
+            left[right[column]] = left[column];
+            for (int row = down[column]; row != column; row = down[row]) {
+                for (int node = right[row]; node != row; node = right[node]) {
+                    up[down[node]] = up[node];
+                    down[up[node]] = down[node];
+                    size[header[node]]--;
+                }
+            }
+        }
+
+        private void uncover(int column) {
+            for (int row = up[column]; row != column; row = up[row]) {
+                for (int node = left[row]; node != row; node = left[node]) {
+                    size[header[node]]++;
+                    up[down[node]] = node;
+                    down[up[node]] = node;
+                }
+            }
+            right[left[column]] = column;
+            left[right[column]] = column;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time after which a solver gives up, which can also be cancelled
+ * explicitly from another thread. <br/>
+ * <br/>
+ * Solvers do not check the deadline at every search node but once per batch
+ * of nodes, so a solve may run slightly past it.
+ *
+ * @author dcoppens
+ *
+ */
+public final class Deadline {
+    /** Deadline that never passes and cannot be cancelled */
+    public static final Deadline NONE = new Deadline(false, 0L);
+
+    private final boolean timed;
+    private final long expiry;
+    private volatile boolean cancelled;
+
+    private Deadline(boolean timed, long expiry) {
+        this.timed = timed;
+        this.expiry = expiry;
+    }
+
+    /**
+     * Creates a deadline that passes after the specified timeout
+     *
+     * @param timeout
+     *            Timeout
+     * @param unit
+     *            Unit of the timeout
+     * @return Deadline
+     */
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return new Deadline(true, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Creates a deadline that only passes when it is cancelled
+     *
+     * @return Deadline
+     */
+    public static Deadline cancellable() {
+        return new Deadline(false, 0L);
+    }
+
+    /**
+     * Cancels every solve using this deadline
+     */
+    public void cancel() {
+        if (this == NONE) {
+            throw new UnsupportedOperationException();
+        }
+        cancelled = true;
+    }
+
+    /**
+     * Returns whether the deadline was cancelled
+     *
+     * @return true if cancelled, false otherwise
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns whether the deadline has passed or was cancelled
+     *
+     * @return true if a solver should give up, false otherwise
+     */
+    public boolean isExpired() {
+        return cancelled || (timed && System.nanoTime() - expiry >= 0);
+    }
+}
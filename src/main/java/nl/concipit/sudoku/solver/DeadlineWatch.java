@@ -0,0 +1,85 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Polls a {@link Deadline} once every {@value #INTERVAL} search nodes, so
+ * the clock is read rarely. Once expired, the watch stays expired. A watch
+ * is used by one thread; it can also stop the search when another thread
+ * raises a shared flag.
+ *
+ * @author dcoppens
+ *
+ */
+final class DeadlineWatch {
+    /** Number of calls to {@link #expired()} between two polls */
+    static final int INTERVAL = 256;
+
+    private final Deadline deadline;
+
+    /** Flag raised by another thread to stop the search, may be null */
+    private final AtomicBoolean stop;
+    private int countdown = 1;
+    private boolean expired;
+
+    /**
+     * Constructor
+     *
+     * @param deadline
+     *            Deadline to watch
+     */
+    DeadlineWatch(Deadline deadline) {
+        this(deadline, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param deadline
+     *            Deadline to watch
+     * @param stop
+     *            Flag that also expires the watch once raised, may be null
+     */
+    DeadlineWatch(Deadline deadline, AtomicBoolean stop) {
+        this.deadline = deadline;
+        this.stop = stop;
+    }
+
+    /**
+     * Called once per search node
+     *
+     * @return true if the search has to stop
+     */
+    boolean expired() {
+        if (--countdown == 0) {
+            countdown = INTERVAL;
+            expired = expired || (stop != null && stop.get())
+                    || deadline.isExpired();
+        }
+        return expired;
+    }
+
+    /**
+     * Returns whether an earlier poll found the deadline expired, without
+     * polling
+     *
+     * @return true if the search has to stop
+     */
+    boolean hasExpired() {
+        return expired;
+    }
+
+    /**
+     * Returns the outcome of a search watched by this watch
+     *
+     * @param solved
+     *            Whether the search found a solution
+     * @return Outcome
+     */
+    SolveOutcome outcome(boolean solved) {
+        if (solved) {
+            return SolveOutcome.SOLVED;
+        }
+        return expired ? SolveOutcome.TIMED_OUT : SolveOutcome.UNSOLVABLE;
+    }
+}
@@ -0,0 +1,263 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Solver that splits the search tree of {@link PropagationSolver} over the
+ * threads of a {@link ForkJoinPool}. <br/>
+ * <br/>
+ * Up to the split depth, every candidate of the most constrained cell is
+ * placed and propagated by a separate task on its own copy of the propagated
+ * state. Deeper subtrees are searched sequentially with propagation. As soon
+ * as one task finds a solution, or the deadline expires, all other tasks stop
+ * within a batch of search nodes.
+ *
+ * @author dcoppens
+ *
+ */
+public class ForkJoinSolver implements Solver {
+
+    /** Default number of search levels that are split into tasks */
+    private static final int DEFAULT_SPLIT_DEPTH = 6;
+
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+
+    private SudokuGrid result;
+    private SolverListener listener;
+
+    /**
+     * Constructor using the common pool
+     */
+    public ForkJoinSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param pool
+     *            Pool executing the search tasks
+     */
+    public ForkJoinSolver(ForkJoinPool pool) {
+        this(pool, DEFAULT_SPLIT_DEPTH);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param pool
+     *            Pool executing the search tasks
+     * @param splitDepth
+     *            Number of search levels that are split into tasks
+     */
+    public ForkJoinSolver(ForkJoinPool pool, int splitDepth) {
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SolveOutcome solve(SudokuGrid grid, Deadline deadline) {
+        AtomicReference<Propagation> solution = new AtomicReference<Propagation>();
+        AtomicBoolean expired = new AtomicBoolean();
+        AtomicBoolean stop = new AtomicBoolean();
+        SolveRecorder recorder = SolveRecorder.start(listener, grid);
+        Propagation propagation = new Propagation(grid, recorder,
+                new DeadlineWatch(deadline, stop));
+        if (recorder != null) {
+            recorder.node(0);
+        }
+        if (propagation.init(grid) && propagation.propagate()) {
+            pool.invoke(new SearchTask(propagation, -1, 0, 0, solution,
+                    deadline, expired, stop, recorder));
+        }
+
+        Propagation solved = solution.get();
+        if (solved != null) {
+            solved.copyTo(grid);
+            result = grid;
+        }
+        SolveOutcome outcome = solved != null ? SolveOutcome.SOLVED
+                : expired.get() ? SolveOutcome.TIMED_OUT
+                        : SolveOutcome.UNSOLVABLE;
+        if (recorder != null) {
+            recorder.finish(outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SudokuGrid getResult() {
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setListener(SolverListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Searches the subtree below one value of the most constrained cell of a
+     * propagated state
+     */
+    private final class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Propagation source;
+        private final int cell;
+        private final int value;
+        private final int depth;
+        private final AtomicReference<Propagation> solution;
+        private final Deadline deadline;
+        private final AtomicBoolean expired;
+        private final AtomicBoolean stop;
+
+        /** Recorder of this task, null if there is no listener */
+        private final SolveRecorder recorder;
+
+        /** Whether this task or one of its subtasks found the solution */
+        private boolean solved;
+
+        /**
+         * Constructor
+         *
+         * @param source
+         *            Propagated state of the parent task, only read by this
+         *            task; owned by this task if the cell is -1
+         * @param cell
+         *            Cell to assign, -1 to search the source itself
+         * @param value
+         *            Value to assign to the cell
+         * @param depth
+         *            Depth of the state in the search tree
+         * @param solution
+         *            Solution shared by all tasks of one solve
+         * @param deadline
+         *            Deadline of the solve
+         * @param expired
+         *            Set by the first task that finds the deadline expired
+         * @param stop
+         *            Raised once a solution is found, stops all other tasks
+         * @param recorder
+         *            Recorder of this task, may be null
+         */
+        SearchTask(Propagation source, int cell, int value, int depth,
+                AtomicReference<Propagation> solution, Deadline deadline,
+                AtomicBoolean expired, AtomicBoolean stop,
+                SolveRecorder recorder) {
+            this.source = source;
+            this.cell = cell;
+            this.value = value;
+            this.depth = depth;
+            this.solution = solution;
+            this.deadline = deadline;
+            this.expired = expired;
+            this.stop = stop;
+            this.recorder = recorder;
+        }
+
+        @Override
+        protected void compute() {
+            // cancelled siblings stop before copying any state
+            if (stop.get() || isExpired()) {
+                return;
+            }
+            DeadlineWatch watch = new DeadlineWatch(deadline, stop);
+            Propagation propagation = source;
+            if (cell >= 0) {
+                if (recorder != null) {
+                    recorder.node(depth);
+                }
+                propagation = new Propagation(source, recorder, watch);
+                if (!propagation.place(cell, value)) {
+                    if (recorder != null) {
+                        recorder.backtracked(depth - 1);
+                    }
+                    return;
+                }
+            }
+
+            if (depth >= splitDepth) {
+                solved = propagation.search(depth);
+                if (solved) {
+                    found(propagation);
+                } else if (watch.hasExpired()) {
+                    isExpired();
+                }
+            } else {
+                solved = split(propagation);
+            }
+            if (!solved && cell >= 0 && recorder != null) {
+                recorder.backtracked(depth - 1);
+            }
+        }
+
+        /**
+         * Publishes a solved state and stops all other tasks
+         */
+        private void found(Propagation propagation) {
+            solution.compareAndSet(null, propagation);
+            stop.set(true);
+        }
+
+        /**
+         * Returns whether this or another task found the deadline expired
+         */
+        private boolean isExpired() {
+            if (expired.get()) {
+                return true;
+            }
+            if (deadline.isExpired()) {
+                expired.set(true);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Forks one task per candidate of the most constrained cell
+         *
+         * @param propagation
+         *            Propagated state of this task
+         * @return true if this task or a subtask found the solution
+         */
+        private boolean split(Propagation propagation) {
+            int best = propagation.select();
+            if (best < 0) {
+                found(propagation);
+                return true;
+            }
+
+            List<SearchTask> tasks = new ArrayList<SearchTask>();
+            for (int trial = 1; trial <= propagation.getMaxValue(); trial++) {
+                if (propagation.isCandidate(best, trial)) {
+                    tasks.add(new SearchTask(propagation, best, trial,
+                            depth + 1, solution, deadline, expired, stop,
+                            recorder == null ? null : recorder.fork()));
+                }
+            }
+            invokeAll(tasks);
+            boolean any = false;
+            for (SearchTask task : tasks) {
+                any = any || task.solved;
+                if (recorder != null) {
+                    recorder.merge(task.recorder);
+                }
+            }
+            return any;
+        }
+    }
+}
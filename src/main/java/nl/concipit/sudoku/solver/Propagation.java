@@ -0,0 +1,366 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.model.SudokuGeometry;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Propagation and search over the cells of one grid, used by
+ * {@link PropagationSolver} and by every task of {@link ForkJoinSolver}.
+ * <br/>
+ * <br/>
+ * Cells are indexed in row-major order; bit v of the candidate words of a
+ * cell is set if value v is still possible. After initialization, values and
+ * candidates are only changed through the trail. A propagation is used by one
+ * thread; other threads work on a copy.
+ *
+ * @author dcoppens
+ *
+ */
+final class Propagation {
+    private final SudokuGeometry geometry;
+    private final int maxValue;
+    private final int words;
+    private final int cells;
+
+    /** Assigned values, 0 for an unassigned cell */
+    private final int[] values;
+
+    /** Candidate masks, words per cell */
+    private final long[] candidates;
+
+    /** Undo log of values and candidates */
+    private final Trail trail;
+
+    /** Cells with a single candidate that still have to be assigned */
+    private final int[] queue;
+    private int queueSize;
+
+    /** Recorder of the solve, null if there is no listener */
+    private final SolveRecorder recorder;
+
+    /** Watch of the deadline of the solve */
+    private final DeadlineWatch watch;
+
+    /**
+     * Constructor
+     *
+     * @param grid
+     *            Grid to solve
+     * @param recorder
+     *            Recorder of the solve, may be null
+     * @param watch
+     *            Watch of the deadline of the solve
+     */
+    Propagation(SudokuGrid grid, SolveRecorder recorder,
+            DeadlineWatch watch) {
+        this.recorder = recorder;
+        this.watch = watch;
+        geometry = grid.getGeometry();
+        maxValue = grid.getSegmentSize() * grid.getSegmentSize();
+        words = (maxValue >>> 6) + 1;
+        cells = geometry.getNumberOfCells();
+        queue = new int[cells];
+        values = new int[cells];
+        candidates = new long[cells * words];
+        trail = new Trail(values, candidates);
+    }
+
+    /**
+     * Copy constructor; copies the values and candidates of a propagated
+     * state, which is not changed by the copy
+     *
+     * @param other
+     *            Propagation to copy, with no values left to propagate
+     * @param recorder
+     *            Recorder of the copy, may be null
+     * @param watch
+     *            Watch of the deadline, owned by the copy
+     */
+    Propagation(Propagation other, SolveRecorder recorder,
+            DeadlineWatch watch) {
+        this.recorder = recorder;
+        this.watch = watch;
+        geometry = other.geometry;
+        maxValue = other.maxValue;
+        words = other.words;
+        cells = other.cells;
+        queue = new int[cells];
+        values = other.values.clone();
+        candidates = other.candidates.clone();
+        trail = new Trail(values, candidates);
+    }
+
+    /**
+     * Sets all values as candidates of every cell and assigns the values
+     * present in the grid
+     *
+     * @param grid
+     *            Grid
+     * @return false if the values of the grid contradict each other
+     */
+    boolean init(SudokuGrid grid) {
+        for (int cell = 0; cell < cells; cell++) {
+            for (int value = 1; value <= maxValue; value++) {
+                candidates[cell * words + (value >>> 6)] |= 1L << value;
+            }
+        }
+        boolean consistent = true;
+        for (int cell = 0; consistent && cell < cells; cell++) {
+            int value = grid.getValue(geometry.getColumn(cell),
+                    geometry.getRow(cell));
+            if (value != 0) {
+                consistent = value <= maxValue && isCandidate(cell, value)
+                        && assign(cell, value);
+            }
+        }
+        return consistent;
+    }
+
+    /**
+     * Searches a solution by branching on the cell with the fewest
+     * candidates, starting from a propagated state
+     *
+     * @param depth
+     *            Search depth
+     * @return true if the values were solved, false if there is no
+     *         solution or the deadline expired
+     */
+    boolean search(int depth) {
+        int best = select();
+        if (best < 0) {
+            return true;
+        }
+
+        int mark = trail.mark();
+        for (int value = 1; value <= maxValue; value++) {
+            // candidates of the cell are restored by every undo
+            if (isCandidate(best, value)) {
+                if (watch.expired()) {
+                    return false;
+                }
+                if (recorder != null) {
+                    recorder.node(depth + 1);
+                }
+                if (place(best, value) && search(depth + 1)) {
+                    return true;
+                }
+                trail.undo(mark);
+                if (recorder != null) {
+                    recorder.backtracked(depth);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the unassigned cell with the fewest candidates
+     *
+     * @return Cell, or -1 if all cells are assigned
+     */
+    int select() {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < cells && bestCount > 2; cell++) {
+            if (values[cell] == 0) {
+                int count = countCandidates(cell);
+                if (count < bestCount) {
+                    best = cell;
+                    bestCount = count;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Assigns a value to a cell and propagates it; on a contradiction the
+     * state is left partly propagated and has to be undone or dropped
+     *
+     * @param cell
+     *            Unassigned cell
+     * @param value
+     *            Candidate of the cell
+     * @return false if a contradiction was found
+     */
+    boolean place(int cell, int value) {
+        if (assign(cell, value) && propagate()) {
+            return true;
+        }
+        queueSize = 0;
+        return false;
+    }
+
+    /**
+     * Writes the assigned values to the grid
+     *
+     * @param grid
+     *            Grid of the same geometry
+     */
+    void copyTo(SudokuGrid grid) {
+        for (int cell = 0; cell < cells; cell++) {
+            grid.setValue(geometry.getColumn(cell), geometry.getRow(cell),
+                    values[cell]);
+        }
+    }
+
+    /**
+     * Reports the value changes made from now on to the recorder
+     */
+    void reportValues() {
+        trail.report(recorder);
+    }
+
+    /**
+     * Returns the highest value of the grid
+     *
+     * @return Highest value
+     */
+    int getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Applies naked and hidden singles until no more values can be
+     * deduced
+     *
+     * @return false if a contradiction was found
+     */
+    boolean propagate() {
+        boolean changed = true;
+        while (changed) {
+            // naked singles
+            while (queueSize > 0) {
+                int cell = queue[--queueSize];
+                if (values[cell] == 0) {
+                    if (recorder != null) {
+                        recorder.propagated();
+                    }
+                    if (!assign(cell, firstCandidate(cell))) {
+                        return false;
+                    }
+                }
+            }
+
+            // hidden singles
+            changed = false;
+            for (int unit = 0; unit < geometry.getNumberOfUnits(); unit++) {
+                if (geometry.holdsAllValues(unit)) {
+                    int assigned = assignHiddenSingles(unit);
+                    if (assigned < 0) {
+                        return false;
+                    }
+                    changed = changed || assigned > 0 || queueSize > 0;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Assigns every value that fits in only one cell of the unit
+     *
+     * @param unit
+     *            Unit
+     * @return Number of values assigned, or -1 if a value fits nowhere
+     */
+    private int assignHiddenSingles(int unit) {
+        int start = geometry.getUnitStart(unit);
+        int end = geometry.getUnitEnd(unit);
+        int assigned = 0;
+        for (int value = 1; value <= maxValue; value++) {
+            int count = 0;
+            int target = -1;
+            for (int i = start; i < end && count < 2; i++) {
+                int cell = geometry.getUnitCell(i);
+                if (isCandidate(cell, value)) {
+                    count++;
+                    target = cell;
+                }
+            }
+            if (count == 0) {
+                return -1;
+            }
+            if (count == 1 && values[target] == 0) {
+                if (recorder != null) {
+                    recorder.propagated();
+                }
+                if (!assign(target, value)) {
+                    return -1;
+                }
+                assigned++;
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Assigns the value to the cell and eliminates it from all peers
+     *
+     * @param cell
+     *            Cell
+     * @param value
+     *            Value
+     * @return false if a peer is left without candidates
+     */
+    private boolean assign(int cell, int value) {
+        trail.setValue(cell, value);
+        for (int word = 0; word < words; word++) {
+            trail.setCandidates(cell * words + word,
+                    word == value >>> 6 ? 1L << value : 0L);
+        }
+        return eliminate(cell, value);
+    }
+
+    /**
+     * Removes the value from the candidates of all peers of the cell;
+     * peers left with a single candidate are queued for assignment.
+     *
+     * @param cell
+     *            Cell
+     * @param value
+     *            Value to remove
+     * @return false if a peer is left without candidates
+     */
+    private boolean eliminate(int cell, int value) {
+        long bit = 1L << value;
+        int end = geometry.getPeerEnd(cell);
+        for (int i = geometry.getPeerStart(cell); i < end; i++) {
+            int peer = geometry.getPeer(i);
+            int index = peer * words + (value >>> 6);
+            if ((candidates[index] & bit) != 0) {
+                trail.setCandidates(index, candidates[index] & ~bit);
+                int remaining = countCandidates(peer);
+                if (remaining == 0) {
+                    return false;
+                }
+                if (remaining == 1 && values[peer] == 0) {
+                    queue[queueSize++] = peer;
+                }
+            }
+        }
+        return true;
+    }
+
+    boolean isCandidate(int cell, int value) {
+        return (candidates[cell * words + (value >>> 6)] & (1L << value)) != 0;
+    }
+
+    private int countCandidates(int cell) {
+        int count = 0;
+        for (int word = 0; word < words; word++) {
+            count += Long.bitCount(candidates[cell * words + word]);
+        }
+        return count;
+    }
+
+    private int firstCandidate(int cell) {
+        for (int word = 0; word < words; word++) {
+            long mask = candidates[cell * words + word];
+            if (mask != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(mask);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,71 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Solver based on constraint propagation. <br/>
+ * <br/>
+ * Every cell keeps a bitmask of the values that are still possible. Placing a
+ * value removes it from the candidates of all cells in the same row, column
+ * and segment. The following deductions are repeated until nothing changes:
+ * <ul>
+ * <li>naked single: a cell with exactly one candidate gets that value</li>
+ * <li>hidden single: if a value can only go in one cell of a row, column or
+ * segment that must hold every value, that cell gets the value</li>
+ * </ul>
+ * Only when propagation gets stuck, the solver branches on the cell with the
+ * fewest candidates and propagates again for every trial value. All changes
+ * are recorded on a {@link Trail}, so a failed trial is undone in time
+ * proportional to the number of values and candidates it changed.
+ *
+ * @author dcoppens
+ *
+ */
+public class PropagationSolver implements Solver {
+
+    private SudokuGrid result;
+    private SolverListener listener;
+
+    /**
+     * {@inheritDoc}
+     */
+    public SolveOutcome solve(SudokuGrid grid, Deadline deadline) {
+        SolveRecorder recorder = SolveRecorder.start(listener, grid);
+        DeadlineWatch watch = new DeadlineWatch(deadline);
+        Propagation propagation = new Propagation(grid, recorder, watch);
+
+        boolean solved = false;
+        if (recorder != null) {
+            recorder.node(0);
+        }
+        if (propagation.init(grid)) {
+            // the values of the grid itself are not reported
+            propagation.reportValues();
+            solved = propagation.propagate() && propagation.search(0);
+        }
+
+        if (solved) {
+            propagation.copyTo(grid);
+            result = grid;
+        }
+        SolveOutcome outcome = watch.outcome(solved);
+        if (recorder != null) {
+            recorder.finish(outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SudokuGrid getResult() {
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setListener(SolverListener listener) {
+        this.listener = listener;
+    }
+}
@@ -1,41 +1,41 @@
 package nl.concipit.sudoku.solver;
 
-import nl.concipit.sudoku.model.SudokuCell;
 import nl.concipit.sudoku.model.SudokuGrid;
 
 /**
- * Simple single-threaded solver based on row and column completeness.
+ * Simple single-threaded solver based on row and column completeness. <br/>
+ * <br/>
+ * Backtracking always continues with the empty cell that has the fewest
+ * possible values left; failed trials are undone through the trail of the
+ * grid.
  * 
  * @author dcoppens
  *
  */
 public class SimpleSolver implements Solver {
 
+    private SolverListener listener;
+
     /**
      * {@inheritDoc}
      */
-    public boolean solve(SudokuGrid grid) {
-        boolean solved = false;
-
-        if (grid.isComplete()) {
-            solved = true;
-        } else {
-            SudokuCell cell = getEmptyCell(grid);
-            Integer trialValue = 1;
-            while (!solved && trialValue <= grid.getGridSize()) {
-                if (isLegalValue(grid, cell, trialValue)) {
-                    cell.setValue(trialValue);
-                    if (solve(grid)) {
-                        solved = true;
-                    } else {
-                        cell.setValue(null);
-                    }
-                }
-                trialValue++;
+    public SolveOutcome solve(SudokuGrid grid, Deadline deadline) {
+        SolveRecorder recorder = SolveRecorder.start(listener, grid);
+        DeadlineWatch watch = new DeadlineWatch(deadline);
+        boolean trailing = grid.isTrailing();
+        SolveOutcome outcome;
+        try {
+            outcome = watch.outcome(solve(grid, new CellSelector(grid), 0,
+                    recorder, watch));
+        } finally {
+            if (!trailing) {
+                grid.clearTrail();
             }
         }
-
-        return solved;
+        if (recorder != null) {
+            recorder.finish(outcome);
+        }
+        return outcome;
     }
 
     /**
@@ -46,28 +46,82 @@ public class SimpleSolver implements Solver {
     }
 
     /**
-     * Find an empty cell in the grid
+     * {@inheritDoc}
+     */
+    public void setListener(SolverListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Solves the grid by backtracking, trying the most constrained empty cell
+     * first
      * 
      * @param grid
-     *            Sudoku grid
-     * @return Empty cell or null if none found
+     *            Grid
+     * @param selector
+     *            Selector tracking the empty cells of the grid
+     * @param depth
+     *            Search depth
+     * @param recorder
+     *            Recorder of the solve, null if there is no listener
+     * @param watch
+     *            Watch of the deadline of the solve
+     * @return True if the grid was solved, false otherwise or if the
+     *         deadline expired
      */
-    private SudokuCell getEmptyCell(SudokuGrid grid) {
-        for (int i = 0; i < grid.getGridSize(); i++) {
-            for (int j = 0; j < grid.getGridSize(); j++) {
-                SudokuCell cell = grid.getCell(i, j);
-                if (cell.getValue() == null) {
-                    return cell;
+    private boolean solve(SudokuGrid grid, CellSelector selector, int depth,
+            SolveRecorder recorder, DeadlineWatch watch) {
+        boolean solved = false;
+        if (recorder != null) {
+            recorder.node(depth);
+        }
+        if (watch.expired()) {
+            return false;
+        }
+
+        if (grid.isComplete()) {
+            solved = true;
+        } else {
+            int cell = selector.select();
+            if (cell < 0) {
+                // no empty cell left, but the grid is not complete
+                return false;
+            }
+            int column = cell % grid.getGridSize();
+            int row = cell / grid.getGridSize();
+            int mark = grid.mark();
+            int trialValue = 1;
+            while (!solved && !watch.hasExpired()
+                    && trialValue <= grid.getGridSize()) {
+                if (isLegalValue(grid, column, row, trialValue)) {
+                    grid.setValue(column, row, trialValue);
+                    selector.placed(cell);
+                    if (recorder != null) {
+                        recorder.placed(cell, trialValue);
+                    }
+                    if (solve(grid, selector, depth + 1, recorder, watch)) {
+                        solved = true;
+                    } else {
+                        grid.undo(mark);
+                        selector.removed(cell);
+                        if (recorder != null) {
+                            recorder.removed(cell);
+                            recorder.backtracked(depth);
+                        }
+                    }
                 }
+                trialValue++;
             }
         }
-        return null;
+
+        return solved;
     }
 
     /**
-     * Performs an easy basic check on the defined cell; <br/>
-     * If the row, column or segment of the cell misses exactly 1 value, we know
-     * that this value must be given to the cell and we are done.
+     * Checks whether the value does not occur yet in the row, column or
+     * segment of the cell. <br/>
+     * Deducing the value of a cell whose row, column or segment misses exactly
+     * 1 value is left to {@link PropagationSolver}.
      * 
      * @param grid
      *            Grid
@@ -75,15 +129,13 @@ public class SimpleSolver implements Solver {
      *            Column
      * @param row
      *            Row
-     * @param cellValues
-     *            possible values for the cell
+     * @param value
+     *            value for the cell
      * @return true if the value is legal false otherwise
      */
-    private boolean isLegalValue(SudokuGrid grid, SudokuCell cell, Integer value) {
+    private boolean isLegalValue(SudokuGrid grid, int column, int row,
+            int value) {
         // exclude values in the same column, row or segment
-        return !grid.getValuesInRow(cell.getRow()).contains(value)
-                && !grid.getValuesInColumn(cell.getColumn()).contains(value)
-                && grid.getSegment(cell.getColumn(), cell.getRow())
-                        .getMissingValues().contains(value);
+        return grid.isPossibleValue(column, row, value);
     }
 }
@@ -0,0 +1,161 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import nl.concipit.sudoku.symmetry.CanonicalForm;
+
+/**
+ * Bounded cache of solutions by canonical form, shared by any number of
+ * {@link CachingSolver}s on any number of threads. <br/>
+ * <br/>
+ * The cache is split in segments, each a map in access order guarded by its
+ * own lock; a segment that is full evicts its least recently used entry.
+ * Solutions are stored in the coordinates of the canonical grid. Puzzles
+ * without solution are cached as well.
+ *
+ * @author dcoppens
+ *
+ */
+public class SolutionCache {
+    /** Value of a puzzle that has no solution */
+    static final int[] NO_SOLUTION = new int[0];
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor
+     *
+     * @param capacity
+     *            Maximum number of cached puzzles
+     */
+    public SolutionCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(capacity));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // spread the capacity, the first segments take the remainder
+            segments[i] = new Segment(capacity / count
+                    + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Looks up the solution of a puzzle
+     *
+     * @param key
+     *            Canonical form of the puzzle
+     * @return Canonical solution in row-major order, {@link #NO_SOLUTION} or
+     *         null if the puzzle is not cached
+     */
+    int[] get(CanonicalForm key) {
+        int[] solution = segmentOf(key).get(key);
+        if (solution == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return solution;
+    }
+
+    /**
+     * Stores the solution of a puzzle
+     *
+     * @param key
+     *            Canonical form of the puzzle
+     * @param solution
+     *            Canonical solution in row-major order, or
+     *            {@link #NO_SOLUTION}
+     */
+    void put(CanonicalForm key, int[] solution) {
+        segmentOf(key).put(key, solution);
+    }
+
+    /**
+     * Returns the number of cached puzzles
+     *
+     * @return Size
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups that found the puzzle
+     *
+     * @return Hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find the puzzle
+     *
+     * @return Misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Removes all puzzles
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segmentOf(CanonicalForm key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    /**
+     * Least recently used map with a fixed capacity
+     */
+    private static final class Segment {
+        private final Map<CanonicalForm, int[]> map;
+
+        Segment(final int capacity) {
+            map = new LinkedHashMap<CanonicalForm, int[]>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<CanonicalForm, int[]> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized int[] get(CanonicalForm key) {
+            return map.get(key);
+        }
+
+        synchronized void put(CanonicalForm key, int[] solution) {
+            map.put(key, solution);
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized void clear() {
+            map.clear();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Interface to be implemented by algorithms that count the solutions of a
+ * Sudoku.
+ *
+ * @author dcoppens
+ *
+ */
+public interface SolutionCounter {
+    /**
+     * Counts the solutions of the provided Sudoku, stopping as soon as the
+     * limit is reached; the grid is not changed
+     *
+     * @param grid
+     *            Grid defining the Sudoku
+     * @param limit
+     *            Maximum number of solutions to count, at least 1
+     * @return Number of solutions, at most the limit
+     */
+    long countSolutions(SudokuGrid grid, long limit);
+
+    /**
+     * Checks whether the provided Sudoku has exactly one solution
+     *
+     * @param grid
+     *            Grid defining the Sudoku
+     * @return true if the Sudoku has a unique solution, false if it has none
+     *         or several
+     */
+    default boolean hasUniqueSolution(SudokuGrid grid) {
+        return countSolutions(grid, 2) == 1;
+    }
+}
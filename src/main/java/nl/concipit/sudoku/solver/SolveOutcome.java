@@ -0,0 +1,16 @@
+package nl.concipit.sudoku.solver;
+
+/**
+ * Outcome of {@link Solver#solve(nl.concipit.sudoku.model.SudokuGrid, Deadline)}
+ *
+ * @author dcoppens
+ *
+ */
+public enum SolveOutcome {
+    /** The grid holds a solution */
+    SOLVED,
+    /** The search completed without finding a solution */
+    UNSOLVABLE,
+    /** The deadline passed or was cancelled before the search completed */
+    TIMED_OUT;
+}
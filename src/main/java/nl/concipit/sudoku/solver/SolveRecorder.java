@@ -0,0 +1,111 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Counts the events of one solve and passes them on to a
+ * {@link SolverListener}. <br/>
+ * Solvers only create a recorder when a listener is attached and check for
+ * null before every event, so a solve without listener does no counting. A
+ * recorder is used by one thread; {@link ForkJoinSolver} forks one per task
+ * and merges them once the tasks are done.
+ *
+ * @author dcoppens
+ *
+ */
+final class SolveRecorder {
+    private final SolverListener listener;
+    private final long start;
+
+    private long nodes;
+    private long backtracks;
+    private long propagations;
+    private int depth;
+    private int maxDepth;
+
+    private SolveRecorder(SolverListener listener) {
+        this.listener = listener;
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Starts recording a solve
+     *
+     * @param listener
+     *            Listener, may be null
+     * @param grid
+     *            Grid to solve
+     * @return Recorder, or null if there is no listener
+     */
+    static SolveRecorder start(SolverListener listener, SudokuGrid grid) {
+        if (listener == null) {
+            return null;
+        }
+        listener.solveStarted(grid);
+        return new SolveRecorder(listener);
+    }
+
+    /**
+     * Creates a recorder reporting to the same listener, to be used by
+     * another thread of the same solve
+     *
+     * @return Recorder
+     */
+    SolveRecorder fork() {
+        return new SolveRecorder(listener);
+    }
+
+    /**
+     * Adds the counters of a forked recorder
+     *
+     * @param other
+     *            Recorder returned by {@link #fork()}
+     */
+    void merge(SolveRecorder other) {
+        nodes += other.nodes;
+        backtracks += other.backtracks;
+        propagations += other.propagations;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+    }
+
+    void node(int depth) {
+        this.depth = depth;
+        nodes++;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        listener.nodeVisited(depth);
+    }
+
+    /**
+     * Records a value deduced at the depth of the last node visited
+     */
+    void propagated() {
+        propagations++;
+        listener.valuePropagated(depth);
+    }
+
+    void placed(int cell, int value) {
+        listener.valuePlaced(cell, value);
+    }
+
+    void removed(int cell) {
+        listener.valueRemoved(cell);
+    }
+
+    void backtracked(int depth) {
+        backtracks++;
+        listener.backtracked(depth);
+    }
+
+    /**
+     * Ends the solve and reports its statistics
+     *
+     * @param outcome
+     *            Outcome of the solve
+     */
+    void finish(SolveOutcome outcome) {
+        listener.solveFinished(new SolveStatistics(outcome, nodes, backtracks,
+                propagations, maxDepth, System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,113 @@
+package nl.concipit.sudoku.solver;
+
+/**
+ * Counters of one solve, reported to
+ * {@link SolverListener#solveFinished(SolveStatistics)}.
+ *
+ * @author dcoppens
+ *
+ */
+public class SolveStatistics {
+    private final SolveOutcome outcome;
+    private final long nodes;
+    private final long backtracks;
+    private final long propagations;
+    private final int maxDepth;
+    private final long nanos;
+
+    /**
+     * Constructor
+     *
+     * @param outcome
+     *            Outcome of the solve
+     * @param nodes
+     *            Number of search nodes visited
+     * @param backtracks
+     *            Number of trial values undone
+     * @param propagations
+     *            Number of values deduced by propagation
+     * @param maxDepth
+     *            Deepest search node visited
+     * @param nanos
+     *            Wall time of the solve in nanoseconds
+     */
+    public SolveStatistics(SolveOutcome outcome, long nodes, long backtracks,
+            long propagations, int maxDepth, long nanos) {
+        this.outcome = outcome;
+        this.nodes = nodes;
+        this.backtracks = backtracks;
+        this.propagations = propagations;
+        this.maxDepth = maxDepth;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns whether the grid was solved
+     *
+     * @return true if solved, false otherwise
+     */
+    public boolean isSolved() {
+        return outcome == SolveOutcome.SOLVED;
+    }
+
+    /**
+     * Returns the outcome of the solve
+     *
+     * @return Outcome
+     */
+    public SolveOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Returns the number of search nodes visited, including the root
+     *
+     * @return Number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of trial values that were undone
+     *
+     * @return Number of backtracks
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Returns the number of values deduced by propagation
+     *
+     * @return Number of propagation steps
+     */
+    public long getPropagations() {
+        return propagations;
+    }
+
+    /**
+     * Returns the depth of the deepest search node visited
+     *
+     * @return Maximum depth, 0 if only the root was visited
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the wall time of the solve
+     *
+     * @return Time in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return outcome + " nodes=" + nodes + " backtracks="
+                + backtracks + " propagations=" + propagations + " maxDepth="
+                + maxDepth + " time=" + nanos / 1000 + "us";
+    }
+}
@@ -0,0 +1,129 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Listener recording the value changes of a solve as a compact event
+ * stream, to be replayed on the puzzle afterwards. <br/>
+ * <br/>
+ * Every event is packed into one int: the row-major index of the cell in the
+ * upper 16 bits and the value in the lower 16 bits, 0 for a cell emptied on
+ * backtracking. Recording an event is an append to an array, so a solver
+ * with a trace attached stays within a small factor of its speed without
+ * listener. A trace records one solve at a time; a new solve discards the
+ * events of the previous one.
+ *
+ * @author dcoppens
+ *
+ */
+public final class SolveTrace implements SolverListener {
+    /** Largest number of cells whose index fits in an event */
+    public static final int MAX_CELLS = 1 << 16;
+
+    private int[] events = new int[1024];
+    private int size;
+    private int gridSize;
+
+    /**
+     * Discards the events of the previous solve
+     *
+     * @throws IllegalArgumentException
+     *             if the grid has more than {@link #MAX_CELLS} cells
+     */
+    @Override
+    public void solveStarted(SudokuGrid grid) {
+        if (grid.getGridSize() * grid.getGridSize() > MAX_CELLS) {
+            throw new IllegalArgumentException();
+        }
+        gridSize = grid.getGridSize();
+        size = 0;
+    }
+
+    @Override
+    public void valuePlaced(int cell, int value) {
+        append(cell << 16 | value);
+    }
+
+    @Override
+    public void valueRemoved(int cell) {
+        append(cell << 16);
+    }
+
+    /**
+     * Returns the size of the grid of the recorded solve
+     *
+     * @return Grid size
+     */
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * Returns the number of recorded events
+     *
+     * @return Number of events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the cell changed by an event
+     *
+     * @param index
+     *            Index of the event
+     * @return Row-major index of the cell
+     */
+    public int getCell(int index) {
+        return event(index) >>> 16;
+    }
+
+    /**
+     * Returns the value set by an event
+     *
+     * @param index
+     *            Index of the event
+     * @return Value, 0 if the cell was emptied
+     */
+    public int getValue(int index) {
+        return event(index) & 0xffff;
+    }
+
+    /**
+     * Applies the events from one index up to another to a grid holding the
+     * state before the first of them
+     *
+     * @param grid
+     *            Grid of the recorded solve
+     * @param from
+     *            Index of the first event to apply
+     * @param to
+     *            Index after the last event to apply
+     */
+    public void replay(SudokuGrid grid, int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException();
+        }
+        for (int index = from; index < to; index++) {
+            int cell = events[index] >>> 16;
+            grid.setValue(cell % gridSize, cell / gridSize,
+                    events[index] & 0xffff);
+        }
+    }
+
+    private int event(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return events[index];
+    }
+
+    private void append(int event) {
+        if (size == events.length) {
+            int[] grown = new int[2 * size];
+            System.arraycopy(events, 0, grown, 0, size);
+            events = grown;
+        }
+        events[size++] = event;
+    }
+}
@@ -3,7 +3,13 @@ package nl.concipit.sudoku.solver;
 import nl.concipit.sudoku.model.SudokuGrid;
 
 /**
- * Interface to be implemented by Sudoku-solving algorithms.
+ * Interface to be implemented by Sudoku-solving algorithms. <br/>
+ * <br/>
+ * Implementations have to implement {@link #solve(SudokuGrid, Deadline)};
+ * {@link #solve(SudokuGrid)} solves without deadline through it. This breaks
+ * implementations written before deadlines were introduced, which implemented
+ * solve(SudokuGrid) only: they no longer compile until their search moves to
+ * solve(SudokuGrid, Deadline) and returns a {@link SolveOutcome}.
  * 
  * @author dcoppens
  *
@@ -17,7 +23,23 @@ public interface Solver {
      * @return True if the algorithm was able to solve the Sudoku, false
      *         otherwise
      */
-    boolean solve(SudokuGrid grid);
+    default boolean solve(SudokuGrid grid) {
+        return solve(grid, Deadline.NONE) == SolveOutcome.SOLVED;
+    }
+
+    /**
+     * Solve the provided Sudoku, giving up once the deadline has passed or is
+     * cancelled. <br/>
+     * Unless the outcome is {@link SolveOutcome#SOLVED}, the grid holds its
+     * original values again when this method returns.
+     * 
+     * @param grid
+     *            Grid defining the Sudoku
+     * @param deadline
+     *            Deadline of the solve
+     * @return Outcome
+     */
+    SolveOutcome solve(SudokuGrid grid, Deadline deadline);
     
     /**
      * Returns the last solved Sudoku grid.
@@ -25,4 +47,16 @@ public interface Solver {
      * @return Result grid, or null if no grid was solved
      */
     SudokuGrid getResult();
+
+    /**
+     * Attaches a listener that is notified of the progress of every
+     * following solve. <br/>
+     * Solvers that do not report their progress ignore the listener.
+     * 
+     * @param listener
+     *            Listener, or null to stop notifying
+     */
+    default void setListener(SolverListener listener) {
+        // progress is not reported
+    }
 }
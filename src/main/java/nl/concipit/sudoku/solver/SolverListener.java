@@ -0,0 +1,86 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Observer of the search performed by a {@link Solver}. <br/>
+ * <br/>
+ * All methods do nothing by default, so implementations only override the
+ * events they are interested in. Solvers without a listener do not create
+ * any events. Listeners of {@link ForkJoinSolver} are called from several
+ * threads at once.
+ *
+ * @author dcoppens
+ *
+ */
+public interface SolverListener {
+
+    /**
+     * Called before the search starts
+     *
+     * @param grid
+     *            Grid to solve
+     */
+    default void solveStarted(SudokuGrid grid) {
+    }
+
+    /**
+     * Called when the search enters a node of the search tree
+     *
+     * @param depth
+     *            Depth of the node, 0 for the root
+     */
+    default void nodeVisited(int depth) {
+    }
+
+    /**
+     * Called when the search places a value in a cell, by trial or by
+     * propagation. Together with {@link #valueRemoved(int)} this describes
+     * every change the search makes to the grid, so replaying the events on
+     * the puzzle ends in the solution. Reported by {@link SimpleSolver},
+     * {@link PropagationSolver} and {@link BitboardSolver}.
+     *
+     * @param cell
+     *            Row-major index of the cell
+     * @param value
+     *            Value
+     */
+    default void valuePlaced(int cell, int value) {
+    }
+
+    /**
+     * Called when the search empties a cell again on backtracking
+     *
+     * @param cell
+     *            Row-major index of the cell
+     */
+    default void valueRemoved(int cell) {
+    }
+
+    /**
+     * Called when propagation deduces the value of a cell
+     *
+     * @param depth
+     *            Depth of the node that is propagating
+     */
+    default void valuePropagated(int depth) {
+    }
+
+    /**
+     * Called when a trial value turns out to be wrong and is undone
+     *
+     * @param depth
+     *            Depth of the node that tried the value
+     */
+    default void backtracked(int depth) {
+    }
+
+    /**
+     * Called after the search has finished
+     *
+     * @param statistics
+     *            Statistics of the solve
+     */
+    default void solveFinished(SolveStatistics statistics) {
+    }
+}
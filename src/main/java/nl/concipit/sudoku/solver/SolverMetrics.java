@@ -0,0 +1,224 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener aggregating the statistics of many solves, for instance of a
+ * {@link BatchSolver} run. <br/>
+ * <br/>
+ * Counters are summed over all solves; wall time and search nodes per solve
+ * are also kept in histograms so outliers show up. The listener only uses
+ * the statistics reported at the end of every solve, and can be shared by
+ * solvers running on different threads.
+ *
+ * @author dcoppens
+ *
+ */
+public class SolverMetrics implements SolverListener {
+    private final LongAdder solves = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final LongAdder propagations = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final Histogram latency = new Histogram();
+    private final Histogram nodesPerSolve = new Histogram();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void solveFinished(SolveStatistics statistics) {
+        solves.increment();
+        if (statistics.getOutcome() == SolveOutcome.SOLVED) {
+            solved.increment();
+        } else if (statistics.getOutcome() == SolveOutcome.TIMED_OUT) {
+            timedOut.increment();
+        }
+        nodes.add(statistics.getNodes());
+        backtracks.add(statistics.getBacktracks());
+        propagations.add(statistics.getPropagations());
+        maxDepth.accumulate(statistics.getMaxDepth());
+        latency.record(statistics.getNanos());
+        nodesPerSolve.record(statistics.getNodes());
+    }
+
+    /**
+     * Returns the number of finished solves
+     *
+     * @return Number of solves
+     */
+    public long getSolves() {
+        return solves.sum();
+    }
+
+    /**
+     * Returns the number of solves that found a solution
+     *
+     * @return Number of solved grids
+     */
+    public long getSolved() {
+        return solved.sum();
+    }
+
+    /**
+     * Returns the number of solves that gave up at their deadline
+     *
+     * @return Number of timed out solves
+     */
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    /**
+     * Returns the number of search nodes visited by all solves
+     *
+     * @return Number of nodes
+     */
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * Returns the number of trial values undone by all solves
+     *
+     * @return Number of backtracks
+     */
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+
+    /**
+     * Returns the number of values deduced by propagation in all solves
+     *
+     * @return Number of propagation steps
+     */
+    public long getPropagations() {
+        return propagations.sum();
+    }
+
+    /**
+     * Returns the deepest search node visited by any solve
+     *
+     * @return Maximum depth
+     */
+    public int getMaxDepth() {
+        return (int) maxDepth.get();
+    }
+
+    /**
+     * Returns the histogram of the wall time per solve, in nanoseconds
+     *
+     * @return Histogram
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the histogram of the search nodes per solve
+     *
+     * @return Histogram
+     */
+    public Histogram getNodesPerSolve() {
+        return nodesPerSolve;
+    }
+
+    @Override
+    public String toString() {
+        return "solves=" + getSolves() + " solved=" + getSolved()
+                + " timedOut=" + getTimedOut() + " nodes="
+                + getNodes() + " backtracks=" + getBacktracks()
+                + " propagations=" + getPropagations() + " maxDepth="
+                + getMaxDepth() + " p50=" + latency.getPercentile(0.5) / 1000
+                + "us p99=" + latency.getPercentile(0.99) / 1000 + "us max="
+                + latency.getPercentile(1.0) / 1000 + "us";
+    }
+
+    /**
+     * Histogram of non-negative values with power of two buckets: bucket 0
+     * holds 0, bucket b holds the values from 2^(b-1) up to 2^b - 1.
+     */
+    public static final class Histogram {
+        /** Number of buckets, enough for every non-negative long */
+        public static final int BUCKETS = 64;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        /**
+         * Adds a value
+         *
+         * @param value
+         *            Value, negative values are counted as 0
+         */
+        public void record(long value) {
+            counts.incrementAndGet(bucketOf(Math.max(0L, value)));
+        }
+
+        /**
+         * Returns the number of values added
+         *
+         * @return Count
+         */
+        public long getCount() {
+            long count = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                count += counts.get(bucket);
+            }
+            return count;
+        }
+
+        /**
+         * Returns the number of values in a bucket
+         *
+         * @param bucket
+         *            Bucket, from 0 up to but not including {@link #BUCKETS}
+         * @return Count
+         */
+        public long getCount(int bucket) {
+            return counts.get(bucket);
+        }
+
+        /**
+         * Returns an upper bound of the specified percentile: the largest
+         * value of the bucket holding it
+         *
+         * @param fraction
+         *            Percentile as a fraction, from 0 up to and including 1
+         * @return Upper bound, 0 if no values were added
+         */
+        public long getPercentile(double fraction) {
+            if (fraction < 0 || fraction > 1) {
+                throw new IllegalArgumentException();
+            }
+            long[] snapshot = new long[BUCKETS];
+            long count = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                snapshot[bucket] = counts.get(bucket);
+                count += snapshot[bucket];
+            }
+
+            long rank = Math.max(1L, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += snapshot[bucket];
+                if (seen >= rank && snapshot[bucket] > 0) {
+                    return upperBound(bucket);
+                }
+            }
+            return 0L;
+        }
+
+        private static int bucketOf(long value) {
+            return 64 - Long.numberOfLeadingZeros(value);
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket == BUCKETS - 1 ? Long.MAX_VALUE
+                    : (1L << bucket) - 1;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package nl.concipit.sudoku.solver;
+
+/**
+ * Undo log of the assigned values and candidate masks of a search. <br/>
+ * <br/>
+ * Every change is made through the trail, which records the previous content
+ * of the changed slot. Undoing to a mark restores the slots changed since, in
+ * reverse order, so backtracking costs time proportional to the number of
+ * changes instead of copying or rescanning the whole state. Value changes can
+ * be reported to a {@link SolveRecorder}.
+ *
+ * @author dcoppens
+ *
+ */
+final class Trail {
+    private final int[] values;
+    private final long[] candidates;
+
+    /** Changed slots: the cell of a value, or ~index of a candidate word */
+    private int[] slots;
+
+    /** Previous content of the changed slots */
+    private long[] previous;
+    private int size;
+
+    /** Recorder of the value changes, null if they are not reported */
+    private SolveRecorder recorder;
+
+    /**
+     * Constructor
+     *
+     * @param values
+     *            Assigned values, changed through this trail
+     * @param candidates
+     *            Candidate masks, changed through this trail
+     */
+    Trail(int[] values, long[] candidates) {
+        this.values = values;
+        this.candidates = candidates;
+        int capacity = Math.max(16, values.length);
+        slots = new int[capacity];
+        previous = new long[capacity];
+    }
+
+    /**
+     * Reports the value changes made from now on, including those undone
+     *
+     * @param recorder
+     *            Recorder, null to stop reporting
+     */
+    void report(SolveRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Returns a mark of the current state
+     *
+     * @return Mark to pass to {@link #undo(int)}
+     */
+    int mark() {
+        return size;
+    }
+
+    /**
+     * Returns the number of recorded changes
+     *
+     * @return Number of changes
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Assigns a value to a cell
+     *
+     * @param cell
+     *            Cell
+     * @param value
+     *            Value, 0 to empty the cell
+     */
+    void setValue(int cell, int value) {
+        if (values[cell] != value) {
+            record(cell, values[cell]);
+            values[cell] = value;
+            if (recorder != null) {
+                reportValue(cell, value);
+            }
+        }
+    }
+
+    /**
+     * Replaces a word of the candidate masks
+     *
+     * @param index
+     *            Index of the word
+     * @param mask
+     *            New content of the word
+     */
+    void setCandidates(int index, long mask) {
+        if (candidates[index] != mask) {
+            record(~index, candidates[index]);
+            candidates[index] = mask;
+        }
+    }
+
+    /**
+     * Restores the state at the mark
+     *
+     * @param mark
+     *            Mark returned by {@link #mark()}
+     */
+    void undo(int mark) {
+        while (size > mark) {
+            size--;
+            int slot = slots[size];
+            if (slot >= 0) {
+                values[slot] = (int) previous[size];
+                if (recorder != null) {
+                    reportValue(slot, values[slot]);
+                }
+            } else {
+                candidates[~slot] = previous[size];
+            }
+        }
+    }
+
+    private void reportValue(int cell, int value) {
+        if (value == 0) {
+            recorder.removed(cell);
+        } else {
+            recorder.placed(cell, value);
+        }
+    }
+
+    private void record(int slot, long value) {
+        if (size == slots.length) {
+            int[] grownSlots = new int[2 * size];
+            long[] grownPrevious = new long[2 * size];
+            System.arraycopy(slots, 0, grownSlots, 0, size);
+            System.arraycopy(previous, 0, grownPrevious, 0, size);
+            slots = grownSlots;
+            previous = grownPrevious;
+        }
+        slots[size] = slot;
+        previous[size] = value;
+        size++;
+    }
+}
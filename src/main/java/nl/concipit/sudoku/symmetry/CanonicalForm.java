@@ -0,0 +1,136 @@
+package nl.concipit.sudoku.symmetry;
+
+import java.util.Arrays;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Canonical form of a grid: the representative of all grids equivalent under
+ * the symmetries of {@link GridTransform}, as computed by
+ * {@link Canonicalizer}. Two grids are equivalent exactly when their
+ * canonical forms are equal.
+ *
+ * @author dcoppens
+ *
+ */
+public final class CanonicalForm {
+    private final int gridSize;
+    private final int segmentSize;
+    private final int[] values;
+    private final GridTransform transform;
+    private final int hash;
+
+    /**
+     * Constructor
+     *
+     * @param gridSize
+     *            Size of the grid
+     * @param segmentSize
+     *            Size of the segments
+     * @param values
+     *            Values of the canonical grid in row-major order, 0 for an
+     *            empty cell
+     * @param transform
+     *            Transform mapping the original grid onto the canonical grid
+     */
+    CanonicalForm(int gridSize, int segmentSize, int[] values,
+            GridTransform transform) {
+        this.gridSize = gridSize;
+        this.segmentSize = segmentSize;
+        this.values = values;
+        this.transform = transform;
+        this.hash = 31 * (31 * gridSize + segmentSize)
+                + Arrays.hashCode(values);
+    }
+
+    /**
+     * Returns the transform mapping the original grid onto the canonical
+     * grid; its inverse maps the canonical grid, and its solution, back
+     *
+     * @return Transform
+     */
+    public GridTransform getTransform() {
+        return transform;
+    }
+
+    /**
+     * Returns the value of a cell of the canonical grid
+     *
+     * @param column
+     *            Column
+     * @param row
+     *            Row
+     * @return Value, 0 if empty
+     */
+    public int getValue(int column, int row) {
+        return values[row * gridSize + column];
+    }
+
+    /**
+     * Returns the fingerprint of the canonical grid; equivalent grids have
+     * equal fingerprints
+     *
+     * @return Fingerprint
+     */
+    public Fingerprint getFingerprint() {
+        return Fingerprint.of(gridSize, segmentSize, values);
+    }
+
+    /**
+     * Creates the canonical grid
+     *
+     * @return New grid
+     */
+    public SudokuGrid toGrid() {
+        SudokuGrid grid = new SudokuGrid(gridSize, segmentSize);
+        for (int cell = 0; cell < values.length; cell++) {
+            if (values[cell] != 0) {
+                grid.setValue(cell % gridSize, cell / gridSize, values[cell]);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Equal if the canonical grids are equal, regardless of the transform
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof CanonicalForm)) {
+            return false;
+        }
+        CanonicalForm other = (CanonicalForm) object;
+        return hash == other.hash && gridSize == other.gridSize
+                && segmentSize == other.segmentSize
+                && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Returns the cells in row-major order, '.' for an empty cell; values are
+     * separated by spaces if they can have more than one digit
+     */
+    @Override
+    public String toString() {
+        boolean separated = segmentSize * segmentSize > 9;
+        StringBuilder builder = new StringBuilder(values.length * 2);
+        for (int cell = 0; cell < values.length; cell++) {
+            if (separated && cell > 0) {
+                builder.append(' ');
+            }
+            if (values[cell] == 0) {
+                builder.append('.');
+            } else {
+                builder.append(values[cell]);
+            }
+        }
+        return builder.toString();
+    }
+}
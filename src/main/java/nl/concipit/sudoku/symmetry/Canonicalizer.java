@@ -0,0 +1,737 @@
+package nl.concipit.sudoku.symmetry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.solver.Deadline;
+
+/**
+ * Computes the canonical form of a grid under the symmetries of
+ * {@link GridTransform}. <br/>
+ * <br/>
+ * The canonical grid is the smallest of all equivalent grids when comparing
+ * cells in row-major order, with empty cells comparing greater than every
+ * value. For a given order of rows and columns, the smallest relabeling
+ * numbers the values in order of first appearance, so only transposition and
+ * the row and column permutations are searched. The search fills the result
+ * row by row and abandons a branch as soon as it compares greater than the
+ * best grid found so far. Columns are not ordered until a row tells them
+ * apart, so empty columns and columns of values that have not been referred
+ * to yet cost no branching; empty rows and bands are tried only once. <br/>
+ * The search can still explode on grids with many symmetries; it gives up
+ * after a maximum number of search nodes, or when its deadline passes.
+ *
+ * @author dcoppens
+ *
+ */
+public class Canonicalizer {
+    /** Default maximum number of search nodes */
+    public static final long DEFAULT_MAX_NODES = 1000000L;
+
+    /** Number of search nodes between two polls of the deadline */
+    private static final int DEADLINE_INTERVAL = 256;
+
+    /** Number of grids per task of a parallel run */
+    private static final int CHUNK_SIZE = 256;
+
+    private final long maxNodes;
+
+    /**
+     * Constructor using the default maximum number of search nodes
+     */
+    public Canonicalizer() {
+        this(DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxNodes
+     *            Maximum number of search nodes per grid
+     */
+    public Canonicalizer(long maxNodes) {
+        if (maxNodes < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Computes the canonical form of the grid
+     *
+     * @param grid
+     *            Grid, not modified
+     * @return Canonical form, or null if the search needed more than the
+     *         maximum number of nodes
+     */
+    public CanonicalForm canonicalize(SudokuGrid grid) {
+        return canonicalize(grid, Deadline.NONE);
+    }
+
+    /**
+     * Computes the canonical form of the grid, giving up when the deadline
+     * passes
+     *
+     * @param grid
+     *            Grid, not modified
+     * @param deadline
+     *            Deadline of the search
+     * @return Canonical form, or null if the search needed more than the
+     *         maximum number of nodes or the deadline passed
+     */
+    public CanonicalForm canonicalize(SudokuGrid grid, Deadline deadline) {
+        return new Search(grid, maxNodes, deadline).run();
+    }
+
+    /**
+     * Computes the canonical forms of many grids in parallel. <br/>
+     * The grids are canonicalized in chunks, one task per chunk, so a large
+     * corpus does not create a task per grid.
+     *
+     * @param grids
+     *            Grids, not modified
+     * @param executor
+     *            Executor canonicalizing the chunks
+     * @return Canonical forms in the order of the grids, null where the search
+     *         needed more than the maximum number of nodes
+     */
+    public List<CanonicalForm> canonicalize(List<SudokuGrid> grids,
+            ExecutorService executor) {
+        List<Future<List<CanonicalForm>>> futures = new ArrayList<Future<List<CanonicalForm>>>();
+        for (int from = 0; from < grids.size(); from += CHUNK_SIZE) {
+            final List<SudokuGrid> chunk = grids.subList(from,
+                    Math.min(from + CHUNK_SIZE, grids.size()));
+            futures.add(executor.submit(() -> {
+                List<CanonicalForm> forms = new ArrayList<CanonicalForm>(
+                        chunk.size());
+                for (SudokuGrid grid : chunk) {
+                    forms.add(canonicalize(grid));
+                }
+                return forms;
+            }));
+        }
+
+        List<CanonicalForm> forms = new ArrayList<CanonicalForm>(grids.size());
+        try {
+            for (Future<List<CanonicalForm>> future : futures) {
+                forms.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<List<CanonicalForm>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return forms;
+    }
+
+    /**
+     * Search for the smallest equivalent grid. <br/>
+     * <br/>
+     * Rows of the result are chosen one at a time. Columns are only ordered
+     * as far as the rows chosen so far tell them apart: positions whose
+     * columns are still interchangeable form a cell, and slots whose stacks
+     * are still interchangeable form a run. Labels are given to positions
+     * rather than to values, so the columns of values that appear for the
+     * first time in the same cell stay interchangeable as well; a later row
+     * that refers to one of those values moves its column to the front of the
+     * cell. Changes to the column order are logged on a trail and undone when
+     * backtracking.
+     */
+    private static final class Search {
+        /** Key of an empty cell, greater than every label */
+        private static final int EMPTY = Integer.MAX_VALUE;
+
+        private final int gridSize;
+        private final int segmentSize;
+        private final int cells;
+        private final long maxNodes;
+        private final Deadline deadline;
+
+        /** Values in row-major order of the grid and of its transpose */
+        private final int[][] sources = new int[2][];
+        private int[] source;
+        private boolean transposed;
+
+        /** Empty rows and bands of the current source */
+        private final boolean[] emptyRows;
+        private final boolean[] emptyBands;
+
+        /** Source row and band of every row and band of the result */
+        private final int[] rows;
+        private final int[] bands;
+        private final boolean[] usedRows;
+        private final boolean[] usedBands;
+
+        /** Source column at every position, and position of every column */
+        private final int[] order;
+        private final int[] where;
+
+        /** 1 where a cell of interchangeable columns starts, and at the end */
+        private final int[] cellStart;
+
+        /** 1 where a run of interchangeable stacks starts, and at the end */
+        private final int[] runStart;
+
+        /**
+         * Row of the result and source column where a value appears first,
+         * row -1 if it did not appear yet
+         */
+        private final int[] firstRow;
+        private final int[] firstColumn;
+
+        /** Label of the value appearing first at a position of a row */
+        private final int[][] reserved;
+        private int nextLabel;
+
+        /** Changes to the arrays above: array, index and previous value */
+        private int[][] trailArrays;
+        private int[] trailIndices;
+        private int[] trailValues;
+        private int trailSize;
+
+        /** Keys of the best grid found so far, valid below bestEnd */
+        private final int[] best;
+        private int bestEnd;
+        private boolean bestTransposed;
+        private final int[] bestRows;
+        private final int[] bestColumns;
+        private final int[] bestLabels;
+
+        private long nodes;
+        private boolean aborted;
+
+        Search(SudokuGrid grid, long maxNodes, Deadline deadline) {
+            this.gridSize = grid.getGridSize();
+            this.segmentSize = grid.getSegmentSize();
+            this.cells = gridSize * gridSize;
+            this.maxNodes = maxNodes;
+            this.deadline = deadline;
+
+            sources[0] = new int[cells];
+            sources[1] = new int[cells];
+            for (int row = 0; row < gridSize; row++) {
+                for (int column = 0; column < gridSize; column++) {
+                    int value = grid.getValue(column, row);
+                    sources[0][row * gridSize + column] = value;
+                    sources[1][column * gridSize + row] = value;
+                }
+            }
+
+            int segments = gridSize / segmentSize;
+            emptyRows = new boolean[gridSize];
+            emptyBands = new boolean[segments];
+            rows = new int[gridSize];
+            bands = new int[segments];
+            usedRows = new boolean[gridSize];
+            usedBands = new boolean[segments];
+
+            // every stack a cell, all stacks one run
+            order = new int[gridSize];
+            where = new int[gridSize];
+            cellStart = new int[gridSize + 1];
+            for (int column = 0; column < gridSize; column++) {
+                order[column] = column;
+                where[column] = column;
+            }
+            for (int position = 0; position <= gridSize;
+                    position += segmentSize) {
+                cellStart[position] = 1;
+            }
+            runStart = new int[segments + 1];
+            runStart[0] = 1;
+            runStart[segments] = 1;
+
+            int maxValue = segmentSize * segmentSize;
+            firstRow = new int[maxValue + 1];
+            firstColumn = new int[maxValue + 1];
+            Arrays.fill(firstRow, -1);
+            reserved = new int[gridSize][gridSize];
+            trailArrays = new int[4 * gridSize][];
+            trailIndices = new int[4 * gridSize];
+            trailValues = new int[4 * gridSize];
+
+            best = new int[cells];
+            bestRows = new int[gridSize];
+            bestColumns = new int[gridSize];
+            bestLabels = new int[maxValue + 1];
+        }
+
+        CanonicalForm run() {
+            for (int transpose = 0; transpose < 2 && !aborted; transpose++) {
+                transposed = transpose == 1;
+                source = sources[transpose];
+                findEmptyRows();
+                row(0, false);
+            }
+            if (aborted) {
+                return null;
+            }
+
+            int[] values = new int[cells];
+            for (int cell = 0; cell < cells; cell++) {
+                values[cell] = best[cell] == EMPTY ? 0 : best[cell];
+            }
+            // values missing from the grid get the remaining labels
+            int label = 0;
+            for (int value = 1; value < bestLabels.length; value++) {
+                label = Math.max(label, bestLabels[value]);
+            }
+            for (int value = 1; value < bestLabels.length; value++) {
+                if (bestLabels[value] == 0) {
+                    bestLabels[value] = ++label;
+                }
+            }
+            return new CanonicalForm(gridSize, segmentSize, values,
+                    new GridTransform(segmentSize, bestTransposed, bestRows,
+                            bestColumns, bestLabels));
+        }
+
+        /**
+         * Counts a search node
+         *
+         * @return true if the search has to give up
+         */
+        private boolean giveUp() {
+            if (++nodes > maxNodes || (nodes % DEADLINE_INTERVAL == 0
+                    && deadline.isExpired())) {
+                aborted = true;
+            }
+            return aborted;
+        }
+
+        private void findEmptyRows() {
+            Arrays.fill(emptyRows, true);
+            for (int cell = 0; cell < cells; cell++) {
+                if (source[cell] != 0) {
+                    emptyRows[cell / gridSize] = false;
+                }
+            }
+            for (int band = 0; band < emptyBands.length; band++) {
+                emptyBands[band] = true;
+                for (int i = 0; i < segmentSize; i++) {
+                    emptyBands[band] &= emptyRows[band * segmentSize + i];
+                }
+            }
+        }
+
+        /**
+         * Chooses the source row of the specified row of the result
+         *
+         * @param row
+         *            Row of the result
+         * @param improved
+         *            Whether the current branch improved the best grid
+         */
+        private void row(int row, boolean improved) {
+            if (row == gridSize) {
+                if (improved) {
+                    record();
+                }
+                return;
+            }
+            if (row % segmentSize != 0) {
+                rowsOfBand(row, bands[row / segmentSize], improved);
+                return;
+            }
+            boolean triedEmpty = false;
+            for (int band = 0; band < usedBands.length && !aborted; band++) {
+                if (usedBands[band] || (emptyBands[band] && triedEmpty)) {
+                    continue;
+                }
+                triedEmpty |= emptyBands[band];
+                usedBands[band] = true;
+                bands[row / segmentSize] = band;
+                rowsOfBand(row, band, improved);
+                usedBands[band] = false;
+            }
+        }
+
+        private void rowsOfBand(int row, int band, boolean improved) {
+            boolean triedEmpty = false;
+            for (int source = band * segmentSize; source < (band + 1)
+                    * segmentSize
+                    && !aborted; source++) {
+                if (usedRows[source] || (emptyRows[source] && triedEmpty)) {
+                    continue;
+                }
+                triedEmpty |= emptyRows[source];
+                if (giveUp()) {
+                    return;
+                }
+                usedRows[source] = true;
+                rows[row] = source;
+                place(row, 0, improved);
+                usedRows[source] = false;
+            }
+        }
+
+        /**
+         * Fills a row of the result from the specified position on, and
+         * continues with the next row unless it compares greater than the
+         * best grid. Positions holding a single column are filled here;
+         * cells and runs that leave a choice are passed on.
+         *
+         * @param row
+         *            Row of the result
+         * @param position
+         *            First position to fill, the start of a cell
+         * @param improved
+         *            Whether the current branch improved the best grid
+         */
+        private void place(int row, int position, boolean improved) {
+            int mark = trailSize;
+            int labelMark = nextLabel;
+            int offset = rows[row] * gridSize;
+            for (; position < gridSize; position++) {
+                if (position % segmentSize == 0
+                        && runStart[position / segmentSize + 1] == 0) {
+                    stacks(row, position / segmentSize, improved);
+                    break;
+                }
+                if (!isFixed(position)) {
+                    cell(row, position, improved);
+                    break;
+                }
+                int column = order[position];
+                int value = source[offset + column];
+                int key;
+                if (value == 0) {
+                    key = EMPTY;
+                } else if (firstRow[value] < 0) {
+                    key = appear(row, position, column, value);
+                } else {
+                    key = label(value, column, position);
+                    resolve(value);
+                }
+                int compared = compare(row * gridSize + position, key);
+                if (compared > 0) {
+                    break;
+                }
+                improved |= compared < 0;
+            }
+            if (position == gridSize) {
+                row(row + 1, improved);
+            }
+            nextLabel = labelMark;
+            undo(mark);
+        }
+
+        /**
+         * Fills the first slot of a run of interchangeable stacks with every
+         * stack that is not empty in the row; if they are all empty, the run
+         * is kept
+         */
+        private void stacks(int row, int slot, boolean improved) {
+            int end = slot + 1;
+            while (runStart[end] == 0) {
+                end++;
+            }
+            int offset = rows[row] * gridSize;
+            boolean empty = true;
+            for (int i = slot; i < end && !aborted; i++) {
+                if (isEmpty(offset, order[i * segmentSize])) {
+                    continue;
+                }
+                empty = false;
+                if (giveUp()) {
+                    return;
+                }
+                int mark = trailSize;
+                for (int j = 0; j < segmentSize; j++) {
+                    swap(i * segmentSize + j, slot * segmentSize + j);
+                }
+                set(runStart, slot + 1, 1);
+                place(row, slot * segmentSize, improved);
+                undo(mark);
+            }
+            if (empty) {
+                skip(row, slot * segmentSize, end * segmentSize, improved);
+            }
+        }
+
+        /**
+         * Fills a cell of interchangeable columns. The smallest label goes
+         * first, trying every column that gives it; values appearing for the
+         * first time follow and stay interchangeable, as do the empty cells
+         * after them.
+         */
+        private void cell(int row, int position, boolean improved) {
+            int end = position + 1;
+            while (cellStart[end] == 0) {
+                end++;
+            }
+            int offset = rows[row] * gridSize;
+            int min = EMPTY;
+            boolean appearing = false;
+            for (int i = position; i < end; i++) {
+                int value = source[offset + order[i]];
+                if (value != 0) {
+                    if (firstRow[value] < 0) {
+                        appearing = true;
+                    } else {
+                        min = Math.min(min, label(value, order[i], position));
+                    }
+                }
+            }
+
+            if (min != EMPTY) {
+                for (int i = position; i < end && !aborted; i++) {
+                    int column = order[i];
+                    int value = source[offset + column];
+                    if (value == 0 || firstRow[value] < 0
+                            || label(value, column, position) != min) {
+                        continue;
+                    }
+                    int mark = trailSize;
+                    fix(column, position);
+                    resolve(value);
+                    next(row, position, min, improved);
+                    undo(mark);
+                }
+            } else if (!appearing) {
+                skip(row, position, end, improved);
+            } else if (!gather(row, position, end, improved)) {
+                // a value appearing twice, only in grids with conflicting
+                // values: try every column first
+                for (int i = position; i < end && !aborted; i++) {
+                    int column = order[i];
+                    int value = source[offset + column];
+                    if (value == 0) {
+                        continue;
+                    }
+                    int mark = trailSize;
+                    fix(column, position);
+                    int key = appear(row, position, column, value);
+                    next(row, position, key, improved);
+                    nextLabel--;
+                    undo(mark);
+                }
+            }
+        }
+
+        /**
+         * Moves the columns of the values appearing for the first time to the
+         * front of the cell, labels them by position and continues after the
+         * cell
+         *
+         * @return false if a value appears twice, leaving the cell unchanged
+         */
+        private boolean gather(int row, int position, int end,
+                boolean improved) {
+            if (giveUp()) {
+                return true;
+            }
+            int mark = trailSize;
+            int labelMark = nextLabel;
+            int offset = rows[row] * gridSize;
+            int appeared = position;
+            for (int i = position; i < end; i++) {
+                int column = order[i];
+                int value = source[offset + column];
+                if (value != 0) {
+                    if (firstRow[value] >= 0) {
+                        nextLabel = labelMark;
+                        undo(mark);
+                        return false;
+                    }
+                    swap(i, appeared);
+                    appear(row, appeared++, column, value);
+                }
+            }
+            if (appeared < end) {
+                set(cellStart, appeared, 1);
+            }
+
+            boolean worse = false;
+            for (int i = position; i < end && !worse; i++) {
+                int compared = compare(row * gridSize + i,
+                        i < appeared ? reserved[row][i] : EMPTY);
+                worse = compared > 0;
+                improved |= compared < 0;
+            }
+            if (!worse) {
+                place(row, end, improved);
+            }
+            nextLabel = labelMark;
+            undo(mark);
+            return true;
+        }
+
+        /**
+         * Compares a position holding a single column and continues with the
+         * next position
+         */
+        private void next(int row, int position, int key, boolean improved) {
+            if (giveUp()) {
+                return;
+            }
+            int compared = compare(row * gridSize + position, key);
+            if (compared <= 0) {
+                place(row, position + 1, improved || compared < 0);
+            }
+        }
+
+        /**
+         * Compares empty positions and continues after them
+         */
+        private void skip(int row, int from, int to, boolean improved) {
+            for (int position = from; position < to; position++) {
+                int compared = compare(row * gridSize + position, EMPTY);
+                if (compared > 0) {
+                    return;
+                }
+                improved |= compared < 0;
+            }
+            place(row, to, improved);
+        }
+
+        /**
+         * Compares the key of a position of the result with the best grid,
+         * taking it over if it is smaller
+         *
+         * @return Negative if smaller, 0 if equal, positive if greater
+         */
+        private int compare(int position, int key) {
+            if (position >= bestEnd || key < best[position]) {
+                best[position] = key;
+                bestEnd = position + 1;
+                return -1;
+            }
+            return key == best[position] ? 0 : 1;
+        }
+
+        /**
+         * Returns the smallest label the value can get when its column takes
+         * the specified position, the front of its cell
+         */
+        private int label(int value, int column, int position) {
+            int first = firstColumn[value];
+            int at = where[first];
+            if (!isFixed(at)) {
+                if (first == column) {
+                    at = position;
+                } else {
+                    at = front(at);
+                    if (at == position) {
+                        // the column takes the front of its own cell
+                        at++;
+                    }
+                }
+            }
+            return reserved[firstRow[value]][at];
+        }
+
+        /**
+         * Fixes the column of the first appearance of a value at the front of
+         * its cell, which gives the value the label returned by
+         * {@link #label(int, int, int)}
+         */
+        private void resolve(int value) {
+            int first = firstColumn[value];
+            if (!isFixed(where[first])) {
+                fix(first, front(where[first]));
+            }
+        }
+
+        /**
+         * Labels a value appearing for the first time at a position
+         *
+         * @return Label
+         */
+        private int appear(int row, int position, int column, int value) {
+            set(firstRow, value, row);
+            set(firstColumn, value, column);
+            reserved[row][position] = ++nextLabel;
+            return nextLabel;
+        }
+
+        private boolean isEmpty(int offset, int column) {
+            int stack = column / segmentSize * segmentSize;
+            for (int i = stack; i < stack + segmentSize; i++) {
+                if (source[offset + i] != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isFixed(int position) {
+            return cellStart[position] == 1 && cellStart[position + 1] == 1;
+        }
+
+        private int front(int position) {
+            while (cellStart[position] == 0) {
+                position--;
+            }
+            return position;
+        }
+
+        /**
+         * Moves a column to a position, the front of its cell, and splits it
+         * off the cell
+         */
+        private void fix(int column, int position) {
+            swap(where[column], position);
+            if (cellStart[position + 1] == 0) {
+                set(cellStart, position + 1, 1);
+            }
+        }
+
+        private void swap(int first, int second) {
+            if (first != second) {
+                int column = order[first];
+                int other = order[second];
+                set(order, first, other);
+                set(order, second, column);
+                set(where, other, first);
+                set(where, column, second);
+            }
+        }
+
+        private void set(int[] array, int index, int value) {
+            if (trailSize == trailValues.length) {
+                trailArrays = Arrays.copyOf(trailArrays, 2 * trailSize);
+                trailIndices = Arrays.copyOf(trailIndices, 2 * trailSize);
+                trailValues = Arrays.copyOf(trailValues, 2 * trailSize);
+            }
+            trailArrays[trailSize] = array;
+            trailIndices[trailSize] = index;
+            trailValues[trailSize++] = array[index];
+            array[index] = value;
+        }
+
+        /**
+         * Undoes the changes made since the mark
+         */
+        private void undo(int mark) {
+            while (trailSize > mark) {
+                trailSize--;
+                trailArrays[trailSize][trailIndices[trailSize]] =
+                        trailValues[trailSize];
+            }
+        }
+
+        private void record() {
+            bestTransposed = transposed;
+            System.arraycopy(rows, 0, bestRows, 0, gridSize);
+            System.arraycopy(order, 0, bestColumns, 0, gridSize);
+            Arrays.fill(bestLabels, 0);
+            for (int value = 1; value < bestLabels.length; value++) {
+                if (firstRow[value] >= 0) {
+                    int position = where[firstColumn[value]];
+                    bestLabels[value] = reserved[firstRow[value]][position];
+                }
+            }
+        }
+    }
+}
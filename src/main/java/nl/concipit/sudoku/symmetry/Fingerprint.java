@@ -0,0 +1,147 @@
+package nl.concipit.sudoku.symmetry;
+
+/**
+ * 128-bit fingerprint of a canonical form. <br/>
+ * <br/>
+ * Equivalent grids have equal fingerprints, so a corpus can be deduplicated
+ * by keeping only the fingerprints seen so far instead of the grids. The
+ * fingerprint is a MurmurHash3 (x64, 128-bit) hash of the geometry and the
+ * canonical values: it is not cryptographic, but two different canonical
+ * forms only collide by accident, with a chance of about 2^-128 per pair.
+ *
+ * @author dcoppens
+ *
+ */
+public final class Fingerprint implements Comparable<Fingerprint> {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final long high;
+    private final long low;
+
+    /**
+     * Constructor
+     *
+     * @param high
+     *            Upper 64 bits
+     * @param low
+     *            Lower 64 bits
+     */
+    public Fingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Computes the fingerprint of canonical values
+     *
+     * @param gridSize
+     *            Size of the grid
+     * @param segmentSize
+     *            Size of the segments
+     * @param values
+     *            Values in row-major order, 0 for an empty cell
+     * @return Fingerprint
+     */
+    static Fingerprint of(int gridSize, int segmentSize, int[] values) {
+        long h1 = gridSize;
+        long h2 = segmentSize;
+        int length = values.length;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            h1 ^= mix1(pack(values[i], values[i + 1]));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mix2(pack(values[i + 2], values[i + 3]));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        if (i < length) {
+            h1 ^= mix1(pack(values[i], i + 1 < length ? values[i + 1] : 0));
+            h2 ^= mix2(pack(i + 2 < length ? values[i + 2] : 0, 0));
+        }
+
+        h1 ^= 4L * length;
+        h2 ^= 4L * length;
+        h1 += h2;
+        h2 += h1;
+        h1 = finish(h1);
+        h2 = finish(h2);
+        h1 += h2;
+        h2 += h1;
+        return new Fingerprint(h1, h2);
+    }
+
+    private static long pack(int first, int second) {
+        return (first & 0xffffffffL) | ((long) second << 32);
+    }
+
+    private static long mix1(long k) {
+        return Long.rotateLeft(k * C1, 31) * C2;
+    }
+
+    private static long mix2(long k) {
+        return Long.rotateLeft(k * C2, 33) * C1;
+    }
+
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Returns the upper 64 bits
+     *
+     * @return Upper bits
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Returns the lower 64 bits
+     *
+     * @return Lower bits
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Orders fingerprints as unsigned 128-bit numbers
+     */
+    @Override
+    public int compareTo(Fingerprint other) {
+        int compared = Long.compareUnsigned(high, other.high);
+        return compared != 0 ? compared : Long.compareUnsigned(low,
+                other.low);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof Fingerprint)) {
+            return false;
+        }
+        Fingerprint other = (Fingerprint) object;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    /**
+     * Returns the fingerprint as 32 hexadecimal digits
+     */
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
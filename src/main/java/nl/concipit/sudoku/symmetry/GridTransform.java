@@ -0,0 +1,164 @@
+package nl.concipit.sudoku.symmetry;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Symmetry of a Sudoku grid: an optional transposition, followed by a
+ * permutation of the rows and of the columns that keeps bands and stacks
+ * together, followed by a relabeling of the values. Applying a transform to
+ * a puzzle yields an equivalent puzzle, whose solution is the transformed
+ * solution. <br/>
+ * <br/>
+ * Cell (column c, row r) of the result holds the relabeled value of cell
+ * (column columns[c], row rows[r]) of the transposed or original grid.
+ *
+ * @author dcoppens
+ *
+ */
+public final class GridTransform {
+    private final int gridSize;
+    private final int segmentSize;
+    private final boolean transposed;
+    private final int[] rows;
+    private final int[] columns;
+    private final int[] values;
+
+    /**
+     * Constructor
+     *
+     * @param segmentSize
+     *            Size of the segments
+     * @param transposed
+     *            Whether the grid is transposed first
+     * @param rows
+     *            Source row of every row of the result
+     * @param columns
+     *            Source column of every column of the result
+     * @param values
+     *            New value of every value, indexed from 0; 0 must map to 0
+     */
+    public GridTransform(int segmentSize, boolean transposed, int[] rows,
+            int[] columns, int[] values) {
+        int gridSize = rows.length;
+        if (columns.length != gridSize || values.length == 0
+                || values[0] != 0 || !keepsSegments(rows, segmentSize)
+                || !keepsSegments(columns, segmentSize)
+                || !isPermutation(values)) {
+            throw new IllegalArgumentException();
+        }
+        this.gridSize = gridSize;
+        this.segmentSize = segmentSize;
+        this.transposed = transposed;
+        this.rows = rows.clone();
+        this.columns = columns.clone();
+        this.values = values.clone();
+    }
+
+    /**
+     * Returns the transform that does nothing
+     *
+     * @param gridSize
+     *            Size of the grid
+     * @param segmentSize
+     *            Size of the segments
+     * @return Identity
+     */
+    public static GridTransform identity(int gridSize, int segmentSize) {
+        int[] lines = new int[gridSize];
+        for (int i = 0; i < gridSize; i++) {
+            lines[i] = i;
+        }
+        int[] values = new int[segmentSize * segmentSize + 1];
+        for (int value = 0; value < values.length; value++) {
+            values[value] = value;
+        }
+        return new GridTransform(segmentSize, false, lines, lines, values);
+    }
+
+    /**
+     * Returns whether the grid is transposed before permuting
+     *
+     * @return true if transposed
+     */
+    public boolean isTransposed() {
+        return transposed;
+    }
+
+    /**
+     * Applies the transform
+     *
+     * @param grid
+     *            Grid of the size of the transform
+     * @return New, transformed grid
+     */
+    public SudokuGrid apply(SudokuGrid grid) {
+        if (grid.getGridSize() != gridSize
+                || grid.getSegmentSize() != segmentSize) {
+            throw new IllegalArgumentException();
+        }
+        SudokuGrid result = new SudokuGrid(gridSize, segmentSize);
+        for (int row = 0; row < gridSize; row++) {
+            for (int column = 0; column < gridSize; column++) {
+                int value = transposed ? grid.getValue(rows[row],
+                        columns[column]) : grid.getValue(columns[column],
+                        rows[row]);
+                if (value != 0) {
+                    result.setValue(column, row, values[value]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the transform undoing this transform
+     *
+     * @return Inverse
+     */
+    public GridTransform inverse() {
+        int[] rowsBack = invert(rows);
+        int[] columnsBack = invert(columns);
+        if (transposed) {
+            // the rows of the source are the columns of the result
+            return new GridTransform(segmentSize, true, columnsBack, rowsBack,
+                    invert(values));
+        }
+        return new GridTransform(segmentSize, false, rowsBack, columnsBack,
+                invert(values));
+    }
+
+    private static int[] invert(int[] permutation) {
+        int[] inverse = new int[permutation.length];
+        for (int i = 0; i < permutation.length; i++) {
+            inverse[permutation[i]] = i;
+        }
+        return inverse;
+    }
+
+    private static boolean isPermutation(int[] permutation) {
+        boolean[] seen = new boolean[permutation.length];
+        for (int i : permutation) {
+            if (i < 0 || i >= permutation.length || seen[i]) {
+                return false;
+            }
+            seen[i] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the permutation maps every band (or stack) onto a band
+     */
+    private static boolean keepsSegments(int[] lines, int segmentSize) {
+        if (!isPermutation(lines) || lines.length % segmentSize != 0) {
+            return false;
+        }
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i] / segmentSize != lines[i - i % segmentSize]
+                    / segmentSize) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
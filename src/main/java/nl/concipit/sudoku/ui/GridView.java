@@ -0,0 +1,155 @@
+package nl.concipit.sudoku.ui;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.GridPane;
+import nl.concipit.sudoku.model.GridListener;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+/**
+ * Pane showing a grid, with one text field per cell. <br/>
+ * <br/>
+ * The fields are created once per geometry and bound to the grid shown. The
+ * view listens to that grid and only updates the field of a cell whose value
+ * changed, so showing another grid of the same geometry or filling in a
+ * solution does not rebuild the scene graph. While a grid is shown, it must
+ * only be changed on the JavaFX Application Thread.
+ *
+ * @author dcoppens
+ *
+ */
+@SuppressWarnings("restriction")
+class GridView extends GridPane implements GridListener {
+    private static final String FILLED_STYLE = "-fx-background-color: #EEEEEE";
+
+    private final int gridSize;
+    private final int segmentSize;
+
+    /** Field of every cell, row-major */
+    private final TextField[] fields;
+
+    /** Grid shown, or null */
+    private SudokuGrid grid;
+
+    /**
+     * Constructor; creates the segment panes and the empty cell fields
+     *
+     * @param gridSize
+     *            Size of the grids to show
+     * @param segmentSize
+     *            Size of the segments of the grids to show
+     */
+    GridView(int gridSize, int segmentSize) {
+        this.gridSize = gridSize;
+        this.segmentSize = segmentSize;
+        this.fields = new TextField[gridSize * gridSize];
+        setPadding(new Insets(5, 5, 5, 5));
+        setVgap(0);
+        setHgap(0);
+
+        int segments = gridSize / segmentSize;
+        for (int c = 0; c < segments; c++) {
+            for (int r = 0; r < segments; r++) {
+                GridPane segmentPane = new GridPane();
+                segmentPane.setPadding(new Insets(1, 1, 1, 1));
+                segmentPane.setVgap(2);
+                segmentPane.setHgap(2);
+                segmentPane.setStyle("-fx-background-color: DDDDDD; "
+                        + "-fx-border-width: 1;" + "-fx-border-color: AAAAAA;");
+                fillSegmentPane(c * segmentSize, r * segmentSize, segmentPane);
+                add(segmentPane, c, r);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the grid can be shown by this view
+     *
+     * @param grid
+     *            Grid
+     * @return true if the grid has the geometry of this view
+     */
+    boolean fits(SudokuGrid grid) {
+        return grid.getGridSize() == gridSize
+                && grid.getSegmentSize() == segmentSize;
+    }
+
+    /**
+     * Shows the grid, updating only the fields whose value differs from the
+     * grid shown before, and follows its changes from then on
+     *
+     * @param grid
+     *            Grid with the geometry of this view
+     */
+    void setGrid(SudokuGrid grid) {
+        if (!fits(grid)) {
+            throw new IllegalArgumentException();
+        }
+        if (this.grid != null) {
+            this.grid.removeListener(this);
+        }
+        this.grid = grid;
+        grid.addListener(this);
+        for (int row = 0; row < gridSize; row++) {
+            for (int column = 0; column < gridSize; column++) {
+                update(column, row, grid.getValue(column, row));
+            }
+        }
+    }
+
+    /**
+     * Updates the field of the changed cell
+     */
+    @Override
+    public void valueChanged(int column, int row, int oldValue, int newValue) {
+        update(column, row, newValue);
+    }
+
+    /**
+     * Creates the fields of the cells of one segment
+     *
+     * @param left
+     *            Column of the top left cell of the segment
+     * @param top
+     *            Row of the top left cell of the segment
+     * @param segmentPane
+     *            the pane to which to add the fields
+     */
+    private void fillSegmentPane(int left, int top, GridPane segmentPane) {
+        for (int i = 0; i < segmentSize; i++) {
+            for (int j = 0; j < segmentSize; j++) {
+                TextField cellField = new TextField();
+                cellField.setAlignment(Pos.CENTER);
+                cellField.setMaxSize(30, 30);
+                cellField.setMinSize(30, 30);
+                cellField.setEditable(true);
+                fields[(top + j) * gridSize + left + i] = cellField;
+                segmentPane.add(cellField, i, j);
+            }
+        }
+    }
+
+    /**
+     * Shows the value in the field of the cell; filled cells are read-only
+     *
+     * @param column
+     *            Column
+     * @param row
+     *            Row
+     * @param value
+     *            Value, 0 if empty
+     */
+    private void update(int column, int row, int value) {
+        TextField field = fields[row * gridSize + column];
+        String text = value == 0 ? "" : String.valueOf(value);
+        if (!text.equals(field.getText())) {
+            field.setText(text);
+        }
+        boolean filled = value != 0;
+        if (field.isEditable() == filled) {
+            field.setEditable(!filled);
+            field.setStyle(filled ? FILLED_STYLE : "");
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package nl.concipit.sudoku.ui;
+
+import javafx.animation.AnimationTimer;
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.solver.SolveTrace;
+
+/**
+ * Replays the events of a {@link SolveTrace} on the grid shown, at a
+ * selectable number of events per second. <br/>
+ * <br/>
+ * Events are applied once per frame. All events due since the previous frame
+ * are first folded into the last value per cell, so the grid, and the view
+ * listening to it, change at most once per cell per frame however many
+ * events are due.
+ *
+ * @author dcoppens
+ *
+ */
+@SuppressWarnings("restriction")
+class ReplayAnimation extends AnimationTimer {
+    private final SudokuGrid grid;
+    private final SolveTrace trace;
+    private final Runnable onFinished;
+
+    /** Last value per cell of the events of the current frame */
+    private final int[] pending;
+
+    /** Whether a cell has a pending value */
+    private final boolean[] dirty;
+
+    /** Cells with a pending value */
+    private final int[] dirtyCells;
+
+    private double eventsPerSecond;
+
+    /** Number of events due, including the fraction of the next event */
+    private double due;
+
+    /** Number of events applied */
+    private int applied;
+
+    /** Time of the previous frame in nanoseconds, or -1 before the first */
+    private long previousFrame = -1;
+    private boolean finished;
+
+    /**
+     * Constructor
+     *
+     * @param grid
+     *            Grid holding the state before the first event; changed on
+     *            the JavaFX Application Thread
+     * @param trace
+     *            Recorded events
+     * @param eventsPerSecond
+     *            Replay speed
+     * @param onFinished
+     *            Called on the JavaFX Application Thread once all events are
+     *            applied
+     */
+    ReplayAnimation(SudokuGrid grid, SolveTrace trace, double eventsPerSecond,
+            Runnable onFinished) {
+        this.grid = grid;
+        this.trace = trace;
+        this.eventsPerSecond = eventsPerSecond;
+        this.onFinished = onFinished;
+        int cells = grid.getGridSize() * grid.getGridSize();
+        this.pending = new int[cells];
+        this.dirty = new boolean[cells];
+        this.dirtyCells = new int[cells];
+    }
+
+    /**
+     * Changes the replay speed; takes effect from the next frame
+     *
+     * @param eventsPerSecond
+     *            Replay speed
+     */
+    void setSpeed(double eventsPerSecond) {
+        this.eventsPerSecond = eventsPerSecond;
+    }
+
+    /**
+     * Returns the fraction of the events applied
+     *
+     * @return Progress between 0 and 1
+     */
+    double getProgress() {
+        return trace.size() == 0 ? 1.0 : (double) applied / trace.size();
+    }
+
+    /**
+     * Applies the events due since the previous frame
+     */
+    @Override
+    public void handle(long now) {
+        if (previousFrame >= 0) {
+            due += (now - previousFrame) * eventsPerSecond / 1e9;
+        }
+        previousFrame = now;
+        apply((int) Math.min(trace.size(), due));
+        if (applied == trace.size()) {
+            finish();
+        }
+    }
+
+    /**
+     * Applies all remaining events at once and ends the replay
+     */
+    void finish() {
+        stop();
+        if (!finished) {
+            finished = true;
+            apply(trace.size());
+            onFinished.run();
+        }
+    }
+
+    /**
+     * Applies the events up to the specified index, at most one change per
+     * cell
+     *
+     * @param end
+     *            Index after the last event to apply
+     */
+    private void apply(int end) {
+        int count = 0;
+        for (; applied < end; applied++) {
+            int cell = trace.getCell(applied);
+            if (!dirty[cell]) {
+                dirty[cell] = true;
+                dirtyCells[count++] = cell;
+            }
+            pending[cell] = trace.getValue(applied);
+        }
+        int gridSize = grid.getGridSize();
+        for (int i = 0; i < count; i++) {
+            int cell = dirtyCells[i];
+            dirty[cell] = false;
+            grid.setValue(cell % gridSize, cell / gridSize, pending[cell]);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package nl.concipit.sudoku.ui;
+
+import javafx.concurrent.Task;
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.solver.Deadline;
+import nl.concipit.sudoku.solver.SolveOutcome;
+import nl.concipit.sudoku.solver.SolveStatistics;
+import nl.concipit.sudoku.solver.SolveTrace;
+import nl.concipit.sudoku.solver.Solver;
+import nl.concipit.sudoku.solver.SolverListener;
+
+/**
+ * Solves a copy of a grid on a background thread. <br/>
+ * <br/>
+ * The task owns the copy, so the grid shown by the user interface is never
+ * touched by the solver thread. Cancelling the task cancels the deadline of
+ * the solve, after which the solver stops at its next deadline check.
+ * Progress is not pushed to the JavaFX Application Thread for every search
+ * node; the user interface polls {@link #estimateProgress()} once per frame
+ * instead. Optionally, the value changes of the solve are recorded in a
+ * {@link SolveTrace} for replay.
+ *
+ * @author dcoppens
+ *
+ */
+@SuppressWarnings("restriction")
+class SolveTask extends Task<SudokuGrid> {
+    /** Number of search nodes between publications of the node count */
+    private static final int PUBLISH_INTERVAL = 1024;
+
+    private final Solver solver;
+    private final SudokuGrid grid;
+    private final SolveTrace trace;
+    private final Deadline deadline = Deadline.cancellable();
+    private final int cells;
+    private final int clues;
+
+    /** Deepest search node reached so far */
+    private volatile int depthReached;
+
+    /** Number of search nodes visited, published every PUBLISH_INTERVAL */
+    private volatile long nodesVisited;
+
+    /**
+     * Constructor
+     *
+     * @param solver
+     *            Solver, used by this task only
+     * @param grid
+     *            Grid to solve; the task solves a copy
+     * @param trace
+     *            Trace recording the value changes, may be null
+     */
+    SolveTask(Solver solver, SudokuGrid grid, SolveTrace trace) {
+        this.solver = solver;
+        this.grid = new SudokuGrid(grid);
+        this.trace = trace;
+        this.cells = grid.getGridSize() * grid.getGridSize();
+        this.clues = grid.getNumberOfFilledCells();
+    }
+
+    /**
+     * Solves the copy of the grid
+     *
+     * @return Solved grid, or null if the grid has no solution or the task
+     *         was cancelled
+     */
+    @Override
+    protected SudokuGrid call() {
+        SolveOutcome outcome;
+        solver.setListener(new ProgressListener());
+        try {
+            outcome = solver.solve(grid, deadline);
+        } finally {
+            solver.setListener(null);
+        }
+        return outcome == SolveOutcome.SOLVED ? grid : null;
+    }
+
+    /**
+     * Cancels the task and the solve it is running
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        deadline.cancel();
+        return super.cancel(mayInterruptIfRunning);
+    }
+
+    /**
+     * Estimates the progress of the solve as the fraction of cells filled at
+     * the deepest search node reached so far; safe to call from any thread
+     *
+     * @return Progress between 0 and 1
+     */
+    double estimateProgress() {
+        return Math.min(1.0, (double) (clues + depthReached) / cells);
+    }
+
+    /**
+     * Returns the number of search nodes visited so far, updated every
+     * {@value #PUBLISH_INTERVAL} nodes; safe to call from any thread
+     *
+     * @return Number of nodes
+     */
+    long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /**
+     * Records the progress of the solve in the volatile fields of the task,
+     * and passes value changes on to the trace. With a solver that searches
+     * on several threads the counts are approximate.
+     */
+    private final class ProgressListener implements SolverListener {
+        private long nodes;
+        private int depth;
+
+        @Override
+        public void solveStarted(SudokuGrid solved) {
+            if (trace != null) {
+                trace.solveStarted(solved);
+            }
+        }
+
+        @Override
+        public void valuePlaced(int cell, int value) {
+            if (trace != null) {
+                trace.valuePlaced(cell, value);
+            }
+        }
+
+        @Override
+        public void valueRemoved(int cell) {
+            if (trace != null) {
+                trace.valueRemoved(cell);
+            }
+        }
+
+        @Override
+        public void nodeVisited(int nodeDepth) {
+            if (nodeDepth > depth) {
+                depth = nodeDepth;
+                depthReached = nodeDepth;
+            }
+            if (++nodes % PUBLISH_INTERVAL == 0) {
+                nodesVisited = nodes;
+            }
+        }
+
+        @Override
+        public void solveFinished(SolveStatistics statistics) {
+            nodesVisited = statistics.getNodes();
+        }
+    }
+}
@@ -1,36 +1,46 @@
 package nl.concipit.sudoku.ui;
 
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
-import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.ProgressIndicator;
 
-import javafx.scene.control.TextField;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 
 import javafx.stage.Stage;
-import nl.concipit.sudoku.SudokuGridBuilder;
-import nl.concipit.sudoku.exception.IllegalGridInputException;
-import nl.concipit.sudoku.model.SudokuCell;
+import nl.concipit.sudoku.generator.Difficulty;
+import nl.concipit.sudoku.generator.PuzzleGenerator;
 import nl.concipit.sudoku.model.SudokuGrid;
-import nl.concipit.sudoku.model.SudokuSegment;
 import nl.concipit.sudoku.solver.SimpleSolver;
+import nl.concipit.sudoku.solver.SolveTrace;
 import nl.concipit.sudoku.solver.Solver;
 
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Main entry point for the JavaFX user interface
+ * Main entry point for the JavaFX user interface <br/>
+ * <br/>
+ * Solving runs in a {@link SolveTask} on a background thread, so the window
+ * stays responsive; while it runs, the solve button cancels it and the
+ * progress indicator is refreshed once per frame. In animated mode, the solve
+ * is recorded and replayed step by step afterwards by a
+ * {@link ReplayAnimation}, at the selected number of steps per second; the
+ * solve button then skips to the end.
  * 
  * @author dcoppens
  *
@@ -40,8 +50,55 @@ public class SudokuApplication extends Application {
     private static final Logger LOGGER = LoggerFactory
             .getLogger(SudokuApplication.class);
 
+    private final PuzzleGenerator generator = new PuzzleGenerator(9, 3,
+            Difficulty.HARD);
+    private final Random random = new Random();
+
+    /** Runs the solve tasks, one at a time */
+    private final ExecutorService executor = Executors
+            .newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "sudoku-solver");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Button solveButton = new Button("Solve Sudoku");
+    private final CheckBox animateBox = new CheckBox("Animate");
+
+    /** Replay speed in steps per second */
+    private final ChoiceBox<Integer> speedBox = new ChoiceBox<Integer>(
+            FXCollections.observableArrayList(10, 100, 1000, 10000, 100000,
+                    1000000));
+
+    private final ProgressIndicator progressIndicator = new ProgressIndicator(
+            0);
+
+    /**
+     * Copies the progress of the running solve or replay to the indicator per
+     * frame
+     */
+    private final AnimationTimer progressTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (solveTask != null) {
+                progressIndicator.setProgress(solveTask.estimateProgress());
+            } else if (replay != null) {
+                progressIndicator.setProgress(replay.getProgress());
+            }
+        }
+    };
+
     private SudokuGrid grid;
 
+    /** View of the grid, or null before the first grid is opened */
+    private GridView gridView;
+
+    /** Running solve, or null */
+    private SolveTask solveTask;
+
+    /** Running replay, or null */
+    private ReplayAnimation replay;
+
     /**
      * {@inheritDoc}
      */
@@ -51,10 +108,19 @@ public class SudokuApplication extends Application {
 
         HBox btnBox = new HBox();
         btnBox.setPadding(new Insets(5, 5, 5, 5));
-        Button btn = new Button();
-        btn.setText("Solve Sudoku");
-        btn.setOnAction(e -> solveSudokuGrid(new SimpleSolver(), root));
-        btnBox.getChildren().add(btn);
+        solveButton.setOnAction(e -> solveSudokuGrid(new SimpleSolver()));
+        btnBox.getChildren().add(solveButton);
+        speedBox.setValue(1000);
+        speedBox.valueProperty().addListener((value, previous, speed) -> {
+            if (replay != null) {
+                replay.setSpeed(speed);
+            }
+        });
+        btnBox.getChildren().addAll(animateBox, speedBox);
+        progressIndicator.setMaxSize(25, 25);
+        progressIndicator.setVisible(false);
+        btnBox.getChildren().add(progressIndicator);
+        btnBox.setSpacing(5);
 
         VBox menuBox = new VBox();
 
@@ -64,13 +130,24 @@ public class SudokuApplication extends Application {
         root.setTop(menuBox);
         root.setCenter(null);
 
-        Scene scene = new Scene(root, 320, 380);
+        Scene scene = new Scene(root, 380, 380);
 
         stage.setTitle("Sudoku");
         stage.setScene(scene);
         stage.show();
     }
 
+    /**
+     * Cancels a running solve when the application exits
+     */
+    @Override
+    public void stop() {
+        if (solveTask != null) {
+            solveTask.cancel();
+        }
+        executor.shutdownNow();
+    }
+
     /**
      * Create menu bar with action items
      * 
@@ -98,116 +175,152 @@ public class SudokuApplication extends Application {
      *            Pane
      */
     private void openSudokuGrid(BorderPane pane) {
-        try {
-            grid = generateGrid();
-            setSudokuPane(pane);
-        } catch (IllegalGridInputException e) {
-            LOGGER.error("Error: {}", e.getMessage(), e);
+        if (solveTask != null) {
+            // the result would belong to the previous grid
+            solveTask.cancel();
         }
+        if (replay != null) {
+            replay.stop();
+            replay = null;
+            stopProgress();
+        }
+        grid = generateGrid();
+        setSudokuPane(pane);
     }
 
     /**
-     * Sets the center pane with the generated Sudoku
+     * Shows the grid in the center of the pane, reusing the grid view if the
+     * geometry did not change
      * 
      * @param pane
      *            BorderPane to fill the center of
      */
     private void setSudokuPane(BorderPane pane) {
-
-        pane.setCenter(getSudokuPane(grid));
-
+        if (gridView == null || !gridView.fits(grid)) {
+            gridView = new GridView(grid.getGridSize(), grid.getSegmentSize());
+            pane.setCenter(gridView);
+        }
+        gridView.setGrid(grid);
     }
 
     /**
-     * Solve the Sudoku and show result
+     * Starts solving the Sudoku in the background and shows the result when
+     * done, replaying the solve if animation is selected; cancels the solve
+     * or skips the replay if one is running already
      * 
      * @param solver
      *            Solver to use
-     * @param pane
-     *            Pane to show result in
      */
-    private void solveSudokuGrid(Solver solver, BorderPane pane) {
-        if (grid != null) {
-            solver.solve(grid);
-            setSudokuPane(pane);
+    private void solveSudokuGrid(Solver solver) {
+        if (replay != null) {
+            replay.finish();
+            return;
         }
+        if (solveTask != null) {
+            solveTask.cancel();
+            return;
+        }
+        if (grid == null) {
+            return;
+        }
+
+        SolveTrace trace = animateBox.isSelected() ? new SolveTrace() : null;
+        SolveTask task = new SolveTask(solver, grid, trace);
+        task.setOnSucceeded(e -> {
+            if (finishSolve(task)) {
+                if (trace != null) {
+                    replaySolve(trace, task.getValue());
+                } else {
+                    showSolution(task.getValue());
+                }
+            }
+        });
+        task.setOnCancelled(e -> finishSolve(task));
+        task.setOnFailed(e -> {
+            finishSolve(task);
+            LOGGER.error("Solving failed", task.getException());
+        });
+
+        solveTask = task;
+        startProgress("Cancel");
+        executor.execute(task);
     }
 
     /**
-     * Creates a GridPane representing the Sudoku
+     * Restores the controls after a solve has ended; called on the JavaFX
+     * Application Thread
      * 
-     * @param grid
-     *            Sudoku grid
-     * @return GridPane representing the Sudoku
+     * @param task
+     *            Task that ended
+     * @return false if the task was replaced or cancelled in the meantime
      */
-    private GridPane getSudokuPane(SudokuGrid grid) {
-        GridPane gridPane = new GridPane();
-        gridPane.setPadding(new Insets(5, 5, 5, 5));
-        gridPane.setVgap(0);
-        gridPane.setHgap(0);
-        gridPane.getChildren().clear();
-        // add all segments to the grid
-        addSegments(grid, gridPane);
-
-        return gridPane;
+    private boolean finishSolve(SolveTask task) {
+        LOGGER.debug("Solve {} after {} nodes", task.getState(),
+                task.getNodesVisited());
+        if (solveTask != task) {
+            return false;
+        }
+        solveTask = null;
+        stopProgress();
+        return true;
     }
 
     /**
-     * Add all segments of the grid to the grid pane
+     * Replays a recorded solve on the grid shown
      * 
-     * @param grid
-     *            Grid
-     * @param gridPane
-     *            Grid pane
+     * @param trace
+     *            Recorded solve
+     * @param solution
+     *            Solved copy of the grid, or null if there is no solution
      */
-    private void addSegments(SudokuGrid grid, GridPane gridPane) {
-        for (int c = 0; c < grid.getNumberOfSegments(); c++) {
-            for (int r = 0; r < grid.getNumberOfSegments(); r++) {
-                SudokuSegment segment = grid.getSegment(
-                        c * grid.getSegmentSize(), r * grid.getSegmentSize());
-                GridPane segmentPane = new GridPane();
-                segmentPane.setPadding(new Insets(1, 1, 1, 1));
-                segmentPane.setVgap(2);
-                segmentPane.setHgap(2);
-                segmentPane.setStyle("-fx-background-color: DDDDDD; "
-                        + "-fx-border-width: 1;" + "-fx-border-color: AAAAAA;");
-                segmentPane.getChildren().clear();
-
-                // add cells of the segment to the segment pane
-                fillSegmentPane(segment, segmentPane);
-                gridPane.add(segmentPane, c, r);
-            }
-        }
+    private void replaySolve(SolveTrace trace, SudokuGrid solution) {
+        LOGGER.debug("Replaying {} steps", trace.size());
+        replay = new ReplayAnimation(grid, trace, speedBox.getValue(), () -> {
+            replay = null;
+            stopProgress();
+            showSolution(solution);
+        });
+        startProgress("Skip");
+        replay.start();
     }
 
     /**
-     * Fills the provided segment GridPane with all the cells in the provided
-     * segment of a sudoku
+     * Shows the progress indicator, refreshed once per frame
      * 
-     * @param segment
-     *            the segment holding the cells to add
-     * @param segmentPane
-     *            the pane to which to add the cells
+     * @param action
+     *            Text of the solve button meanwhile
      */
-    private void fillSegmentPane(SudokuSegment segment, GridPane segmentPane) {
-        // iterate cells in the segment
-        for (int i = 0; i < segment.getSize(); i++) {
-            for (int j = 0; j < segment.getSize(); j++) {
-                SudokuCell cell = segment.getCell(i, j);
-
-                TextField cellField = new TextField();
-                cellField.setAlignment(Pos.CENTER);
-                cellField.setMaxSize(30, 30);
-                cellField.setMinSize(30, 30);
-                if (cell.getValue() == null) {
-                    cellField.setEditable(true);
-                } else {
-                    cellField.setEditable(false);
-                    cellField.setStyle("-fx-background-color: #EEEEEE");
-                    cellField.setText(cell.getValue().toString());
-                }
+    private void startProgress(String action) {
+        solveButton.setText(action);
+        progressIndicator.setProgress(0);
+        progressIndicator.setVisible(true);
+        progressTimer.start();
+    }
 
-                segmentPane.add(cellField, i, j);
+    /**
+     * Hides the progress indicator and restores the solve button
+     */
+    private void stopProgress() {
+        progressTimer.stop();
+        progressIndicator.setVisible(false);
+        solveButton.setText("Solve Sudoku");
+    }
+
+    /**
+     * Fills the solved values into the grid shown; the grid view only
+     * updates the cells that differ
+     * 
+     * @param solution
+     *            Solved copy of the grid, or null if there is no solution
+     */
+    private void showSolution(SudokuGrid solution) {
+        if (solution == null) {
+            LOGGER.info("No solution found");
+            return;
+        }
+        for (int row = 0; row < grid.getGridSize(); row++) {
+            for (int column = 0; column < grid.getGridSize(); column++) {
+                grid.setValue(column, row, solution.getValue(column, row));
             }
         }
     }
@@ -216,14 +329,9 @@ public class SudokuApplication extends Application {
      * Generate next Sudoku grid
      * 
      * @return SudokuGrid
-     * @throws IllegalGridInputException
-     *             if the sudoku grid is invalid
      */
-    private SudokuGrid generateGrid() throws IllegalGridInputException {
-        return SudokuGridBuilder.buildGrid(IOUtils.toInputStream("8;;|;;|;;\n"
-                + ";;3|6;;|;;\n" + ";7;|;9;|2;;\n" + ";5;|;;7|;;\n"
-                + ";;|;4;5|7;;|\n" + ";;|1;;|;3;\n" + ";;1|;;|;6;8\n"
-                + ";;8|5;;|;1;\n" + ";9;|;;|4;;"));
+    private SudokuGrid generateGrid() {
+        return generator.generate(random);
     }
 
     /**
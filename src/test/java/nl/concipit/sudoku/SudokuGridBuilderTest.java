@@ -1,5 +1,8 @@
 package nl.concipit.sudoku;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import nl.concipit.sudoku.SudokuGridBuilder;
 import nl.concipit.sudoku.exception.IllegalGridInputException;
 import nl.concipit.sudoku.model.SudokuGrid;
@@ -62,6 +65,15 @@ public class SudokuGridBuilderTest {
         Assert.fail();
     }
 
+    @Test
+    public void testTrailingSegmentDelimiterFirstLine()
+            throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;2|3;4|\n3;4|1;2\n;|;\n;|;"));
+        Assert.assertEquals(4, grid.getGridSize());
+        Assert.assertEquals(Integer.valueOf(4), grid.getCell(3, 0).getValue());
+    }
+
     @Test(expected = IllegalGridInputException.class)
     public void testInvalidSegmentCount() throws IllegalGridInputException {
         SudokuGridBuilder.buildGrid(IOUtils.toInputStream(";1;3;3;\n;;;|1;3"));
@@ -111,4 +123,72 @@ public class SudokuGridBuilderTest {
         SudokuGridBuilder.buildGrid(IOUtils.toInputStream("1;2;3\n1;3;2"));
         Assert.fail();
     }
+
+    @Test
+    public void testParseCharSequence() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder
+                .parseGrid(";1;|;;3|;;\r\n3;2;1|6;5;4|;;\r\n\r\n;;|;;|;;");
+        Assert.assertEquals(9, grid.getGridSize());
+        Assert.assertEquals(3, grid.getSegmentSize());
+        Assert.assertEquals(1, grid.getValue(1, 0));
+        Assert.assertEquals(4, grid.getValue(5, 1));
+        Assert.assertEquals(0, grid.getValue(0, 2));
+    }
+
+    @Test
+    public void testParseCharArray() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.parseGrid(" 1; 2 ;3\n;;\n;;"
+                .toCharArray());
+        Assert.assertEquals(3, grid.getGridSize());
+        Assert.assertEquals(2, grid.getValue(1, 0));
+    }
+
+    @Test
+    public void testParseByteBuffer() throws IllegalGridInputException {
+        ByteBuffer buffer = ByteBuffer.wrap("xx1;2|3;4\n3;4|1;2\n;|;\n;|;"
+                .getBytes(StandardCharsets.US_ASCII));
+        buffer.position(2);
+        SudokuGrid grid = SudokuGridBuilder.parseGrid(buffer);
+        Assert.assertEquals(4, grid.getGridSize());
+        Assert.assertEquals(2, grid.getSegmentSize());
+        Assert.assertEquals(1, grid.getValue(0, 0));
+        Assert.assertEquals(2, grid.getValue(3, 1));
+        Assert.assertEquals(2, buffer.position());
+    }
+
+    @Test(expected = IllegalGridInputException.class)
+    public void testParseNullInput() throws IllegalGridInputException {
+        SudokuGridBuilder.parseGrid((char[]) null);
+        Assert.fail();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseIllegalNumber() throws IllegalGridInputException {
+        SudokuGridBuilder.parseGrid("1;2|3;4\n3;x|;");
+        Assert.fail();
+    }
+
+    @Test(expected = IllegalGridInputException.class)
+    public void testParseValueOutsideGrid() throws IllegalGridInputException {
+        SudokuGridBuilder.parseGrid("1;2|3;4\n;|;|3;");
+        Assert.fail();
+    }
+
+    @Test(expected = IllegalGridInputException.class)
+    public void testParseTooManyRows() throws IllegalGridInputException {
+        SudokuGridBuilder.parseGrid("1;2|3;4\n;|;\n;|;\n;|;\n;|;\n;|;");
+        Assert.fail();
+    }
+
+    @Test(expected = IllegalGridInputException.class)
+    public void testParseTooManySegments() throws IllegalGridInputException {
+        SudokuGridBuilder.parseGrid("1;2|3;4\n;|;|;|;\n;|;\n;|;");
+        Assert.fail();
+    }
+
+    @Test(expected = IllegalGridInputException.class)
+    public void testParseExtraEmptySegment() throws IllegalGridInputException {
+        SudokuGridBuilder.parseGrid("1;2|3;4\n;|;|;\n;|;\n;|;");
+        Assert.fail();
+    }
 }
@@ -0,0 +1,110 @@
+package nl.concipit.sudoku.generator;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.solver.DancingLinksSolver;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link PuzzleGenerator}
+ *
+ * @author dcoppens
+ *
+ */
+public class PuzzleGeneratorTest {
+
+    @Test
+    public void testGenerateSolution() {
+        PuzzleGenerator generator = new PuzzleGenerator(9, 3, 0);
+        SudokuGrid grid = generator.generateSolution(new Random(7));
+
+        Assert.assertTrue(grid.isComplete());
+        Assert.assertEquals(81, grid.getNumberOfFilledCells());
+    }
+
+    @Test
+    public void testGenerateUnique() {
+        PuzzleGenerator generator = new PuzzleGenerator(9, 3, 30);
+        SudokuGrid grid = generator.generate(new Random(1));
+
+        Assert.assertTrue(grid.getNumberOfFilledCells() >= 30);
+        Assert.assertTrue(grid.getNumberOfFilledCells() < 40);
+        Assert.assertTrue(new DancingLinksSolver().hasUniqueSolution(grid));
+    }
+
+    @Test
+    public void testGenerateMinimal() {
+        PuzzleGenerator generator = new PuzzleGenerator(4, 2, 0);
+        SudokuGrid grid = generator.generate(new Random(3));
+        DancingLinksSolver counter = new DancingLinksSolver();
+
+        Assert.assertTrue(counter.hasUniqueSolution(grid));
+        // no clue can be removed
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++) {
+                int value = grid.getValue(column, row);
+                if (value != 0) {
+                    grid.setValue(column, row, 0);
+                    Assert.assertFalse(counter.hasUniqueSolution(grid));
+                    grid.setValue(column, row, value);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReproducible() {
+        PuzzleGenerator generator = new PuzzleGenerator(9, 3,
+                Difficulty.MEDIUM);
+
+        Assert.assertEquals(generator.generate(new Random(11)).toString(),
+                generator.generate(new Random(11)).toString());
+    }
+
+    @Test
+    public void testParallel() {
+        PuzzleGenerator generator = new PuzzleGenerator(9, 3, Difficulty.EASY);
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<SudokuGrid> expected = generator.generate(6, 42L, single);
+            List<SudokuGrid> puzzles = generator.generate(6, 42L, pool);
+
+            Assert.assertEquals(6, puzzles.size());
+            for (int i = 0; i < puzzles.size(); i++) {
+                Assert.assertEquals(expected.get(i).toString(), puzzles.get(i)
+                        .toString());
+                Assert.assertEquals(41, puzzles.get(i)
+                        .getNumberOfFilledCells());
+            }
+            Assert.assertNotEquals(puzzles.get(0).toString(), puzzles.get(1)
+                    .toString());
+        } finally {
+            single.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDifficulty() {
+        Assert.assertEquals(41, Difficulty.EASY.getClues(9));
+        Assert.assertEquals(33, Difficulty.MEDIUM.getClues(9));
+        Assert.assertEquals(25, Difficulty.HARD.getClues(9));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidGeometry() {
+        new PuzzleGenerator(6, 2, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidClues() {
+        new PuzzleGenerator(9, 3, 82);
+    }
+}
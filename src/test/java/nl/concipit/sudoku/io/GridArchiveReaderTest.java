@@ -0,0 +1,136 @@
+package nl.concipit.sudoku.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import nl.concipit.sudoku.generator.PuzzleGenerator;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test cases for {@link GridArchiveReader} and {@link GridArchiveWriter}
+ *
+ * @author dcoppens
+ *
+ */
+public class GridArchiveReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<SudokuGrid> grids = new ArrayList<SudokuGrid>();
+        Random random = new Random(11);
+        PuzzleGenerator classic = new PuzzleGenerator(9, 3, 25);
+        PuzzleGenerator small = new PuzzleGenerator(4, 2, 6);
+        for (int i = 0; i < 25; i++) {
+            grids.add(classic.generate(random));
+        }
+        grids.add(small.generate(random));
+        grids.add(small.generate(random));
+        grids.add(classic.generate(random));
+
+        File file = folder.newFile();
+        // 100 bytes hold two 9x9 grids, so the grids span many blocks
+        try (GridArchiveWriter writer = new GridArchiveWriter(file.toPath(),
+                100)) {
+            for (SudokuGrid grid : grids) {
+                writer.write(grid);
+            }
+        }
+        Assert.assertEquals(GridArchive.FILE_HEADER_SIZE + 15
+                * GridArchive.BLOCK_HEADER_SIZE + 26 * 41 + 2 * 6,
+                file.length());
+
+        try (GridArchiveReader reader = new GridArchiveReader(file.toPath())) {
+            for (SudokuGrid grid : grids) {
+                GridCodecTest.assertEqualGrids(grid, reader.read());
+            }
+            Assert.assertNull(reader.read());
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        SudokuGrid grid = new PuzzleGenerator(9, 3, 25)
+                .generate(new Random(2));
+        File file = folder.newFile();
+        try (GridArchiveWriter writer = new GridArchiveWriter(file.toPath())) {
+            writer.write(grid);
+            writer.flush();
+            writer.flush();
+            writer.write(grid);
+        }
+
+        try (GridArchiveReader reader = new GridArchiveReader(file.toPath())) {
+            GridCodecTest.assertEqualGrids(grid, reader.read());
+            GridCodecTest.assertEqualGrids(grid, reader.read());
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testEmptyArchive() throws Exception {
+        File file = folder.newFile();
+        new GridArchiveWriter(file.toPath()).close();
+        Assert.assertEquals(GridArchive.FILE_HEADER_SIZE, file.length());
+
+        try (GridArchiveReader reader = new GridArchiveReader(file.toPath())) {
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testCorruptedPayload() throws Exception {
+        File file = writeArchive();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[bytes.length - 5] ^= 0x10;
+        Files.write(file.toPath(), bytes);
+        assertDamaged(file);
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        File file = writeArchive();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        Files.write(file.toPath(), truncated);
+        assertDamaged(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAnArchive() throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), "8..........36......7..9.2..."
+                .getBytes("US-ASCII"));
+        new GridArchiveReader(file.toPath()).close();
+    }
+
+    private File writeArchive() throws IOException {
+        File file = folder.newFile();
+        try (GridArchiveWriter writer = new GridArchiveWriter(file.toPath())) {
+            writer.write(new PuzzleGenerator(9, 3, 25).generate(new Random(4)));
+        }
+        return file;
+    }
+
+    private void assertDamaged(File file) throws Exception {
+        try (GridArchiveReader reader = new GridArchiveReader(file.toPath())) {
+            reader.read();
+            Assert.fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
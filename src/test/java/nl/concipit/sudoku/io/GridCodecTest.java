@@ -0,0 +1,143 @@
+package nl.concipit.sudoku.io;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.generator.PuzzleGenerator;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link GridCodec}
+ *
+ * @author dcoppens
+ *
+ */
+public class GridCodecTest {
+
+    @Test
+    public void testSizes() {
+        Assert.assertEquals(4, new GridCodec(9, 3).getBitsPerCell());
+        Assert.assertEquals(41, new GridCodec(9, 3).getEncodedSize());
+        Assert.assertEquals(3, new GridCodec(4, 2).getBitsPerCell());
+        Assert.assertEquals(6, new GridCodec(4, 2).getEncodedSize());
+        Assert.assertEquals(5, new GridCodec(16, 4).getBitsPerCell());
+        Assert.assertEquals(160, new GridCodec(16, 4).getEncodedSize());
+        Assert.assertEquals(5, new GridCodec(25, 5).getBitsPerCell());
+        Assert.assertEquals(391, new GridCodec(25, 5).getEncodedSize());
+
+        // a single segment holds values up to 81
+        Assert.assertEquals(7, new GridCodec(9, 9).getBitsPerCell());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidGeometry() {
+        new GridCodec(9, 2);
+    }
+
+    @Test
+    public void testNibbles() throws Exception {
+        SudokuGrid grid = new SudokuGrid(9, 3);
+        grid.setValue(0, 0, 8);
+        grid.setValue(1, 0, 1);
+        grid.setValue(8, 8, 9);
+
+        byte[] bytes = GridCodec.toBytes(grid);
+        Assert.assertEquals(GridCodec.HEADER_SIZE + 41, bytes.length);
+        Assert.assertEquals(9, bytes[0]);
+        Assert.assertEquals(3, bytes[1]);
+        Assert.assertEquals((byte) 0x81, bytes[2]);
+        Assert.assertEquals(0, bytes[3]);
+        // the 81st nibble is the upper half of the last byte
+        Assert.assertEquals((byte) 0x90, bytes[42]);
+        assertEqualGrids(grid, GridCodec.fromBytes(bytes));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Random random = new Random(3);
+        int[][] geometries = { { 4, 2 }, { 9, 3 }, { 16, 4 }, { 9, 9 } };
+        for (int[] geometry : geometries) {
+            SudokuGrid grid = new PuzzleGenerator(geometry[0], geometry[1],
+                    geometry[0] * geometry[0] / 2).generate(random);
+            assertEqualGrids(grid, GridCodec.fromBytes(GridCodec
+                    .toBytes(grid)));
+        }
+
+        SudokuGrid single = new SudokuGrid(9, 9);
+        single.setValue(4, 4, 81);
+        assertEqualGrids(single, GridCodec.fromBytes(GridCodec
+                .toBytes(single)));
+    }
+
+    @Test
+    public void testConsecutiveGrids() throws Exception {
+        GridCodec codec = new GridCodec(9, 3);
+        PuzzleGenerator generator = new PuzzleGenerator(9, 3, 25);
+        Random random = new Random(5);
+        SudokuGrid[] grids = new SudokuGrid[10];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(grids.length
+                * codec.getEncodedSize());
+        for (int i = 0; i < grids.length; i++) {
+            grids[i] = generator.generate(random);
+            codec.encode(grids[i], buffer);
+            Assert.assertEquals((i + 1) * codec.getEncodedSize(),
+                    buffer.position());
+        }
+
+        buffer.flip();
+        for (SudokuGrid grid : grids) {
+            assertEqualGrids(grid, codec.decode(buffer));
+        }
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeOtherGeometry() {
+        new GridCodec(9, 3).encode(new SudokuGrid(4, 2),
+                ByteBuffer.allocate(41));
+    }
+
+    @Test
+    public void testInvalidInput() {
+        byte[] valid = GridCodec.toBytes(new SudokuGrid(9, 3));
+
+        byte[] value = valid.clone();
+        value[10] = (byte) 0xa0;
+        assertInvalid(value);
+
+        byte[] geometry = valid.clone();
+        geometry[1] = 2;
+        assertInvalid(geometry);
+
+        byte[] truncated = new byte[valid.length - 1];
+        System.arraycopy(valid, 0, truncated, 0, truncated.length);
+        assertInvalid(truncated);
+
+        assertInvalid(new byte[1]);
+    }
+
+    private void assertInvalid(byte[] bytes) {
+        try {
+            GridCodec.fromBytes(bytes);
+            Assert.fail();
+        } catch (IllegalGridInputException e) {
+            // expected
+        }
+    }
+
+    static void assertEqualGrids(SudokuGrid expected, SudokuGrid actual) {
+        Assert.assertEquals(expected.getGridSize(), actual.getGridSize());
+        Assert.assertEquals(expected.getSegmentSize(),
+                actual.getSegmentSize());
+        for (int row = 0; row < expected.getGridSize(); row++) {
+            for (int column = 0; column < expected.getGridSize(); column++) {
+                Assert.assertEquals(expected.getValue(column, row),
+                        actual.getValue(column, row));
+            }
+        }
+    }
+}
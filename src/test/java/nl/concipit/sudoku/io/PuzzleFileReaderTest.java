@@ -0,0 +1,154 @@
+package nl.concipit.sudoku.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.solver.SolverTestUtils;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test cases for {@link PuzzleFileReader}
+ *
+ * @author dcoppens
+ *
+ */
+public class PuzzleFileReaderTest {
+    private static final String HARDEST_LINE = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLines() throws Exception {
+        try (PuzzleFileReader reader = open(HARDEST_LINE + "\n"
+                + HARDEST_LINE.replace('.', '0') + "\r\n\n" + HARDEST_LINE)) {
+            for (int i = 0; i < 3; i++) {
+                assertHardest(reader.read());
+            }
+            Assert.assertNull(reader.read());
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testDelimited() throws Exception {
+        try (PuzzleFileReader reader = open(SolverTestUtils.HARDEST + "\n\n\n"
+                + SolverTestUtils.HARDEST + "\n\n" + HARDEST_LINE + "\n"
+                + "1;2|3;4\n3;4|1;2\n;|;\n;|;")) {
+            assertHardest(reader.read());
+            assertHardest(reader.read());
+            assertHardest(reader.read());
+
+            SudokuGrid grid = reader.read();
+            Assert.assertEquals(4, grid.getGridSize());
+            Assert.assertEquals(2, grid.getSegmentSize());
+            Assert.assertEquals(3, grid.getValue(0, 1));
+            Assert.assertEquals(0, grid.getValue(3, 3));
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testTrailingSegmentDelimiter() throws Exception {
+        try (PuzzleFileReader reader = open("1;2|3;4\n3;4|1;2|\n;|;|\n;|;")) {
+            SudokuGrid grid = reader.read();
+            Assert.assertEquals(4, grid.getGridSize());
+            Assert.assertEquals(4, grid.getValue(3, 0));
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testTrailingSegmentDelimiterFirstLine() throws Exception {
+        try (PuzzleFileReader reader = open("1;2|3;4|\n3;4|1;2\n;|;\n;|;")) {
+            SudokuGrid grid = reader.read();
+            Assert.assertEquals(4, grid.getGridSize());
+            Assert.assertEquals(2, grid.getSegmentSize());
+            Assert.assertEquals(1, grid.getValue(2, 1));
+        }
+    }
+
+    @Test
+    public void testTrailingSegmentDelimiterCrLf() throws Exception {
+        try (PuzzleFileReader reader = open("1;2|3;4|\r\n3;4|1;2|\r\n"
+                + ";|;|\r\n;|;\r\n")) {
+            SudokuGrid grid = reader.read();
+            Assert.assertEquals(4, grid.getGridSize());
+            Assert.assertEquals(2, grid.getValue(3, 1));
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testInvalidRecordsAreSkipped() throws Exception {
+        String duplicate = "88" + HARDEST_LINE.substring(2);
+        try (PuzzleFileReader reader = open(duplicate + "\n" + "12345\n"
+                + "1;2|3;4\n3;4|1;2\n\n" + "1;x|3;4\n;|;\n;|;\n;|;\n\n"
+                + HARDEST_LINE)) {
+            for (int i = 0; i < 4; i++) {
+                try {
+                    reader.read();
+                    Assert.fail();
+                } catch (IllegalGridInputException e) {
+                    // expected
+                }
+            }
+            assertHardest(reader.read());
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testSmallWindow() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            content.append(i % 2 == 0 ? HARDEST_LINE + "\n"
+                    : SolverTestUtils.HARDEST + "\n\n");
+        }
+        File file = write(content.toString());
+        try (PuzzleFileReader reader = new PuzzleFileReader(file.toPath(), 50)) {
+            for (int i = 0; i < 20; i++) {
+                assertHardest(reader.read());
+            }
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        try (PuzzleFileReader reader = open("")) {
+            Assert.assertNull(reader.read());
+        }
+        try (PuzzleFileReader reader = open("\n \r\n\n")) {
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    private void assertHardest(SudokuGrid grid) {
+        Assert.assertNotNull(grid);
+        Assert.assertEquals(9, grid.getGridSize());
+        Assert.assertEquals(3, grid.getSegmentSize());
+        Assert.assertEquals(21, grid.getNumberOfFilledCells());
+        Assert.assertEquals(8, grid.getValue(0, 0));
+        Assert.assertEquals(3, grid.getValue(2, 1));
+        Assert.assertEquals(4, grid.getValue(6, 8));
+    }
+
+    private PuzzleFileReader open(String content) throws IOException {
+        return new PuzzleFileReader(write(content).toPath());
+    }
+
+    private File write(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
@@ -0,0 +1,126 @@
+package nl.concipit.sudoku.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SudokuGeometryTest {
+
+    private static final int GRID_SIZE = 9;
+    private static final int SEGMENT_SIZE = 3;
+
+    @Test
+    public void testShared() {
+        SudokuGeometry geometry = SudokuGeometry.of(GRID_SIZE, SEGMENT_SIZE);
+
+        Assert.assertSame(geometry,
+                SudokuGeometry.of(GRID_SIZE, SEGMENT_SIZE));
+        Assert.assertSame(geometry,
+                new SudokuGrid(GRID_SIZE, SEGMENT_SIZE).getGeometry());
+        Assert.assertNotSame(geometry, SudokuGeometry.of(4, 2));
+    }
+
+    @Test
+    public void testCellUnits() {
+        SudokuGeometry geometry = SudokuGeometry.of(GRID_SIZE, SEGMENT_SIZE);
+        // column 5, row 4
+        int cell = 4 * GRID_SIZE + 5;
+
+        Assert.assertEquals(81, geometry.getNumberOfCells());
+        Assert.assertEquals(27, geometry.getNumberOfUnits());
+        Assert.assertEquals(4, geometry.getRow(cell));
+        Assert.assertEquals(5, geometry.getColumn(cell));
+        Assert.assertEquals(4, geometry.getRowUnit(cell));
+        Assert.assertEquals(GRID_SIZE + 5, geometry.getColumnUnit(cell));
+        Assert.assertEquals(2 * GRID_SIZE + 4,
+                geometry.getSegmentUnit(cell));
+        Assert.assertEquals(5, geometry.getSegmentPosition(cell));
+        Assert.assertEquals(cell, geometry.getUnitCell(geometry
+                .getUnitStart(geometry.getSegmentUnit(cell))
+                + geometry.getSegmentPosition(cell)));
+    }
+
+    @Test
+    public void testUnitCells() {
+        SudokuGeometry geometry = SudokuGeometry.of(GRID_SIZE, SEGMENT_SIZE);
+
+        Assert.assertEquals(Arrays.asList(9, 10, 11, 12, 13, 14, 15, 16, 17),
+                unitCells(geometry, 1));
+        Assert.assertEquals(Arrays.asList(2, 11, 20, 29, 38, 47, 56, 65, 74),
+                unitCells(geometry, GRID_SIZE + 2));
+        Assert.assertEquals(Arrays.asList(33, 34, 35, 42, 43, 44, 51, 52, 53),
+                unitCells(geometry, 2 * GRID_SIZE + 5));
+        Assert.assertTrue(geometry.holdsAllValues(0));
+    }
+
+    @Test
+    public void testHoldsAllValues() {
+        // rows of 4 cells out of 16 values
+        SudokuGeometry geometry = SudokuGeometry.of(4, 4);
+
+        Assert.assertFalse(geometry.holdsAllValues(0));
+        Assert.assertFalse(geometry.holdsAllValues(4));
+        Assert.assertTrue(geometry.holdsAllValues(8));
+    }
+
+    @Test
+    public void testPeers() {
+        SudokuGeometry geometry = SudokuGeometry.of(GRID_SIZE, SEGMENT_SIZE);
+
+        for (int cell = 0; cell < geometry.getNumberOfCells(); cell++) {
+            List<Integer> peers = new ArrayList<Integer>();
+            for (int i = geometry.getPeerStart(cell); i < geometry
+                    .getPeerEnd(cell); i++) {
+                int peer = geometry.getPeer(i);
+                Assert.assertNotEquals(cell, peer);
+                Assert.assertFalse(peers.contains(peer));
+                Assert.assertTrue(geometry.getRow(peer) == geometry
+                        .getRow(cell)
+                        || geometry.getColumn(peer) == geometry.getColumn(cell)
+                        || geometry.getSegmentUnit(peer) == geometry
+                                .getSegmentUnit(cell));
+                peers.add(peer);
+            }
+            Assert.assertEquals(20, peers.size());
+        }
+    }
+
+    @Test
+    public void testIndicesInSegment() {
+        SudokuGeometry geometry = SudokuGeometry.of(GRID_SIZE, SEGMENT_SIZE);
+
+        Assert.assertEquals(Arrays.asList(3, 4, 5),
+                geometry.getIndicesInSegment(4));
+        Assert.assertSame(geometry.getIndicesInSegment(3),
+                geometry.getIndicesInSegment(5));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIndicesInSegmentUnmodifiable() {
+        SudokuGeometry.of(GRID_SIZE, SEGMENT_SIZE).getIndicesInSegment(0)
+                .add(9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIndicesInSegmentBounds() {
+        SudokuGeometry.of(GRID_SIZE, SEGMENT_SIZE).getIndicesInSegment(
+                GRID_SIZE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSegmentSize() {
+        SudokuGeometry.of(GRID_SIZE, 2);
+    }
+
+    private static List<Integer> unitCells(SudokuGeometry geometry, int unit) {
+        List<Integer> cells = new ArrayList<Integer>();
+        for (int i = geometry.getUnitStart(unit); i < geometry
+                .getUnitEnd(unit); i++) {
+            cells.add(geometry.getUnitCell(i));
+        }
+        return cells;
+    }
+}
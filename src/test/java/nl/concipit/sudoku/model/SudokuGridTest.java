@@ -1,6 +1,8 @@
 package nl.concipit.sudoku.model;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import nl.concipit.sudoku.SudokuGridBuilder;
 import nl.concipit.sudoku.exception.IllegalGridInputException;
@@ -16,6 +18,20 @@ public class SudokuGridTest {
     private static final int GRID_SIZE = 9;
     private static final int SEGMENT_SIZE = 3;
 
+    @Test
+    public void testCopy() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;2|3;4\n3;4|1;2\n2;1|4;3\n4;3|2;"));
+        SudokuGrid copy = new SudokuGrid(grid);
+        copy.setValue(3, 3, 1);
+
+        Assert.assertTrue(copy.isComplete());
+        Assert.assertFalse(grid.isComplete());
+        Assert.assertEquals(0, grid.getValue(3, 3));
+        Assert.assertEquals(grid.getValue(2, 3), copy.getValue(2, 3));
+        Assert.assertEquals(Arrays.asList(2, 3, 4), grid.getValuesInRow(3));
+    }
+
     @Test
     public void testSelectValidCellBounds() {
         // class under test
@@ -107,6 +123,85 @@ public class SudokuGridTest {
         Assert.assertEquals(cell, grid.getCell(0, 0));
     }
 
+    @Test
+    public void testGetSetValue() {
+        SudokuGrid grid = new SudokuGrid(GRID_SIZE, SEGMENT_SIZE);
+        grid.setValue(2, 7, 4);
+        Assert.assertEquals(4, grid.getValue(2, 7));
+        Assert.assertEquals(Integer.valueOf(4), grid.getCell(2, 7).getValue());
+        Assert.assertEquals(0, grid.getValue(7, 2));
+
+        grid.setValue(2, 7, 0);
+        Assert.assertNull(grid.getCell(2, 7).getValue());
+    }
+
+    @Test
+    public void testGetSetValueLargeGrid() {
+        SudokuGrid grid = new SudokuGrid(144, 12);
+        grid.setValue(143, 143, 144);
+        Assert.assertEquals(144, grid.getValue(143, 143));
+        Assert.assertEquals(Arrays.asList(144), grid.getValuesInRow(143));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetValueOutOfRange() {
+        new SudokuGrid(GRID_SIZE, SEGMENT_SIZE).setValue(0, 0, 10);
+        Assert.fail();
+    }
+
+    @Test
+    public void testSetValueOutsideGrid() {
+        SudokuGrid grid = new SudokuGrid(GRID_SIZE, SEGMENT_SIZE);
+        try {
+            grid.setValue(GRID_SIZE, 0, 5);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Cell 9,0 lies outside the 9x9 grid",
+                    e.getMessage());
+        }
+        Assert.assertEquals(0, grid.getValue(0, 1));
+        Assert.assertEquals(0, grid.getNumberOfFilledCells());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetValueOutsideGrid() {
+        new SudokuGrid(GRID_SIZE, SEGMENT_SIZE).getValue(0, -1);
+        Assert.fail();
+    }
+
+    @Test
+    public void testSetValueOutOfRangeMessage() {
+        try {
+            new SudokuGrid(GRID_SIZE, SEGMENT_SIZE).setValue(0, 0, 10);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Value 10 is not between 0 and 9",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCellViewsGridValue() {
+        SudokuGrid grid = new SudokuGrid(GRID_SIZE, SEGMENT_SIZE);
+        SudokuCell cell = grid.getCell(3, 5);
+        cell.setValue(7);
+        Assert.assertEquals(7, grid.getValue(3, 5));
+        Assert.assertSame(cell, grid.getSegment(3, 5).getCell(0, 2));
+    }
+
+    @Test
+    public void testReplacedCellKeepsValue() {
+        SudokuGrid grid = new SudokuGrid(GRID_SIZE, SEGMENT_SIZE);
+        SudokuCell cell = grid.getCell(0, 0);
+        cell.setValue(3);
+        grid.setCell(0, 0, new SudokuCell(0, 0, 5));
+
+        Assert.assertEquals(Integer.valueOf(3), cell.getValue());
+        Assert.assertEquals(5, grid.getValue(0, 0));
+        cell.setValue(1);
+        Assert.assertEquals(5, grid.getValue(0, 0));
+    }
+
     @Test
     public void testCompleteRow() throws IllegalGridInputException {
         SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
@@ -344,6 +439,66 @@ public class SudokuGridTest {
                 grid.getMissingInSegment(0, 0));
     }
 
+    @Test
+    public void testMissingUpdatedOnValueChange()
+            throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;;3\n;5;6\n;8;"));
+        grid.getCell(1, 0).setValue(2);
+        Assert.assertEquals(Arrays.asList(), grid.getMissingInRow(0));
+        Assert.assertEquals(Arrays.asList(2), grid.getValuesInColumn(1));
+        Assert.assertEquals(Arrays.asList(4, 7, 9),
+                grid.getMissingInSegment(0, 0));
+
+        grid.getCell(1, 0).setValue(null);
+        Assert.assertEquals(Arrays.asList(2), grid.getMissingInRow(0));
+        Assert.assertEquals(Arrays.asList(2, 4, 7, 9),
+                grid.getMissingInSegment(0, 0));
+    }
+
+    @Test
+    public void testMissingUpdatedOnSetCell() {
+        SudokuGrid grid = new SudokuGrid(GRID_SIZE, SEGMENT_SIZE);
+        grid.setCell(4, 4, new SudokuCell(4, 4, 5));
+        Assert.assertEquals(Arrays.asList(5), grid.getValuesInRow(4));
+        Assert.assertEquals(Arrays.asList(5), grid.getValuesInColumn(4));
+
+        grid.setCell(4, 4, new SudokuCell(4, 4));
+        Assert.assertEquals(Arrays.asList(), grid.getValuesInRow(4));
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9),
+                grid.getMissingInSegment(4, 4));
+    }
+
+    @Test
+    public void testMissingWithDuplicateValues() {
+        SudokuGrid grid = new SudokuGrid(GRID_SIZE, SEGMENT_SIZE);
+        grid.getCell(0, 0).setValue(9);
+        grid.getCell(8, 0).setValue(9);
+        grid.getCell(0, 0).setValue(null);
+        Assert.assertEquals(Arrays.asList(9), grid.getValuesInRow(0));
+    }
+
+    @Test
+    public void testIsPossibleValue() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;|;\n;|2;\n;|;\n;3|;"));
+        Assert.assertTrue(grid.isPossibleValue(1, 0, 4));
+        Assert.assertFalse(grid.isPossibleValue(1, 0, 1));
+        Assert.assertFalse(grid.isPossibleValue(3, 0, 2));
+        Assert.assertFalse(grid.isPossibleValue(1, 1, 3));
+        Assert.assertFalse(grid.isPossibleValue(1, 1, 5));
+        Assert.assertFalse(grid.isPossibleValue(1, 1, 0));
+    }
+
+    @Test
+    public void testCountPossibleValues() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;|;\n;|2;\n;|;\n;3|;"));
+        Assert.assertEquals(3, grid.countPossibleValues(2, 2));
+        Assert.assertEquals(2, grid.countPossibleValues(1, 0));
+        Assert.assertEquals(4, grid.countPossibleValues(3, 2));
+    }
+
     @Test
     public void testGridComplete() throws IllegalGridInputException {
         SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
@@ -351,6 +506,36 @@ public class SudokuGridTest {
         Assert.assertTrue(grid.isComplete());
     }
 
+    @Test
+    public void testGridIncomplete() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;2|3;4\n3;4|1;2\n2;1|4;3\n4;3|2;"));
+        Assert.assertFalse(grid.isComplete());
+        Assert.assertEquals(15, grid.getNumberOfFilledCells());
+
+        grid.setValue(3, 3, 1);
+        Assert.assertTrue(grid.isComplete());
+        Assert.assertTrue(grid.isCompleteRow(3));
+        Assert.assertTrue(grid.isCompleteColumn(3));
+
+        grid.setValue(3, 3, 0);
+        Assert.assertFalse(grid.isComplete());
+        Assert.assertFalse(grid.isCompleteRow(3));
+        Assert.assertEquals(15, grid.getNumberOfFilledCells());
+    }
+
+    @Test
+    public void testGridIncompleteDuplicateValue() {
+        SudokuGrid grid = new SudokuGrid(4, 2);
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                grid.setValue(i, j, 1);
+            }
+        }
+        Assert.assertEquals(16, grid.getNumberOfFilledCells());
+        Assert.assertFalse(grid.isComplete());
+    }
+
     @Test
     public void testToStringOneSegment() throws IllegalGridInputException {
         SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
@@ -368,6 +553,83 @@ public class SudokuGridTest {
         Assert.assertEquals(builder.toString(), grid.toString());
     }
 
+    @Test
+    public void testUndo() {
+        SudokuGrid grid = new SudokuGrid(4, 2);
+        grid.setValue(0, 0, 1);
+        Assert.assertFalse(grid.isTrailing());
+
+        int start = grid.mark();
+        Assert.assertTrue(grid.isTrailing());
+        grid.setValue(1, 0, 2);
+        int middle = grid.mark();
+        grid.setValue(0, 0, 3);
+        grid.setValue(1, 0, 0);
+        grid.setValue(3, 3, 4);
+        Assert.assertFalse(grid.isPossibleValue(2, 3, 4));
+
+        grid.undo(middle);
+        Assert.assertEquals(1, grid.getValue(0, 0));
+        Assert.assertEquals(2, grid.getValue(1, 0));
+        Assert.assertEquals(0, grid.getValue(3, 3));
+        Assert.assertTrue(grid.isPossibleValue(2, 3, 4));
+        Assert.assertFalse(grid.isPossibleValue(2, 0, 2));
+
+        grid.undo(start);
+        Assert.assertEquals(1, grid.getNumberOfFilledCells());
+        Assert.assertTrue(grid.isPossibleValue(2, 0, 2));
+
+        grid.clearTrail();
+        Assert.assertFalse(grid.isTrailing());
+        grid.setValue(2, 2, 1);
+        Assert.assertEquals(0, grid.mark());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUndoWithoutMark() {
+        new SudokuGrid(4, 2).undo(0);
+    }
+
+    @Test
+    public void testCopyDoesNotTrail() {
+        SudokuGrid grid = new SudokuGrid(4, 2);
+        grid.mark();
+        Assert.assertFalse(new SudokuGrid(grid).isTrailing());
+    }
+
+    @Test
+    public void testListener() {
+        SudokuGrid grid = new SudokuGrid(4, 2);
+        List<String> changes = new ArrayList<String>();
+        GridListener listener = (column, row, oldValue, newValue) -> changes
+                .add(column + "," + row + ":" + oldValue + ">" + newValue);
+        grid.addListener(listener);
+
+        grid.setValue(1, 2, 3);
+        grid.setValue(1, 2, 3);
+        grid.getCell(1, 2).setValue(4);
+        int mark = grid.mark();
+        grid.setValue(0, 0, 1);
+        grid.undo(mark);
+        Assert.assertEquals(Arrays.asList("1,2:0>3", "1,2:3>4", "0,0:0>1",
+                "0,0:1>0"), changes);
+
+        grid.removeListener(listener);
+        grid.removeListener(listener);
+        grid.setValue(3, 3, 2);
+        Assert.assertEquals(4, changes.size());
+    }
+
+    @Test
+    public void testCopyHasNoListeners() {
+        SudokuGrid grid = new SudokuGrid(4, 2);
+        List<String> changes = new ArrayList<String>();
+        grid.addListener((column, row, oldValue, newValue) -> changes
+                .add("changed"));
+        new SudokuGrid(grid).setValue(0, 0, 1);
+        Assert.assertTrue(changes.isEmpty());
+    }
+
     @Test
     public void testToStringMultiSegment() throws IllegalGridInputException {
         SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
@@ -0,0 +1,255 @@
+package nl.concipit.sudoku.solver;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link BatchSolver}
+ * 
+ * @author dcoppens
+ *
+ */
+public class BatchSolverTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testOrderedWithErrors() {
+        BatchSolver batchSolver = new BatchSolver(DancingLinksSolver::new,
+                executor, 2);
+        Iterator<BatchResult> results = batchSolver.solve(
+                inputs(SolverTestUtils.HARDEST, "1;2;1", "",
+                        "1;2;\n4;5;6\n7;8;9", SolverTestUtils.HARDEST)
+                        .iterator(), true);
+
+        List<BatchResult> list = new ArrayList<BatchResult>();
+        results.forEachRemaining(list::add);
+
+        Assert.assertEquals(5, list.size());
+        for (int i = 0; i < list.size(); i++) {
+            Assert.assertEquals(i, list.get(i).getIndex());
+        }
+        Assert.assertTrue(list.get(0).isSolved());
+        Assert.assertEquals(SolveOutcome.SOLVED, list.get(0).getOutcome());
+        Assert.assertTrue(list.get(0).getGrid().isComplete());
+        Assert.assertTrue(list.get(1).getError() instanceof IllegalGridInputException);
+        Assert.assertNull(list.get(1).getGrid());
+        Assert.assertNull(list.get(1).getOutcome());
+        Assert.assertFalse(list.get(2).isSolved());
+        Assert.assertNotNull(list.get(2).getError());
+        Assert.assertTrue(list.get(3).isSolved());
+        Assert.assertTrue(list.get(4).isSolved());
+    }
+
+    @Test
+    public void testSolverErrorKeepsBatchGoing() {
+        BatchSolver batchSolver = new BatchSolver(() -> new SimpleSolver() {
+            @Override
+            public SolveOutcome solve(SudokuGrid grid, Deadline deadline) {
+                if (grid.getGridSize() == 4) {
+                    throw new StackOverflowError();
+                }
+                return super.solve(grid, deadline);
+            }
+        }, executor, 2);
+        List<BatchResult> list = batchSolver.solve(
+                inputs(SolverTestUtils.HARDEST, "1;2|3;4\n;|;\n;|;\n;|;",
+                        SolverTestUtils.HARDEST).stream(), true).collect(
+                Collectors.toList());
+
+        Assert.assertEquals(3, list.size());
+        Assert.assertTrue(list.get(0).isSolved());
+        Assert.assertTrue(list.get(1).getError() instanceof StackOverflowError);
+        Assert.assertFalse(list.get(1).isSolved());
+        Assert.assertTrue(list.get(2).isSolved());
+    }
+
+    @Test(expected = OutOfMemoryError.class)
+    public void testVirtualMachineErrorFailsBatch() {
+        BatchSolver batchSolver = new BatchSolver(() -> new SimpleSolver() {
+            @Override
+            public SolveOutcome solve(SudokuGrid grid, Deadline deadline) {
+                throw new OutOfMemoryError();
+            }
+        }, executor, 2);
+        batchSolver.solve(inputs(SolverTestUtils.HARDEST).iterator(), true)
+                .next();
+        Assert.fail();
+    }
+
+    @Test
+    public void testTimeout() {
+        // the empty grid holds its solver until the deadline passes
+        BatchSolver batchSolver = new BatchSolver(() -> new Solver() {
+            private final Solver delegate = new BitboardSolver();
+
+            @Override
+            public SolveOutcome solve(SudokuGrid grid, Deadline deadline) {
+                if (grid.getNumberOfFilledCells() == 0) {
+                    while (!deadline.isExpired()) {
+                        Thread.yield();
+                    }
+                    return SolveOutcome.TIMED_OUT;
+                }
+                return delegate.solve(grid, deadline);
+            }
+
+            @Override
+            public SudokuGrid getResult() {
+                return delegate.getResult();
+            }
+        }, executor, 1, null, 50, TimeUnit.MILLISECONDS);
+        List<BatchResult> list = batchSolver.solve(
+                inputs(SolverTestUtils.HARDEST, ";|;\n;|;\n;|;\n;|;",
+                        "1;|;\n;1|;\n;|;\n;|;").stream(), true).collect(
+                Collectors.toList());
+
+        Assert.assertEquals(3, list.size());
+        Assert.assertEquals(SolveOutcome.SOLVED, list.get(0).getOutcome());
+        Assert.assertEquals(SolveOutcome.TIMED_OUT, list.get(1).getOutcome());
+        Assert.assertFalse(list.get(1).isSolved());
+        Assert.assertNull(list.get(1).getError());
+        Assert.assertEquals(SolveOutcome.UNSOLVABLE, list.get(2).getOutcome());
+    }
+
+    @Test
+    public void testUnorderedStream() {
+        BatchSolver batchSolver = new BatchSolver(PropagationSolver::new,
+                executor, 3);
+        String hardest = SolverTestUtils.HARDEST;
+        List<BatchResult> list = batchSolver.solve(
+                inputs(hardest, hardest, "1;2;1", hardest, hardest, hardest)
+                        .stream(), false).collect(Collectors.toList());
+
+        Set<Long> indices = new HashSet<Long>();
+        int solved = 0;
+        for (BatchResult result : list) {
+            indices.add(result.getIndex());
+            solved += result.isSolved() ? 1 : 0;
+        }
+        Assert.assertEquals(new HashSet<Long>(Arrays.asList(0L, 1L, 2L, 3L,
+                4L, 5L)), indices);
+        Assert.assertEquals(5, solved);
+    }
+
+    @Test
+    public void testInputsReadLazily() {
+        final int[] read = new int[1];
+        String hardest = SolverTestUtils.HARDEST;
+        final Iterator<InputStream> source = inputs(hardest, hardest, hardest,
+                hardest, hardest, hardest).iterator();
+        Iterator<InputStream> counting = new Iterator<InputStream>() {
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            public InputStream next() {
+                read[0]++;
+                return source.next();
+            }
+        };
+
+        Iterator<BatchResult> results = new BatchSolver(
+                DancingLinksSolver::new, executor, 2).solve(counting, true);
+        Assert.assertTrue(results.hasNext());
+        results.next();
+        Assert.assertTrue(read[0] <= 3);
+    }
+
+    @Test
+    public void testMetrics() {
+        SolverMetrics metrics = new SolverMetrics();
+        BatchSolver batchSolver = new BatchSolver(BitboardSolver::new,
+                executor, 2, metrics);
+        List<BatchResult> list = batchSolver.solve(
+                inputs(SolverTestUtils.HARDEST, "1;2;1",
+                        SolverTestUtils.HARDEST).stream(), true).collect(
+                Collectors.toList());
+
+        Assert.assertEquals(2, metrics.getSolves());
+        Assert.assertEquals(2, metrics.getSolved());
+        Assert.assertEquals(2, metrics.getLatency().getCount());
+        Assert.assertTrue(list.get(0).getStatistics().isSolved());
+        Assert.assertNull(list.get(1).getStatistics());
+        Assert.assertEquals(list.get(0).getStatistics().getNodes()
+                + list.get(2).getStatistics().getNodes(), metrics.getNodes());
+    }
+
+    @Test
+    public void testValueEvents() throws IllegalGridInputException {
+        SolveTrace trace = new SolveTrace();
+        BatchSolver batchSolver = new BatchSolver(SimpleSolver::new,
+                executor, 1, trace);
+        List<BatchResult> list = batchSolver.solve(
+                inputs(SolverTestUtils.HARDEST).stream(), true).collect(
+                Collectors.toList());
+
+        Assert.assertTrue(list.get(0).isSolved());
+        Assert.assertTrue(trace.size() > 0);
+        SudokuGrid replayed = SolverTestUtils.grid(SolverTestUtils.HARDEST);
+        trace.replay(replayed, 0, trace.size());
+        SudokuGrid solution = list.get(0).getGrid();
+        for (int row = 0; row < 9; row++) {
+            for (int column = 0; column < 9; column++) {
+                Assert.assertEquals(solution.getValue(column, row),
+                        replayed.getValue(column, row));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInFlight() {
+        new BatchSolver(SimpleSolver::new, executor, 0);
+        Assert.fail();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTimeout() {
+        new BatchSolver(SimpleSolver::new, executor, 1, null, -1,
+                TimeUnit.SECONDS);
+        Assert.fail();
+    }
+
+    /**
+     * Creates input streams for the specified puzzles
+     * 
+     * @param puzzles
+     *            Puzzles
+     * @return List of input streams
+     */
+    private List<InputStream> inputs(String... puzzles) {
+        List<InputStream> inputs = new ArrayList<InputStream>();
+        for (String puzzle : puzzles) {
+            inputs.add(IOUtils.toInputStream(puzzle));
+        }
+        return inputs;
+    }
+}
@@ -0,0 +1,146 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.Random;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link BitboardSolver}
+ *
+ * @author dcoppens
+ *
+ */
+public class BitboardSolverTest {
+
+    @Test
+    public void testGetGridNoSolution() {
+        Solver solver = new BitboardSolver();
+
+        Assert.assertNull(solver.getResult());
+    }
+
+    @Test
+    public void testWorldHardest() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("8;;|;;|;;\n" + ";;3|6;;|;;\n" + ";7;|;9;|2;;\n"
+                        + ";5;|;;7|;;\n" + ";;|;4;5|7;;|\n" + ";;|1;;|;3;\n"
+                        + ";;1|;;|;6;8\n" + ";;8|5;;|;1;\n" + ";9;|;;|4;;"));
+        Solver solver = new BitboardSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertSame(grid, solver.getResult());
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+        Assert.assertEquals(8, grid.getValue(0, 0));
+        Assert.assertEquals(1, grid.getValue(1, 0));
+        Assert.assertEquals(2, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testSixteenBySixteen() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream(SolverTestUtils.SIXTEEN));
+        Solver solver = new BitboardSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+    }
+
+    @Test
+    public void testTwentyFiveByTwentyFive() {
+        SudokuGrid grid = patternPuzzle(5, 0.3, 25);
+        Solver solver = new BitboardSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+    }
+
+    @Test
+    public void testThirtySixByThirtySix() {
+        SudokuGrid grid = patternPuzzle(6, 0.3, 36);
+        Solver solver = new BitboardSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+    }
+
+    @Test
+    public void testSixtyFourBySixtyFour() {
+        // rows and segments fill all 64 bits of a lane
+        SudokuGrid grid = patternPuzzle(8, 0.2, 64);
+        Solver solver = new BitboardSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+    }
+
+    @Test
+    public void testNoCellForValue() throws IllegalGridInputException {
+        // the 1 of the segment leaves no cell for the 1 of the first row
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream(";|3;4\n;1|;\n;|;\n;|;"));
+        Solver solver = new BitboardSolver();
+
+        Assert.assertFalse(solver.solve(grid));
+        Assert.assertNull(solver.getResult());
+    }
+
+    @Test
+    public void testConflictingValues() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;|;\n;1|;\n;|;\n;|;"));
+        Solver solver = new BitboardSolver();
+
+        Assert.assertFalse(solver.solve(grid));
+        Assert.assertNull(solver.getResult());
+        Assert.assertEquals(0, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testSingleSegment() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;2;\n4;5;6\n7;8;9"));
+        Solver solver = new BitboardSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertEquals(3, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testMoreThanSixtyFourValues() {
+        // a single segment of 9 by 9 holds the values 1 up to 81
+        SudokuGrid grid = new SudokuGrid(9, 9);
+        grid.setValue(0, 0, 81);
+        Solver solver = new BitboardSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(grid.isComplete());
+        Assert.assertEquals(81, grid.getValue(0, 0));
+    }
+
+    /**
+     * Creates a puzzle by clearing a share of the cells of a complete grid
+     * built from a fixed pattern
+     */
+    private static SudokuGrid patternPuzzle(int segmentSize, double blanks,
+            long seed) {
+        int gridSize = segmentSize * segmentSize;
+        SudokuGrid grid = new SudokuGrid(gridSize, segmentSize);
+        Random random = new Random(seed);
+        for (int row = 0; row < gridSize; row++) {
+            for (int column = 0; column < gridSize; column++) {
+                if (random.nextDouble() >= blanks) {
+                    grid.setValue(column, row, (row % segmentSize
+                            * segmentSize + row / segmentSize + column)
+                            % gridSize + 1);
+                }
+            }
+        }
+        return grid;
+    }
+}
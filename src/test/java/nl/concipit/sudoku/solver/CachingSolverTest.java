@@ -0,0 +1,143 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.generator.PuzzleGenerator;
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.symmetry.GridTransform;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link CachingSolver} and {@link SolutionCache}
+ *
+ * @author dcoppens
+ *
+ */
+public class CachingSolverTest {
+
+    @Test
+    public void testHitOnEquivalentPuzzle() throws IllegalGridInputException {
+        SolutionCache cache = new SolutionCache(10);
+        SolverMetrics metrics = new SolverMetrics();
+        Solver solver = new CachingSolver(new DancingLinksSolver(), cache);
+        solver.setListener(metrics);
+
+        SudokuGrid grid = SolverTestUtils.grid(SolverTestUtils.HARDEST);
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(1, cache.size());
+        long nodes = metrics.getNodes();
+
+        // transposed, bands swapped and values 1 and 9 swapped
+        GridTransform transform = new GridTransform(3, true, new int[] { 3,
+                4, 5, 0, 1, 2, 6, 7, 8 }, new int[] { 0, 1, 2, 3, 4, 5, 6, 7,
+                8 }, new int[] { 0, 9, 2, 3, 4, 5, 6, 7, 8, 1 });
+        SudokuGrid equivalent = transform.apply(SolverTestUtils
+                .grid(SolverTestUtils.HARDEST));
+        Assert.assertTrue(solver.solve(equivalent));
+        Assert.assertSame(equivalent, solver.getResult());
+        Assert.assertTrue(SolverTestUtils.isValidSolution(equivalent));
+        Assert.assertEquals(transform.apply(grid).toString(),
+                equivalent.toString());
+
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(2, metrics.getSolved());
+        Assert.assertEquals(nodes, metrics.getNodes());
+    }
+
+    @Test
+    public void testUnsolvableCached() throws IllegalGridInputException {
+        SolutionCache cache = new SolutionCache(10);
+        Solver solver = new CachingSolver(new BitboardSolver(), cache);
+
+        Assert.assertFalse(solver.solve(SolverTestUtils
+                .grid("1;|;\n;1|;\n;|;\n;|;")));
+        Assert.assertFalse(solver.solve(SolverTestUtils
+                .grid(";|;\n;|;\n;2|;\n2;|;")));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertNull(solver.getResult());
+    }
+
+    @Test
+    public void testTimeoutNotCached() throws IllegalGridInputException {
+        SolutionCache cache = new SolutionCache(10);
+        Solver solver = new CachingSolver(new DancingLinksSolver(), cache);
+
+        Assert.assertEquals(SolveOutcome.TIMED_OUT, solver.solve(
+                SolverTestUtils.grid(SolverTestUtils.HARDEST),
+                Deadline.after(0, TimeUnit.SECONDS)));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(SolveOutcome.SOLVED,
+                solver.solve(SolverTestUtils.grid(SolverTestUtils.HARDEST),
+                        Deadline.NONE));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        SolutionCache cache = new SolutionCache(2);
+        Solver solver = new CachingSolver(new DancingLinksSolver(), cache);
+        PuzzleGenerator generator = new PuzzleGenerator(4, 2, 6);
+        SudokuGrid first = generator.generate(new Random(1));
+        SudokuGrid second = generator.generate(new Random(2));
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(solver.solve(new SudokuGrid(first)));
+            Assert.assertTrue(solver.solve(new SudokuGrid(second)));
+        }
+        Assert.assertTrue(cache.size() <= 2);
+        Assert.assertTrue(cache.getHits() > 0);
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws Exception {
+        final SolutionCache cache = new SolutionCache(100);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> new CachingSolver(
+                        new BitboardSolver(), cache).solve(SolverTestUtils
+                        .grid(SolverTestUtils.HARDEST))));
+            }
+            for (Future<Boolean> future : futures) {
+                Assert.assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(8, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    public void testLargeGridNotCached() {
+        SolutionCache cache = new SolutionCache(10);
+        Solver solver = new CachingSolver(new BitboardSolver(), cache);
+        SudokuGrid grid = new SudokuGrid(25, 5);
+        grid.setValue(0, 0, 25);
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getMisses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new SolutionCache(0);
+    }
+}
@@ -0,0 +1,72 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link CellSelector}
+ * 
+ * @author dcoppens
+ *
+ */
+public class CellSelectorTest {
+
+    @Test
+    public void testSelectFewestValues() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;|;\n;|;\n;|;\n;2|;3"));
+        CellSelector selector = new CellSelector(grid);
+
+        // cell 0,3 can only hold 4
+        Assert.assertEquals(3 * 4 + 0, selector.select());
+    }
+
+    @Test
+    public void testSelectTieBrokenByDegree() {
+        SudokuGrid grid = new SudokuGrid(4, 2);
+        grid.setValue(2, 0, 1);
+        grid.setValue(0, 1, 1);
+        grid.setValue(1, 1, 2);
+        grid.setValue(1, 3, 1);
+        CellSelector selector = new CellSelector(grid);
+
+        // cells 1,2 / 0,0 / 2,1 / 3,1 / 1,0 have 2 values left; cell 1,2 has
+        // the most empty peers
+        Assert.assertEquals(2 * 4 + 1, selector.select());
+    }
+
+    @Test
+    public void testPlacedAndRemoved() {
+        SudokuGrid grid = new SudokuGrid(4, 2);
+        CellSelector selector = new CellSelector(grid);
+
+        grid.setValue(0, 0, 1);
+        selector.placed(0);
+        grid.setValue(1, 1, 2);
+        selector.placed(5);
+        grid.setValue(2, 0, 3);
+        selector.placed(2);
+
+        // cell 1,0 can only hold 4
+        Assert.assertEquals(1, selector.select());
+
+        grid.setValue(2, 0, 0);
+        selector.removed(2);
+        int selected = selector.select();
+        Assert.assertEquals(2, grid.countPossibleValues(selected % 4,
+                selected / 4));
+    }
+
+    @Test
+    public void testSelectNoEmptyCell() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;2|3;4\n3;4|1;2\n2;1|4;3\n4;3|2;1"));
+
+        Assert.assertEquals(-1, new CellSelector(grid).select());
+    }
+}
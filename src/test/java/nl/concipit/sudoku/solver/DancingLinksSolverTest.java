@@ -0,0 +1,132 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link DancingLinksSolver}
+ * 
+ * @author dcoppens
+ *
+ */
+public class DancingLinksSolverTest {
+
+    @Test
+    public void testGetGridNoSolution() {
+        Solver solver = new DancingLinksSolver();
+
+        Assert.assertNull(solver.getResult());
+    }
+
+    @Test
+    public void testGridSimple() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;2;\n4;5;6\n7;8;9"));
+        Solver solver = new DancingLinksSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertSame(grid, solver.getResult());
+        Assert.assertEquals(3, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testWorldHardest() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("8;;|;;|;;\n" + ";;3|6;;|;;\n" + ";7;|;9;|2;;\n"
+                        + ";5;|;;7|;;\n" + ";;|;4;5|7;;|\n" + ";;|1;;|;3;\n"
+                        + ";;1|;;|;6;8\n" + ";;8|5;;|;1;\n" + ";9;|;;|4;;"));
+        Solver solver = new DancingLinksSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(grid.isComplete());
+        Assert.assertEquals(8, grid.getValue(0, 0));
+        Assert.assertEquals(1, grid.getValue(1, 0));
+        Assert.assertEquals(2, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testGridMedior() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream(";;|;;|6;;2\n" + ";4;6|;;|;;\n" + ";;|;9;|;1;\n"
+                        + ";;|;3;|8;;\n" + ";2;9|;;4|;;|\n" + ";;|7;2;8|;;4\n"
+                        + ";3;4|;;1|2;9;\n" + "9;5;|;;|;;1\n" + ";7;1|;;|;;"));
+        Solver solver = new DancingLinksSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(grid.isComplete());
+    }
+
+    @Test
+    public void testSixteenBySixteen() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream(SolverTestUtils.SIXTEEN));
+        Solver solver = new DancingLinksSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+    }
+
+    @Test
+    public void testConflictingValues() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;|;\n;1|;\n;|;\n;|;"));
+        Solver solver = new DancingLinksSolver();
+
+        Assert.assertFalse(solver.solve(grid));
+        Assert.assertNull(solver.getResult());
+        Assert.assertEquals(0, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testCountUnique() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("8;;|;;|;;\n" + ";;3|6;;|;;\n" + ";7;|;9;|2;;\n"
+                        + ";5;|;;7|;;\n" + ";;|;4;5|7;;|\n" + ";;|1;;|;3;\n"
+                        + ";;1|;;|;6;8\n" + ";;8|5;;|;1;\n" + ";9;|;;|4;;"));
+        DancingLinksSolver solver = new DancingLinksSolver();
+
+        Assert.assertEquals(1, solver.countSolutions(grid, 2));
+        Assert.assertTrue(solver.hasUniqueSolution(grid));
+        Assert.assertEquals(21, grid.getNumberOfFilledCells());
+        Assert.assertNull(solver.getResult());
+    }
+
+    @Test
+    public void testCountEmptyGrid() {
+        DancingLinksSolver solver = new DancingLinksSolver();
+        SudokuGrid grid = new SudokuGrid(4, 2);
+
+        Assert.assertEquals(288, solver.countSolutions(grid, 1000));
+        Assert.assertEquals(10, solver.countSolutions(grid, 10));
+        Assert.assertFalse(solver.hasUniqueSolution(grid));
+        Assert.assertEquals(0, grid.getNumberOfFilledCells());
+    }
+
+    @Test
+    public void testCountSingleSegment() {
+        DancingLinksSolver solver = new DancingLinksSolver();
+
+        Assert.assertEquals(1000,
+                solver.countSolutions(new SudokuGrid(3, 3), 1000));
+    }
+
+    @Test
+    public void testCountNoSolution() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;|;\n;1|;\n;|;\n;|;"));
+        DancingLinksSolver solver = new DancingLinksSolver();
+
+        Assert.assertEquals(0, solver.countSolutions(grid, 2));
+        Assert.assertFalse(solver.hasUniqueSolution(grid));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCountInvalidLimit() {
+        new DancingLinksSolver().countSolutions(new SudokuGrid(4, 2), 0);
+    }
+}
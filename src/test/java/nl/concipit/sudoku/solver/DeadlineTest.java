@@ -0,0 +1,97 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.concurrent.TimeUnit;
+
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link Deadline} and the outcome of solves with a deadline
+ *
+ * @author dcoppens
+ *
+ */
+public class DeadlineTest {
+
+    @Test
+    public void testExpired() throws IllegalGridInputException {
+        Solver[] solvers = { new SimpleSolver(), new DancingLinksSolver(),
+                new PropagationSolver(), new ForkJoinSolver(),
+                new BitboardSolver() };
+        for (Solver solver : solvers) {
+            SolverMetrics metrics = new SolverMetrics();
+            solver.setListener(metrics);
+            SudokuGrid grid = SolverTestUtils.grid(SolverTestUtils.HARDEST);
+            String original = grid.toString();
+
+            Assert.assertEquals(SolveOutcome.TIMED_OUT, solver.solve(grid,
+                    Deadline.after(0, TimeUnit.NANOSECONDS)));
+            Assert.assertEquals(original, grid.toString());
+            Assert.assertEquals(1, metrics.getTimedOut());
+            Assert.assertEquals(0, metrics.getSolved());
+        }
+    }
+
+    @Test
+    public void testCancelledDuringSearch() throws IllegalGridInputException {
+        final Deadline deadline = Deadline.cancellable();
+        Solver solver = new SimpleSolver();
+        solver.setListener(new SolverListener() {
+            private int nodes;
+
+            @Override
+            public void nodeVisited(int depth) {
+                if (++nodes == 1000) {
+                    deadline.cancel();
+                }
+            }
+        });
+        SudokuGrid grid = SolverTestUtils.grid(SolverTestUtils.HARDEST);
+        String original = grid.toString();
+
+        Assert.assertEquals(SolveOutcome.TIMED_OUT,
+                solver.solve(grid, deadline));
+        Assert.assertTrue(deadline.isCancelled());
+        Assert.assertEquals(original, grid.toString());
+        Assert.assertEquals(21, grid.getNumberOfFilledCells());
+    }
+
+    @Test
+    public void testNotExpired() throws IllegalGridInputException {
+        SudokuGrid grid = SolverTestUtils.grid(SolverTestUtils.HARDEST);
+
+        Assert.assertEquals(SolveOutcome.SOLVED, new DancingLinksSolver()
+                .solve(grid, Deadline.after(1, TimeUnit.MINUTES)));
+        Assert.assertTrue(grid.isComplete());
+    }
+
+    @Test
+    public void testUnsolvable() throws IllegalGridInputException {
+        SudokuGrid grid = SolverTestUtils.grid("1;|;\n;1|;\n;|;\n;|;");
+
+        Assert.assertEquals(SolveOutcome.UNSOLVABLE,
+                new BitboardSolver().solve(grid, Deadline.cancellable()));
+        Assert.assertEquals(SolveOutcome.UNSOLVABLE,
+                new SimpleSolver().solve(grid, Deadline.NONE));
+    }
+
+    @Test
+    public void testDeadline() {
+        Deadline deadline = Deadline.after(1, TimeUnit.MINUTES);
+        Assert.assertFalse(deadline.isExpired());
+        deadline.cancel();
+        Assert.assertTrue(deadline.isExpired());
+
+        Assert.assertTrue(Deadline.after(-1, TimeUnit.SECONDS).isExpired());
+        Assert.assertFalse(Deadline.cancellable().isExpired());
+        Assert.assertFalse(Deadline.NONE.isExpired());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCancelNone() {
+        Deadline.NONE.cancel();
+    }
+}
@@ -0,0 +1,137 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.generator.PuzzleGenerator;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link ForkJoinSolver}
+ * 
+ * @author dcoppens
+ *
+ */
+public class ForkJoinSolverTest {
+
+    @Test
+    public void testGetGridNoSolution() {
+        Solver solver = new ForkJoinSolver();
+
+        Assert.assertNull(solver.getResult());
+    }
+
+    @Test
+    public void testGridSimple() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;2;\n4;5;6\n7;8;9"));
+        Solver solver = new ForkJoinSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertSame(grid, solver.getResult());
+        Assert.assertEquals(3, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testWorldHardest() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("8;;|;;|;;\n" + ";;3|6;;|;;\n" + ";7;|;9;|2;;\n"
+                        + ";5;|;;7|;;\n" + ";;|;4;5|7;;|\n" + ";;|1;;|;3;\n"
+                        + ";;1|;;|;6;8\n" + ";;8|5;;|;1;\n" + ";9;|;;|4;;"));
+        Solver solver = new ForkJoinSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(grid.isComplete());
+        Assert.assertEquals(8, grid.getValue(0, 0));
+        Assert.assertEquals(1, grid.getValue(1, 0));
+        Assert.assertEquals(2, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testGridMedior() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream(";;|;;|6;;2\n" + ";4;6|;;|;;\n" + ";;|;9;|;1;\n"
+                        + ";;|;3;|8;;\n" + ";2;9|;;4|;;|\n" + ";;|7;2;8|;;4\n"
+                        + ";3;4|;;1|2;9;\n" + "9;5;|;;|;;1\n" + ";7;1|;;|;;"));
+        Solver solver = new ForkJoinSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(grid.isComplete());
+    }
+
+    @Test
+    public void testSixteenBySixteen() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream(SolverTestUtils.SIXTEEN));
+        Solver solver = new ForkJoinSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+    }
+
+    @Test
+    public void testConflictingValues() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;|;\n;1|;\n;|;\n;|;"));
+        Solver solver = new ForkJoinSolver();
+
+        Assert.assertFalse(solver.solve(grid));
+        Assert.assertNull(solver.getResult());
+        Assert.assertEquals(0, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testOwnPoolNoSplit() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream(SolverTestUtils.SIXTEEN));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Solver solver = new ForkJoinSolver(pool, 0);
+
+            Assert.assertTrue(solver.solve(grid));
+            Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEmptyGrid() {
+        SudokuGrid grid = new SudokuGrid(9, 3);
+        Solver solver = new ForkJoinSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+    }
+
+    @Test
+    public void testGeneratedSixteenBySixteen() {
+        PuzzleGenerator generator = new PuzzleGenerator(16, 4, 100);
+        Random random = new Random(16);
+        for (int i = 0; i < 3; i++) {
+            SudokuGrid grid = generator.generate(random);
+            Solver solver = new ForkJoinSolver();
+
+            Assert.assertEquals(SolveOutcome.SOLVED,
+                    solver.solve(grid, Deadline.after(10, TimeUnit.SECONDS)));
+            Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+        }
+    }
+
+    @Test
+    public void testSplitEveryLevel() throws IllegalGridInputException {
+        SudokuGrid grid = SolverTestUtils.grid(SolverTestUtils.HARDEST);
+        Solver solver = new ForkJoinSolver(ForkJoinPool.commonPool(), 81);
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+        Assert.assertEquals(8, grid.getValue(0, 0));
+    }
+}
@@ -0,0 +1,97 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link PropagationSolver}
+ * 
+ * @author dcoppens
+ *
+ */
+public class PropagationSolverTest {
+
+    @Test
+    public void testGetGridNoSolution() {
+        Solver solver = new PropagationSolver();
+
+        Assert.assertNull(solver.getResult());
+    }
+
+    @Test
+    public void testGridSimple() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;2;\n4;5;6\n7;8;9"));
+        Solver solver = new PropagationSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertSame(grid, solver.getResult());
+        Assert.assertEquals(3, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testWorldHardest() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("8;;|;;|;;\n" + ";;3|6;;|;;\n" + ";7;|;9;|2;;\n"
+                        + ";5;|;;7|;;\n" + ";;|;4;5|7;;|\n" + ";;|1;;|;3;\n"
+                        + ";;1|;;|;6;8\n" + ";;8|5;;|;1;\n" + ";9;|;;|4;;"));
+        Solver solver = new PropagationSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(grid.isComplete());
+        Assert.assertEquals(8, grid.getValue(0, 0));
+        Assert.assertEquals(1, grid.getValue(1, 0));
+        Assert.assertEquals(2, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testGridMedior() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream(";;|;;|6;;2\n" + ";4;6|;;|;;\n" + ";;|;9;|;1;\n"
+                        + ";;|;3;|8;;\n" + ";2;9|;;4|;;|\n" + ";;|7;2;8|;;4\n"
+                        + ";3;4|;;1|2;9;\n" + "9;5;|;;|;;1\n" + ";7;1|;;|;;"));
+        Solver solver = new PropagationSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(grid.isComplete());
+    }
+
+    @Test
+    public void testSixteenBySixteen() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream(SolverTestUtils.SIXTEEN));
+        Solver solver = new PropagationSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+    }
+
+    @Test
+    public void testConflictingValues() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;|;\n;1|;\n;|;\n;|;"));
+        Solver solver = new PropagationSolver();
+
+        Assert.assertFalse(solver.solve(grid));
+        Assert.assertNull(solver.getResult());
+        Assert.assertEquals(0, grid.getValue(2, 0));
+    }
+
+    @Test
+    public void testThreeStars() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;6;9|;8;|;;\n" + ";;|;;1|5;;\n"
+                        + "5;4;|;9;2|6;;\n" + ";;|1;;|;;3\n" + ";;|;;|7;;|\n"
+                        + ";1;|5;7;|;4;\n" + "9;2;|;;|;7;\n" + ";3;6|;;7|1;2;\n"
+                        + "7;;|;;|4;5;6"));
+        Solver solver = new PropagationSolver();
+
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(SolverTestUtils.isValidSolution(grid));
+    }
+}
@@ -0,0 +1,96 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link SolveTrace} and the value events of the solvers
+ *
+ * @author dcoppens
+ *
+ */
+public class SolveTraceTest {
+
+    @Test
+    public void testReplayEndsInSolution() throws IllegalGridInputException {
+        Solver[] solvers = { new SimpleSolver(), new PropagationSolver(),
+                new BitboardSolver() };
+        for (Solver solver : solvers) {
+            assertReplay(solver, SolverTestUtils.HARDEST);
+        }
+        assertReplay(new BitboardSolver(), SolverTestUtils.SIXTEEN);
+        assertReplay(new PropagationSolver(), SolverTestUtils.SIXTEEN);
+    }
+
+    @Test
+    public void testEvents() {
+        SolveTrace trace = new SolveTrace();
+        trace.solveStarted(new SudokuGrid(4, 2));
+        trace.valuePlaced(15, 4);
+        trace.valuePlaced(0, 1);
+        trace.valueRemoved(15);
+
+        Assert.assertEquals(4, trace.getGridSize());
+        Assert.assertEquals(3, trace.size());
+        Assert.assertEquals(15, trace.getCell(0));
+        Assert.assertEquals(4, trace.getValue(0));
+        Assert.assertEquals(15, trace.getCell(2));
+        Assert.assertEquals(0, trace.getValue(2));
+
+        SudokuGrid grid = new SudokuGrid(4, 2);
+        trace.replay(grid, 0, 2);
+        Assert.assertEquals(4, grid.getValue(3, 3));
+        trace.replay(grid, 2, 3);
+        Assert.assertEquals(0, grid.getValue(3, 3));
+        Assert.assertEquals(1, grid.getValue(0, 0));
+
+        trace.solveStarted(new SudokuGrid(4, 2));
+        Assert.assertEquals(0, trace.size());
+    }
+
+    @Test
+    public void testGrow() {
+        SolveTrace trace = new SolveTrace();
+        trace.solveStarted(new SudokuGrid(255, 15));
+        for (int i = 0; i < 5000; i++) {
+            trace.valuePlaced(255 * 255 - 1, 225);
+        }
+        Assert.assertEquals(5000, trace.size());
+        Assert.assertEquals(255 * 255 - 1, trace.getCell(4999));
+        Assert.assertEquals(225, trace.getValue(4999));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        SolveTrace trace = new SolveTrace();
+        trace.solveStarted(new SudokuGrid(4, 2));
+        trace.getCell(0);
+    }
+
+    private void assertReplay(Solver solver, String input)
+            throws IllegalGridInputException {
+        SolveTrace trace = new SolveTrace();
+        solver.setListener(trace);
+        SudokuGrid grid = SolverTestUtils.grid(input);
+        Assert.assertTrue(solver.solve(grid));
+        Assert.assertTrue(trace.size() > 0);
+
+        SudokuGrid puzzle = SolverTestUtils.grid(input);
+        for (int i = 0; i < trace.size(); i++) {
+            int cell = trace.getCell(i);
+            // values of the puzzle are never changed
+            Assert.assertEquals(0, puzzle.getValue(cell % puzzle.getGridSize(),
+                    cell / puzzle.getGridSize()));
+        }
+        trace.replay(puzzle, 0, trace.size());
+        for (int row = 0; row < grid.getGridSize(); row++) {
+            for (int column = 0; column < grid.getGridSize(); column++) {
+                Assert.assertEquals(grid.getValue(column, row),
+                        puzzle.getValue(column, row));
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package nl.concipit.sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link SolverMetrics} and the {@link SolverListener} events
+ * of the solvers
+ *
+ * @author dcoppens
+ *
+ */
+public class SolverMetricsTest {
+
+    @Test
+    public void testAllSolversReport() throws IllegalGridInputException {
+        Solver[] solvers = { new SimpleSolver(), new DancingLinksSolver(),
+                new PropagationSolver(), new ForkJoinSolver(),
+                new BitboardSolver() };
+        for (Solver solver : solvers) {
+            SolverMetrics metrics = new SolverMetrics();
+            solver.setListener(metrics);
+
+            Assert.assertTrue(solver.solve(SolverTestUtils
+                    .grid(SolverTestUtils.HARDEST)));
+            Assert.assertEquals(1, metrics.getSolves());
+            Assert.assertEquals(1, metrics.getSolved());
+            Assert.assertTrue(metrics.getNodes() > 1);
+            Assert.assertTrue(metrics.getBacktracks() > 0);
+            Assert.assertTrue(metrics.getMaxDepth() > 0);
+            Assert.assertTrue(metrics.getLatency().getPercentile(1.0) > 0);
+        }
+    }
+
+    @Test
+    public void testEvents() throws IllegalGridInputException {
+        final List<String> events = new ArrayList<String>();
+        final long[] counts = new long[3];
+        final SolveStatistics[] finished = new SolveStatistics[1];
+        Solver solver = new PropagationSolver();
+        solver.setListener(new SolverListener() {
+            @Override
+            public void solveStarted(SudokuGrid grid) {
+                events.add("started");
+            }
+
+            @Override
+            public void nodeVisited(int depth) {
+                counts[0]++;
+            }
+
+            @Override
+            public void valuePropagated(int depth) {
+                counts[1]++;
+            }
+
+            @Override
+            public void backtracked(int depth) {
+                counts[2]++;
+            }
+
+            @Override
+            public void solveFinished(SolveStatistics statistics) {
+                events.add("finished");
+                finished[0] = statistics;
+            }
+        });
+
+        Assert.assertTrue(solver.solve(SolverTestUtils
+                .grid(SolverTestUtils.HARDEST)));
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals("started", events.get(0));
+        Assert.assertEquals(counts[0], finished[0].getNodes());
+        Assert.assertEquals(counts[1], finished[0].getPropagations());
+        Assert.assertEquals(counts[2], finished[0].getBacktracks());
+        Assert.assertTrue(finished[0].getPropagations() > 0);
+    }
+
+    @Test
+    public void testListenerRemoved() throws IllegalGridInputException {
+        SolverMetrics metrics = new SolverMetrics();
+        Solver solver = new DancingLinksSolver();
+        solver.setListener(metrics);
+        solver.setListener(null);
+
+        Assert.assertTrue(solver.solve(SolverTestUtils
+                .grid(SolverTestUtils.HARDEST)));
+        Assert.assertEquals(0, metrics.getSolves());
+    }
+
+    @Test
+    public void testListenerIgnoredByDefault()
+            throws IllegalGridInputException {
+        // a solver that does not report its progress
+        Solver solver = new Solver() {
+            private final Solver delegate = new DancingLinksSolver();
+
+            @Override
+            public SolveOutcome solve(SudokuGrid grid, Deadline deadline) {
+                return delegate.solve(grid, deadline);
+            }
+
+            @Override
+            public SudokuGrid getResult() {
+                return delegate.getResult();
+            }
+        };
+        SolverMetrics metrics = new SolverMetrics();
+        solver.setListener(metrics);
+
+        Assert.assertTrue(solver.solve(SolverTestUtils
+                .grid(SolverTestUtils.HARDEST)));
+        Assert.assertEquals(0, metrics.getSolves());
+    }
+
+    @Test
+    public void testUnsolvable() throws IllegalGridInputException {
+        SolverMetrics metrics = new SolverMetrics();
+        Solver solver = new BitboardSolver();
+        solver.setListener(metrics);
+
+        Assert.assertFalse(solver.solve(SolverTestUtils
+                .grid("1;|;\n;1|;\n;|;\n;|;")));
+        Assert.assertEquals(1, metrics.getSolves());
+        Assert.assertEquals(0, metrics.getSolved());
+    }
+
+    @Test
+    public void testHistogram() {
+        SolverMetrics.Histogram histogram = new SolverMetrics.Histogram();
+        Assert.assertEquals(0, histogram.getPercentile(0.5));
+
+        for (int i = 0; i < 99; i++) {
+            histogram.record(5);
+        }
+        histogram.record(1000);
+        histogram.record(0);
+
+        Assert.assertEquals(101, histogram.getCount());
+        Assert.assertEquals(1, histogram.getCount(0));
+        Assert.assertEquals(99, histogram.getCount(3));
+        Assert.assertEquals(7, histogram.getPercentile(0.5));
+        Assert.assertEquals(7, histogram.getPercentile(0.99));
+        Assert.assertEquals(1023, histogram.getPercentile(1.0));
+        Assert.assertEquals(0, histogram.getPercentile(0.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new SolverMetrics.Histogram().getPercentile(1.5);
+    }
+}
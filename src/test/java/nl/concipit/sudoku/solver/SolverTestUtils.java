@@ -0,0 +1,77 @@
+package nl.concipit.sudoku.solver;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Shared fixtures for the solver test cases; the 9 x 9 fixture and the grid
+ * helper are also used by the test cases of other packages
+ * 
+ * @author dcoppens
+ *
+ */
+public final class SolverTestUtils {
+
+    /** "World's hardest sudoku", 9 x 9 grid with 3 x 3 segments */
+    public static final String HARDEST = "8;;|;;|;;\n;;3|6;;|;;\n;7;|;9;|2;;\n"
+            + ";5;|;;7|;;\n;;|;4;5|7;;|\n;;|1;;|;3;\n;;1|;;|;6;8\n"
+            + ";;8|5;;|;1;\n;9;|;;|4;;";
+
+    /** 16 x 16 grid with 4 x 4 segments */
+    static final String SIXTEEN = ""
+            + "9;6;;|11;;7;|;;;|;;16;\n"
+            + ";;;|;6;9;|16;;;|4;;;\n"
+            + ";;2;13|;;15;|3;7;;4|;;6;\n"
+            + "7;3;;11|13;;12;|;;;|;;;\n"
+            + ";;;6|;7;;13|;5;1;|14;;12;16\n"
+            + ";;;3|16;;2;14|9;8;6;11|;5;;1\n"
+            + ";;;|;;;|;4;;13|11;;;\n"
+            + "5;;10;1|;;;|12;;;|;;;\n"
+            + ";;;4|2;14;;15|11;3;;7|9;6;10;5\n"
+            + "1;14;15;|5;;6;9|13;16;;12|;3;;8\n"
+            + ";10;;|;11;;|;1;2;|;;;\n"
+            + "3;;;|;;16;12|10;6;;|;1;;\n"
+            + "13;;16;|12;;;|;;9;|6;10;5;15\n"
+            + ";;3;9|;;;|5;;15;|1;;;\n"
+            + "10;;;15|;;;|;14;;|;;4;\n"
+            + "14;2;1;12|15;5;;6|;;;16|;11;8;9";
+
+    /**
+     * Hide constructor for utility class
+     */
+    private SolverTestUtils() {
+        // nothing
+    }
+
+    /**
+     * Builds a grid from its definition
+     * 
+     * @param input
+     *            Grid definition
+     * @return Grid
+     * @throws IllegalGridInputException
+     *             thrown if the definition is not a valid grid
+     */
+    public static SudokuGrid grid(String input)
+            throws IllegalGridInputException {
+        return SudokuGridBuilder.buildGrid(IOUtils.toInputStream(input));
+    }
+
+    /**
+     * Verifies whether all rows, columns and segments of the grid are complete
+     * 
+     * @param grid
+     *            Grid
+     * @return true if the grid holds a valid solution, false otherwise
+     */
+    static boolean isValidSolution(SudokuGrid grid) {
+        boolean valid = grid.isComplete();
+        for (int i = 0; i < grid.getGridSize(); i++) {
+            valid = valid && grid.isCompleteRow(i) && grid.isCompleteColumn(i);
+        }
+        return valid;
+    }
+}
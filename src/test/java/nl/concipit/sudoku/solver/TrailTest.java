@@ -0,0 +1,59 @@
+package nl.concipit.sudoku.solver;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link Trail}
+ *
+ * @author dcoppens
+ *
+ */
+public class TrailTest {
+
+    @Test
+    public void testUndo() {
+        int[] values = new int[4];
+        long[] candidates = { 7L, 7L };
+        Trail trail = new Trail(values, candidates);
+
+        trail.setValue(0, 2);
+        trail.setCandidates(1, 3L);
+        int mark = trail.mark();
+        trail.setValue(0, 1);
+        trail.setValue(3, 4);
+        trail.setCandidates(1, 1L);
+        trail.setCandidates(0, 0L);
+
+        trail.undo(mark);
+        Assert.assertArrayEquals(new int[] { 2, 0, 0, 0 }, values);
+        Assert.assertArrayEquals(new long[] { 7L, 3L }, candidates);
+
+        trail.undo(0);
+        Assert.assertArrayEquals(new int[4], values);
+        Assert.assertArrayEquals(new long[] { 7L, 7L }, candidates);
+        Assert.assertEquals(0, trail.size());
+    }
+
+    @Test
+    public void testUnchangedSlotsAreNotRecorded() {
+        Trail trail = new Trail(new int[2], new long[] { 5L });
+        trail.setValue(1, 0);
+        trail.setCandidates(0, 5L);
+        Assert.assertEquals(0, trail.size());
+    }
+
+    @Test
+    public void testGrow() {
+        int[] values = new int[1];
+        Trail trail = new Trail(values, new long[1]);
+        for (int value = 1; value <= 100; value++) {
+            trail.setValue(0, value);
+        }
+        Assert.assertEquals(100, trail.size());
+        trail.undo(50);
+        Assert.assertEquals(50, values[0]);
+        trail.undo(0);
+        Assert.assertEquals(0, values[0]);
+    }
+}
@@ -0,0 +1,200 @@
+package nl.concipit.sudoku.symmetry;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.generator.PuzzleGenerator;
+import nl.concipit.sudoku.model.SudokuGrid;
+import nl.concipit.sudoku.solver.Deadline;
+import nl.concipit.sudoku.solver.SolverTestUtils;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link Canonicalizer}
+ *
+ * @author dcoppens
+ *
+ */
+public class CanonicalizerTest {
+
+    @Test
+    public void testEquivalentPuzzles() throws IllegalGridInputException {
+        SudokuGrid grid = SolverTestUtils.grid(SolverTestUtils.HARDEST);
+        Canonicalizer canonicalizer = new Canonicalizer();
+        CanonicalForm form = canonicalizer.canonicalize(grid);
+
+        Random random = new Random(3);
+        for (int i = 0; i < 10; i++) {
+            SudokuGrid equivalent = randomTransform(9, 3, random).apply(grid);
+            CanonicalForm other = canonicalizer.canonicalize(equivalent);
+            Assert.assertEquals(form, other);
+            Assert.assertEquals(form.hashCode(), other.hashCode());
+            Assert.assertEquals(form.toString(), other.toString());
+        }
+    }
+
+    @Test
+    public void testTransform() throws IllegalGridInputException {
+        SudokuGrid grid = SolverTestUtils.grid(SolverTestUtils.HARDEST);
+        CanonicalForm form = new Canonicalizer().canonicalize(grid);
+
+        Assert.assertEquals(form.toGrid().toString(), form.getTransform()
+                .apply(grid).toString());
+        Assert.assertEquals(grid.toString(), form.getTransform().inverse()
+                .apply(form.toGrid()).toString());
+        Assert.assertEquals(21, form.toGrid().getNumberOfFilledCells());
+    }
+
+    @Test
+    public void testSmallest() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream(";|;\n;|;4\n;|;\n;|;3"));
+        CanonicalForm form = new Canonicalizer().canonicalize(grid);
+
+        // empty cells compare greater than values: transposing puts both
+        // clues in the first row, one in each stack
+        Assert.assertEquals("1.2.............", form.toString());
+        Assert.assertEquals(1, form.getValue(0, 0));
+        Assert.assertEquals(2, form.getValue(2, 0));
+    }
+
+    @Test
+    public void testDifferentPuzzles() {
+        PuzzleGenerator generator = new PuzzleGenerator(9, 3, 30);
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        Assert.assertNotEquals(
+                canonicalizer.canonicalize(generator.generate(new Random(1))),
+                canonicalizer.canonicalize(generator.generate(new Random(2))));
+    }
+
+    @Test
+    public void testSolutionGrids() {
+        PuzzleGenerator generator = new PuzzleGenerator(4, 2, 16);
+        Canonicalizer canonicalizer = new Canonicalizer();
+        Random random = new Random(5);
+        for (int i = 0; i < 5; i++) {
+            SudokuGrid grid = generator.generate(random);
+            CanonicalForm form = canonicalizer.canonicalize(grid);
+            Assert.assertEquals(form, canonicalizer.canonicalize(randomTransform(
+                    4, 2, random).apply(grid)));
+            // the first row of the smallest solution is 1 up to 4
+            for (int column = 0; column < 4; column++) {
+                Assert.assertEquals(column + 1, form.getValue(column, 0));
+            }
+        }
+    }
+
+    @Test
+    public void testLargeSolutionGrid() {
+        SudokuGrid grid = new PuzzleGenerator(16, 4, 256).generate(new Random(
+                9));
+        Canonicalizer canonicalizer = new Canonicalizer();
+        CanonicalForm form = canonicalizer.canonicalize(grid);
+
+        Assert.assertNotNull(form);
+        Assert.assertEquals(form, canonicalizer.canonicalize(randomTransform(
+                16, 4, new Random(10)).apply(grid)));
+    }
+
+    @Test
+    public void testParallel() {
+        List<SudokuGrid> originals = new PuzzleGenerator(9, 3, 30).generate(
+                20, 8L, ForkJoinPool.commonPool());
+        List<SudokuGrid> grids = new ArrayList<SudokuGrid>();
+        Random random = new Random(4);
+        for (int i = 0; i < 300; i++) {
+            grids.add(randomTransform(9, 3, random).apply(
+                    originals.get(i % originals.size())));
+        }
+        Canonicalizer canonicalizer = new Canonicalizer();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<CanonicalForm> forms = canonicalizer.canonicalize(grids, pool);
+
+            Assert.assertEquals(grids.size(), forms.size());
+            Set<Fingerprint> fingerprints = new HashSet<Fingerprint>();
+            for (int i = 0; i < grids.size(); i++) {
+                Assert.assertEquals(canonicalizer.canonicalize(grids.get(i)),
+                        forms.get(i));
+                fingerprints.add(forms.get(i).getFingerprint());
+            }
+            Assert.assertEquals(originals.size(), fingerprints.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNodeLimit() throws IllegalGridInputException {
+        SudokuGrid grid = SolverTestUtils.grid(SolverTestUtils.HARDEST);
+
+        Assert.assertNull(new Canonicalizer(10).canonicalize(grid));
+    }
+
+    @Test
+    public void testDeadline() {
+        SudokuGrid grid = new PuzzleGenerator(16, 4, 256).generate(new Random(
+                9));
+        Deadline deadline = Deadline.cancellable();
+        deadline.cancel();
+
+        Assert.assertNull(new Canonicalizer().canonicalize(grid, deadline));
+        Assert.assertNotNull(new Canonicalizer().canonicalize(grid,
+                Deadline.NONE));
+    }
+
+    /**
+     * Creates a random symmetry of the specified geometry
+     */
+    static GridTransform randomTransform(int gridSize, int segmentSize,
+            Random random) {
+        int maxValue = segmentSize * segmentSize;
+        int[] permutation = permutation(maxValue, random);
+        int[] values = new int[maxValue + 1];
+        for (int value = 1; value <= maxValue; value++) {
+            values[value] = permutation[value - 1] + 1;
+        }
+        return new GridTransform(segmentSize, random.nextBoolean(), lines(
+                gridSize, segmentSize, random), lines(gridSize, segmentSize,
+                random), values);
+    }
+
+    private static int[] lines(int gridSize, int segmentSize, Random random) {
+        int[] bands = permutation(gridSize / segmentSize, random);
+        int[] lines = new int[gridSize];
+        for (int band = 0; band < bands.length; band++) {
+            int[] offsets = permutation(segmentSize, random);
+            for (int i = 0; i < segmentSize; i++) {
+                lines[band * segmentSize + i] = bands[band] * segmentSize
+                        + offsets[i];
+            }
+        }
+        return lines;
+    }
+
+    private static int[] permutation(int size, Random random) {
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        return permutation;
+    }
+}
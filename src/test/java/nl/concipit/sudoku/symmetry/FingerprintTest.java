@@ -0,0 +1,64 @@
+package nl.concipit.sudoku.symmetry;
+
+import java.util.Random;
+
+import nl.concipit.sudoku.generator.PuzzleGenerator;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link Fingerprint}
+ *
+ * @author dcoppens
+ *
+ */
+public class FingerprintTest {
+
+    @Test
+    public void testEquivalentGrids() {
+        SudokuGrid grid = new PuzzleGenerator(9, 3, 30).generate(new Random(6));
+        Canonicalizer canonicalizer = new Canonicalizer();
+        Fingerprint fingerprint = canonicalizer.canonicalize(grid)
+                .getFingerprint();
+        SudokuGrid equivalent = CanonicalizerTest.randomTransform(9, 3,
+                new Random(7)).apply(grid);
+
+        Assert.assertEquals(fingerprint, canonicalizer
+                .canonicalize(equivalent).getFingerprint());
+        Assert.assertEquals(0, fingerprint.compareTo(canonicalizer
+                .canonicalize(equivalent).getFingerprint()));
+    }
+
+    @Test
+    public void testDifferentValues() {
+        int[] values = new int[16];
+        Fingerprint empty = Fingerprint.of(4, 2, values);
+        values[15] = 1;
+        Fingerprint last = Fingerprint.of(4, 2, values);
+
+        Assert.assertNotEquals(empty, last);
+        Assert.assertNotEquals(empty, Fingerprint.of(4, 4, new int[16]));
+        Assert.assertNotEquals(empty, Fingerprint.of(5, 2, new int[25]));
+        Assert.assertEquals(last, Fingerprint.of(4, 2, values));
+    }
+
+    @Test
+    public void testOrder() {
+        Fingerprint small = new Fingerprint(1L, -1L);
+        Fingerprint large = new Fingerprint(-1L, 0L);
+
+        // unsigned: the upper bits of large are all set
+        Assert.assertTrue(small.compareTo(large) < 0);
+        Assert.assertTrue(large.compareTo(small) > 0);
+        Assert.assertTrue(new Fingerprint(1L, 2L).compareTo(new Fingerprint(
+                1L, -2L)) < 0);
+    }
+
+    @Test
+    public void testToString() {
+        Assert.assertEquals("000000000000000aff00000000000001",
+                new Fingerprint(10L, 0xff00000000000001L).toString());
+    }
+}
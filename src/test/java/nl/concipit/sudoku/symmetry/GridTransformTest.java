@@ -0,0 +1,76 @@
+package nl.concipit.sudoku.symmetry;
+
+import nl.concipit.sudoku.SudokuGridBuilder;
+import nl.concipit.sudoku.exception.IllegalGridInputException;
+import nl.concipit.sudoku.model.SudokuGrid;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link GridTransform}
+ *
+ * @author dcoppens
+ *
+ */
+public class GridTransformTest {
+
+    @Test
+    public void testApply() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;2|;\n;|;\n;|3;\n;|;4"));
+        // transpose, swap the two bands and swap values 1 and 4
+        GridTransform transform = new GridTransform(2, true, new int[] { 2,
+                3, 0, 1 }, new int[] { 0, 1, 2, 3 },
+                new int[] { 0, 4, 2, 3, 1 });
+        SudokuGrid result = transform.apply(grid);
+
+        Assert.assertTrue(transform.isTransposed());
+        Assert.assertEquals(3, result.getValue(2, 0));
+        Assert.assertEquals(1, result.getValue(3, 1));
+        Assert.assertEquals(4, result.getValue(0, 2));
+        Assert.assertEquals(2, result.getValue(0, 3));
+        Assert.assertEquals(4, result.getNumberOfFilledCells());
+    }
+
+    @Test
+    public void testInverse() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;|;3\n;2|;\n;|3;\n2;|;4"));
+        GridTransform transform = new GridTransform(2, true, new int[] { 3,
+                2, 0, 1 }, new int[] { 1, 0, 2, 3 },
+                new int[] { 0, 2, 3, 4, 1 });
+
+        Assert.assertEquals(grid.toString(), transform.inverse()
+                .apply(transform.apply(grid)).toString());
+        Assert.assertEquals(grid.toString(),
+                transform.apply(transform.inverse().apply(grid)).toString());
+    }
+
+    @Test
+    public void testIdentity() throws IllegalGridInputException {
+        SudokuGrid grid = SudokuGridBuilder.buildGrid(IOUtils
+                .toInputStream("1;|;3\n;2|;\n;|3;\n2;|;4"));
+
+        Assert.assertEquals(grid.toString(), GridTransform.identity(4, 2)
+                .apply(grid).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRowsOutsideBand() {
+        new GridTransform(2, false, new int[] { 0, 2, 1, 3 }, new int[] { 0,
+                1, 2, 3 }, new int[] { 0, 1, 2, 3, 4 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyNotKept() {
+        new GridTransform(2, false, new int[] { 0, 1, 2, 3 }, new int[] { 0,
+                1, 2, 3 }, new int[] { 1, 0, 2, 3, 4 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherGeometry() {
+        GridTransform.identity(4, 2).apply(new SudokuGrid(9, 3));
+    }
+}